@@ -8,6 +8,7 @@ import com.global.api.terminals.abstractions.IDeviceInterface;
 import com.global.api.terminals.abstractions.IDisposable;
 
 import java.util.HashMap;
+import java.util.concurrent.Executor;
 
 public class ConfiguredServices implements IDisposable {
     private IPaymentGateway gatewayConnector;
@@ -17,6 +18,7 @@ public class ConfiguredServices implements IDisposable {
     private TableServiceConnector tableServiceConnector;
     private PayrollConnector payrollConnector;
     private HashMap<Secure3dVersion, ISecure3dProvider> secure3dProviders;
+    private Executor executor;
 
     IPaymentGateway getGatewayConnector() {
         return gatewayConnector;
@@ -52,6 +54,12 @@ public class ConfiguredServices implements IDisposable {
     public void setPayrollConnector(PayrollConnector payrollConnector) {
         this.payrollConnector = payrollConnector;
     }
+    Executor getExecutor() {
+        return executor;
+    }
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
     public ISecure3dProvider getSecure3dProvider(Secure3dVersion version) {
         if(secure3dProviders.containsKey(version)) {
             return secure3dProviders.get(version);
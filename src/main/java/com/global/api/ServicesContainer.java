@@ -9,10 +9,11 @@ import com.global.api.terminals.DeviceController;
 import com.global.api.terminals.abstractions.IDeviceInterface;
 import com.global.api.terminals.abstractions.IDisposable;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class ServicesContainer implements IDisposable {
-    private HashMap<String, ConfiguredServices> configurations;
+    private ConcurrentHashMap<String, ConfiguredServices> configurations;
     private static ServicesContainer instance;
 
     public IDeviceInterface getDeviceInterface(String configName) throws ApiException {
@@ -56,6 +57,12 @@ public class ServicesContainer implements IDisposable {
         throw new ApiException("The specified configuration has not been configured for payroll.");
     }
 
+    public Executor getExecutor(String configName) {
+        if(configurations.containsKey(configName))
+            return configurations.get(configName).getExecutor();
+        return null;
+    }
+
     public static ServicesContainer getInstance() {
         if(instance == null)
             instance = new ServicesContainer();
@@ -103,12 +110,15 @@ public class ServicesContainer implements IDisposable {
 
         ConfiguredServices cs = getInstance().getConfiguration(configName);
         config.configureContainer(cs);
+        if(config.getExecutor() != null) {
+            cs.setExecutor(config.getExecutor());
+        }
 
         getInstance().addConfiguration(configName, cs);
     }
 
     private ServicesContainer() {
-        configurations = new HashMap<String, ConfiguredServices>();
+        configurations = new ConcurrentHashMap<String, ConfiguredServices>();
     }
 
     private ConfiguredServices getConfiguration(String configName) {
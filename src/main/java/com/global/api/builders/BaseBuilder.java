@@ -1,9 +1,17 @@
 package com.global.api.builders;
 
+import com.global.api.ServicesContainer;
 import com.global.api.builders.validations.Validations;
 import com.global.api.entities.exceptions.ApiException;
+import com.global.api.utils.AsyncExecutor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BaseBuilder<TResult> {
+    private static final ConcurrentHashMap<Class<?>, Validations> validationsByType = new ConcurrentHashMap<Class<?>, Validations>();
+
     protected Validations validations;
 
     public Validations getValidations() {
@@ -13,9 +21,21 @@ public abstract class BaseBuilder<TResult> {
         this.validations = validations;
     }
 
+    /**
+     * The rules from setupValidations are declared once per builder class and
+     * shared by every instance of it; use setValidations to give a single
+     * builder its own rules.
+     */
     public BaseBuilder() {
-        validations = new Validations();
-        setupValidations();
+        validations = validationsByType.get(getClass());
+        if(validations == null) {
+            validations = new Validations();
+            setupValidations();
+
+            Validations existing = validationsByType.putIfAbsent(getClass(), validations);
+            if(existing != null)
+                validations = existing;
+        }
     }
 
     public TResult execute() throws ApiException {
@@ -26,5 +46,24 @@ public abstract class BaseBuilder<TResult> {
         return null;
     }
 
+    public CompletableFuture<TResult> executeAsync() {
+        return executeAsync("default");
+    }
+    public CompletableFuture<TResult> executeAsync(String configName) {
+        return executeAsync(configName, 0);
+    }
+    /**
+     * Executes the builder on the executor configured for the given configuration (or the shared
+     * default executor). A timeout greater than zero fails the future with a GatewayTimeoutException
+     * once it elapses; cancelling the future interrupts the in-flight request.
+     */
+    public CompletableFuture<TResult> executeAsync(final String configName, int timeout) {
+        return AsyncExecutor.submit(new Callable<TResult>() {
+            public TResult call() throws Exception {
+                return execute(configName);
+            }
+        }, ServicesContainer.getInstance().getExecutor(configName), timeout);
+    }
+
     public abstract void setupValidations();
 }
@@ -0,0 +1,132 @@
+package com.global.api.builders;
+
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.gateways.IReportStreamingGateway;
+import com.global.api.gateways.ITransactionSummaryReader;
+import com.global.api.utils.AsyncExecutor;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits a report window into sub-ranges and requests them side by side, with
+ * no more than the configured number of requests in flight at once. The rows
+ * are merged in transaction date order with duplicates dropped by transaction id.
+ */
+class ParallelReportExecutor {
+    private static final Comparator<TransactionSummary> BY_TRANSACTION_DATE = new Comparator<TransactionSummary>() {
+        public int compare(TransactionSummary a, TransactionSummary b) {
+            DateTime left = a.getTransactionDate();
+            DateTime right = b.getTransactionDate();
+            if(left == null || right == null) {
+                // rows without a date go last
+                return left == right ? 0 : (left == null ? 1 : -1);
+            }
+            return left.compareTo(right);
+        }
+    };
+
+    private IReportStreamingGateway gateway;
+    private TransactionReportBuilder<?> builder;
+    private Executor executor;
+    private int maxConcurrency;
+
+    ParallelReportExecutor(IReportStreamingGateway gateway, TransactionReportBuilder<?> builder, Executor executor, int maxConcurrency) {
+        this.gateway = gateway;
+        this.builder = builder;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    List<TransactionSummary> execute(Date startDate, Date endDate, int sliceCount) throws ApiException {
+        final List<Date[]> slices = split(startDate, endDate, sliceCount);
+        final List<List<TransactionSummary>> results = new ArrayList<List<TransactionSummary>>(Collections.<List<TransactionSummary>>nCopies(slices.size(), null));
+        final AtomicInteger nextSlice = new AtomicInteger();
+        final AtomicReference<ApiException> failure = new AtomicReference<ApiException>();
+
+        // each worker takes the next waiting slice until there are none left or one has failed; the calling
+        // thread is one of them, so the report still completes when it is run from a busy or shared executor
+        int workerCount = Math.min(maxConcurrency, slices.size());
+        Runnable worker = new Runnable() {
+            public void run() {
+                int index;
+                while(failure.get() == null && (index = nextSlice.getAndIncrement()) < slices.size()) {
+                    try {
+                        results.set(index, readSlice(slices.get(index)));
+                    }
+                    catch(ApiException exc) {
+                        failure.compareAndSet(null, exc);
+                    }
+                    catch(RuntimeException exc) {
+                        failure.compareAndSet(null, new ApiException(exc.getMessage(), exc));
+                    }
+                }
+            }
+        };
+
+        try {
+            AsyncExecutor.runWithHelpers(executor, workerCount - 1, worker);
+        }
+        catch(InterruptedException exc) {
+            failure.compareAndSet(null, new ApiException("Interrupted while waiting for the report.", exc));
+            Thread.currentThread().interrupt();
+        }
+
+        if(failure.get() != null) {
+            throw failure.get();
+        }
+        return merge(results);
+    }
+
+    private List<TransactionSummary> readSlice(Date[] slice) throws ApiException {
+        List<TransactionSummary> rows = new ArrayList<TransactionSummary>();
+        ITransactionSummaryReader reader = gateway.openTransactionReader(builder, slice[0], slice[1]);
+        try {
+            TransactionSummary row;
+            while((row = reader.read()) != null) {
+                rows.add(row);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return rows;
+    }
+
+    private static List<Date[]> split(Date startDate, Date endDate, int sliceCount) {
+        long start = startDate.getTime();
+        long end = endDate.getTime();
+        long width = Math.max(1, (end - start + sliceCount) / sliceCount);
+
+        // each sub-range ends a millisecond short of the next so no row falls in two of them
+        List<Date[]> slices = new ArrayList<Date[]>(sliceCount);
+        for(long sliceStart = start; sliceStart <= end; sliceStart += width) {
+            slices.add(new Date[] { new Date(sliceStart), new Date(Math.min(end, sliceStart + width - 1)) });
+        }
+        return slices;
+    }
+
+    private static List<TransactionSummary> merge(List<List<TransactionSummary>> results) {
+        HashSet<String> seen = new HashSet<String>();
+        List<TransactionSummary> merged = new ArrayList<TransactionSummary>();
+        for(List<TransactionSummary> rows: results) {
+            for(TransactionSummary row: rows) {
+                if(row.getTransactionId() == null || seen.add(row.getTransactionId())) {
+                    merged.add(row);
+                }
+            }
+        }
+
+        Collections.sort(merged, BY_TRANSACTION_DATE);
+        return merged;
+    }
+}
@@ -23,6 +23,9 @@ public abstract class ReportBuilder<TResult> extends BaseBuilder<TResult> {
     public void setTimeZoneConversion(TimeZoneConversion timeZoneConversion) {
         this.timeZoneConversion = timeZoneConversion;
     }
+    public Class<TResult> getResultType() {
+        return clazz;
+    }
 
     public ReportBuilder(ReportType type, Class<TResult> clazz) {
         super();
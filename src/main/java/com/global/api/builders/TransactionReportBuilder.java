@@ -1,27 +1,58 @@
 package com.global.api.builders;
 
+import com.global.api.ServicesContainer;
+import com.global.api.entities.TransactionSummary;
 import com.global.api.entities.enums.ReportType;
 import com.global.api.entities.enums.TimeZoneConversion;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.exceptions.UnsupportedTransactionException;
+import com.global.api.gateways.IPaymentGateway;
+import com.global.api.gateways.IReportStreamingGateway;
 import com.global.api.entities.reporting.SearchCriteria;
 import com.global.api.entities.reporting.SearchCriteriaBuilder;
+import com.global.api.utils.AsyncExecutor;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TransactionReportBuilder<TResult> extends ReportBuilder<TResult> {
+    private static final long DEFAULT_SLICE_DURATION = 24 * 60 * 60 * 1000L;
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
     private String deviceId;
     private Date endDate;
     private Date startDate;
     private String transactionId;
+    private long sliceDuration = DEFAULT_SLICE_DURATION;
+    private int parallelSlices = 1;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
     private SearchCriteriaBuilder<TResult> _searchBuilder;
 
     public String getDeviceId() {
         return getSearchBuilder().getUniqueDeviceId();
     }
     public Date getEndDate() {
-        return getSearchBuilder().getEndDate();
+        Date value = getSearchBuilder().getEndDate();
+        return value != null ? value : endDate;
     }
     public Date getStartDate() {
-        return getSearchBuilder().getStartDate();
+        Date value = getSearchBuilder().getStartDate();
+        return value != null ? value : startDate;
+    }
+    public long getSliceDuration() {
+        return sliceDuration;
+    }
+    public int getParallelSlices() {
+        return parallelSlices;
+    }
+    public int getMaxConcurrency() {
+        return maxConcurrency;
     }
     public String getTransactionId() {
         return transactionId;
@@ -50,11 +81,108 @@ public class TransactionReportBuilder<TResult> extends ReportBuilder<TResult> {
         setTimeZoneConversion(value);
         return this;
     }
+    /** Sets the width, in milliseconds, of the date slices a streamed report is requested in. */
+    public TransactionReportBuilder<TResult> withSliceDuration(long value) {
+        this.sliceDuration = value;
+        return this;
+    }
 
     public TransactionReportBuilder(ReportType type, Class<TResult> clazz) {
         super(type, clazz);
     }
 
+    /**
+     * Splits the date range into the given number of sub-ranges that are requested
+     * concurrently and merged in transaction date order when the builder is executed.
+     */
+    public TransactionReportBuilder<TResult> withParallelSlices(int value) {
+        this.parallelSlices = value;
+        return this;
+    }
+    /** Caps how many of the parallel sub-range requests may be in flight at once. */
+    public TransactionReportBuilder<TResult> withMaxConcurrency(int value) {
+        this.maxConcurrency = value;
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public TResult execute(String configName) throws ApiException {
+        if(parallelSlices <= 1 || getTransactionId() != null || !List.class.isAssignableFrom(getResultType())) {
+            return super.execute(configName);
+        }
+
+        validations.validate(this);
+        if(getStartDate() == null || getEndDate() == null) {
+            throw new BuilderException("Parallel reports require a start date and an end date.");
+        }
+        if(maxConcurrency <= 0) {
+            throw new BuilderException("The maximum concurrency must be greater than zero.");
+        }
+
+        IPaymentGateway client = ServicesContainer.getInstance().getGateway(configName);
+        if(!(client instanceof IReportStreamingGateway)) {
+            return super.execute(configName);
+        }
+
+        Executor executor = ServicesContainer.getInstance().getExecutor(configName);
+        if(executor == null) {
+            executor = AsyncExecutor.getDefaultExecutor();
+        }
+
+        List<TransactionSummary> rows = new ParallelReportExecutor((IReportStreamingGateway)client, this, executor, maxConcurrency)
+                .execute(getStartDate(), getEndDate(), parallelSlices);
+        try {
+            List<TransactionSummary> rvalue = (List<TransactionSummary>)getResultType().getDeclaredConstructor().newInstance();
+            rvalue.addAll(rows);
+            return (TResult)rvalue;
+        }
+        catch(ReflectiveOperationException e) {
+            throw new ApiException(String.format("Could not create the report result %s.", getResultType().getName()), e);
+        }
+    }
+
+    public TransactionReportIterator iterate() throws ApiException {
+        return iterate("default");
+    }
+    /**
+     * Returns the report rows lazily, requesting the date range one slice at a
+     * time rather than building the whole result in memory.
+     */
+    public TransactionReportIterator iterate(String configName) throws ApiException {
+        validations.validate(this);
+
+        if(getTransactionId() != null) {
+            throw new BuilderException("Streamed reports cannot be filtered by transaction id.");
+        }
+        if(getStartDate() == null || getEndDate() == null) {
+            throw new BuilderException("Streamed reports require a start date and an end date.");
+        }
+        if(sliceDuration <= 0) {
+            throw new BuilderException("The slice duration must be greater than zero.");
+        }
+
+        IPaymentGateway client = ServicesContainer.getInstance().getGateway(configName);
+        if(!(client instanceof IReportStreamingGateway)) {
+            throw new UnsupportedTransactionException("The configured gateway does not support streamed reports.");
+        }
+        return new TransactionReportIterator((IReportStreamingGateway)client, this, getStartDate(), getEndDate(), sliceDuration);
+    }
+
+    public Stream<TransactionSummary> stream() throws ApiException {
+        return stream("default");
+    }
+    /** The rows of {@link #iterate(String)} as a sequential stream; closing the stream releases any open response. */
+    public Stream<TransactionSummary> stream(String configName) throws ApiException {
+        final TransactionReportIterator iterator = iterate(configName);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(new Runnable() {
+                    public void run() {
+                        iterator.close();
+                    }
+                });
+    }
+
     public SearchCriteriaBuilder<TResult> getSearchBuilder() {
         if (_searchBuilder == null) {
             _searchBuilder = new SearchCriteriaBuilder<TResult>(this);
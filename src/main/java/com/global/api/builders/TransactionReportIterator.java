@@ -0,0 +1,94 @@
+package com.global.api.builders;
+
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.UncheckedApiException;
+import com.global.api.gateways.IReportStreamingGateway;
+import com.global.api.gateways.ITransactionSummaryReader;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks a transaction report one date slice at a time. Each slice is a separate
+ * request whose rows are read as they arrive, so only the row being returned is
+ * held in memory however large the report is. Failures surface as an
+ * {@link UncheckedApiException}.
+ */
+public class TransactionReportIterator implements Iterator<TransactionSummary>, AutoCloseable {
+    private IReportStreamingGateway gateway;
+    private TransactionReportBuilder<?> builder;
+    private long endTime;
+    private long sliceDuration;
+
+    private long nextSliceStart;
+    private ITransactionSummaryReader reader;
+    private TransactionSummary next;
+    private boolean closed;
+
+    TransactionReportIterator(IReportStreamingGateway gateway, TransactionReportBuilder<?> builder, Date startDate, Date endDate, long sliceDuration) {
+        this.gateway = gateway;
+        this.builder = builder;
+        this.nextSliceStart = startDate.getTime();
+        this.endTime = endDate.getTime();
+        this.sliceDuration = sliceDuration;
+    }
+
+    public boolean hasNext() {
+        if(next != null) {
+            return true;
+        }
+
+        try {
+            while(!closed) {
+                if(reader == null) {
+                    if(nextSliceStart > endTime) {
+                        closed = true;
+                        break;
+                    }
+
+                    // slices end a millisecond short of the next so no row is reported twice
+                    long sliceEnd = Math.min(endTime, nextSliceStart + sliceDuration - 1);
+                    reader = gateway.openTransactionReader(builder, new Date(nextSliceStart), new Date(sliceEnd));
+                    nextSliceStart = sliceEnd + 1;
+                }
+
+                next = reader.read();
+                if(next != null) {
+                    return true;
+                }
+                reader = null;
+            }
+            return false;
+        }
+        catch(ApiException exc) {
+            close();
+            throw new UncheckedApiException(exc);
+        }
+    }
+
+    public TransactionSummary next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        TransactionSummary rvalue = next;
+        next = null;
+        return rvalue;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Releases the open response, if any; only needed when the report is abandoned part way. */
+    public void close() {
+        closed = true;
+        next = null;
+        if(reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.global.api.builders.validations;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads a field by name, searching up the class hierarchy the first time and
+ * reusing the resolved getter for every later read against the same class.
+ */
+class FieldAccessor {
+    private static final FieldAccessor MISSING = new FieldAccessor(null);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ConcurrentHashMap<String, FieldAccessor>> accessors = new ClassValue<ConcurrentHashMap<String, FieldAccessor>>() {
+        protected ConcurrentHashMap<String, FieldAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<String, FieldAccessor>();
+        }
+    };
+
+    private MethodHandle getter;
+
+    private FieldAccessor(MethodHandle getter) {
+        this.getter = getter;
+    }
+
+    /**
+     * Returns the accessor for the named field, or null when neither the class
+     * nor any of its superclasses declare it.
+     */
+    static FieldAccessor find(Class<?> clazz, String fieldName) {
+        ConcurrentHashMap<String, FieldAccessor> fields = accessors.get(clazz);
+        FieldAccessor accessor = fields.get(fieldName);
+        if(accessor == null) {
+            accessor = resolve(clazz, fieldName);
+            FieldAccessor existing = fields.putIfAbsent(fieldName, accessor);
+            if(existing != null)
+                accessor = existing;
+        }
+        return accessor == MISSING ? null : accessor;
+    }
+
+    Object get(Object target) throws Exception {
+        try {
+            return (Object)getter.invokeExact(target);
+        }
+        catch(Exception e) {
+            throw e;
+        }
+        catch(Error e) {
+            throw e;
+        }
+        catch(Throwable t) {
+            throw new Exception(t.getMessage(), t);
+        }
+    }
+
+    private static FieldAccessor resolve(Class<?> clazz, String fieldName) {
+        for(Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(fieldName);
+                field.setAccessible(true);
+
+                MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+                if(Modifier.isStatic(field.getModifiers()))
+                    getter = MethodHandles.dropArguments(getter, 0, Object.class);
+                return new FieldAccessor(getter.asType(GETTER_TYPE));
+            }
+            catch(NoSuchFieldException e) {
+                // keep looking in the superclass
+            }
+            catch(Exception e) {
+                return MISSING;
+            }
+        }
+        return MISSING;
+    }
+}
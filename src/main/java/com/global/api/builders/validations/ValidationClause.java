@@ -1,7 +1,5 @@
 package com.global.api.builders.validations;
 
-import java.lang.reflect.Field;
-
 public class ValidationClause {
     private Validations parent;
     private ValidationTarget target;
@@ -33,14 +31,12 @@ public class ValidationClause {
     public ValidationTarget isNull(String message){
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value == null;
-                }
-                catch(NoSuchFieldException exc) {
+                FieldAccessor f = FieldAccessor.find(builder.getClass(), propertyName);
+                if(f == null)
                     return false;
-                }
+
+                Object value = f.get(builder);
+                return value == null;
             }
         };
         this.message = (message != null) ? message : String.format("%s cannot be null for this transaction type.", propertyName);
@@ -55,14 +51,12 @@ public class ValidationClause {
     public ValidationTarget isNotNull(String message){
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value != null;
-                }
-                catch(NoSuchFieldException exc) {
+                FieldAccessor f = FieldAccessor.find(builder.getClass(), propertyName);
+                if(f == null)
                     return false;
-                }
+
+                Object value = f.get(builder);
+                return value != null;
             }
         };
         this.message = (message != null) ? message : String.format("%s cannot be null for this transaction type.", propertyName);
@@ -78,14 +72,12 @@ public class ValidationClause {
         final Class checkClass = clazz;
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value.getClass() == checkClass;
-                }
-                catch(NoSuchFieldException exc) {
+                FieldAccessor f = FieldAccessor.find(builder.getClass(), propertyName);
+                if(f == null)
                     return false;
-                }
+
+                Object value = f.get(builder);
+                return value.getClass() == checkClass;
             }
         };
         this.message = (message != null) ? message : String.format("%s must be an instance of the %s class.", propertyName, clazz.getName());
@@ -101,14 +93,12 @@ public class ValidationClause {
         final Class checkClass = clazz;
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return checkClass.isAssignableFrom(value.getClass());
-                }
-                catch(NoSuchFieldException exc) {
+                FieldAccessor f = FieldAccessor.find(builder.getClass(), propertyName);
+                if(f == null)
                     return false;
-                }
+
+                Object value = f.get(builder);
+                return checkClass.isAssignableFrom(value.getClass());
             }
         };
         this.message = (message != null) ? message : String.format("%s must be an instance of the %s class.", propertyName, clazz.getName());
@@ -123,14 +113,12 @@ public class ValidationClause {
     public ValidationTarget isEqualTo(final Object expected, String message) {
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value.equals(expected);
-                }
-                catch(NoSuchFieldException exc) {
+                FieldAccessor f = FieldAccessor.find(builder.getClass(), propertyName);
+                if(f == null)
                     return false;
-                }
+
+                Object value = f.get(builder);
+                return value.equals(expected);
             }
         };
         this.message = (message != null) ? message : String.format("%s was not the expected value %s", propertyName, expected.toString());
@@ -145,14 +133,12 @@ public class ValidationClause {
     public ValidationTarget isNotEqual(final Object expected, String message) {
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return !value.equals(expected);
-                }
-                catch(NoSuchFieldException exc) {
+                FieldAccessor f = FieldAccessor.find(builder.getClass(), propertyName);
+                if(f == null)
                     return false;
-                }
+
+                Object value = f.get(builder);
+                return !value.equals(expected);
             }
         };
         this.message = (message != null) ? message : String.format("%s cannot be the value %s.", propertyName, expected.toString());
@@ -160,20 +146,4 @@ public class ValidationClause {
             return target;
         return parent.of(target.getType()).with(target.getConstraint());
     }
-
-    private Field getField(Class clazz, String fieldName) throws NoSuchFieldException {
-        try{
-            Field f = clazz.getDeclaredField(fieldName);
-            f.setAccessible(true);
-            return f;
-        }
-        catch(NoSuchFieldException e) {
-            Class superClass = clazz.getSuperclass();
-            if(superClass == null)
-                throw e;
-            else {
-                return getField(superClass, fieldName);
-            }
-        }
-    }
 }
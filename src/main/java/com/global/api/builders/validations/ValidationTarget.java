@@ -9,6 +9,7 @@ public class ValidationTarget {
 
     private Validations.ValidationKey type;
     private IFlag constraint;
+    private String constraintProperty;
 
     public Validations.ValidationKey getType() {
         return type;
@@ -16,6 +17,9 @@ public class ValidationTarget {
     public IFlag getConstraint() {
         return constraint;
     }
+    String getConstraintProperty() {
+        return constraintProperty;
+    }
     public ValidationClause getClause() {
         return clause;
     }
@@ -30,6 +34,7 @@ public class ValidationTarget {
 
     public ValidationTarget with(IFlag constraint) {
         this.constraint = constraint;
+        this.constraintProperty = (constraint != null) ? Validations.getPropertyName(constraint.getClass()) : null;
         return this;
     }
 
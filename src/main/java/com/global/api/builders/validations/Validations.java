@@ -7,13 +7,19 @@ import com.global.api.entities.exceptions.BuilderException;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.lang.reflect.Field;
 import java.util.*;
 
+/**
+ * Holds the rules declared by a builder's setupValidations. The rules are
+ * compiled on first use into one table per flag type, indexed by the flag's
+ * ordinal, so validating a builder only reads the flags it carries and runs
+ * the targets registered for them.
+ */
 public class Validations {
     class ValidationKey {
         private Class<?> type;
         private long value;
+        private Set<?> set;
 
         public Type getType() {
             return type;
@@ -25,9 +31,14 @@ public class Validations {
         ValidationKey(Class type, long value) {
             this.type = type;
             this.value = value;
+            this.set = resolveSet();
         }
 
         Set<?> getSet() {
+            return set;
+        }
+
+        private Set<?> resolveSet() {
             try {
                 Method method = type.getMethod("getSet", long.class);
                 return (Set<?>)method.invoke(this.type, this.value);
@@ -36,10 +47,20 @@ public class Validations {
         }
     }
 
-    private HashMap<ValidationKey, List<ValidationTarget>> rules;
+    // the targets to run for each value of one flag type, read from the builder property named after the type
+    private static class DispatchTable {
+        private Class<?> type;
+        private String propertyName;
+        private ValidationTarget[][] targets;
+    }
+
+    private static final ValidationTarget[] NO_TARGETS = new ValidationTarget[0];
+
+    private LinkedHashMap<ValidationKey, List<ValidationTarget>> rules;
+    private volatile DispatchTable[] compiled;
 
     public Validations() {
-        rules = new HashMap<ValidationKey, List<ValidationTarget>>();
+        rules = new LinkedHashMap<ValidationKey, List<ValidationTarget>>();
     }
 
     public <T extends IFlag> ValidationTarget of(Set<T> types) {
@@ -49,84 +70,119 @@ public class Validations {
     public ValidationTarget of(IFlag type) {
         return of(new ValidationKey(type.getClass(), type.getLongValue()));
     }
-    ValidationTarget of(ValidationKey key) {
+    synchronized ValidationTarget of(ValidationKey key) {
         if(!rules.containsKey(key))
             rules.put(key, new ArrayList<ValidationTarget>());
 
         ValidationTarget target = new ValidationTarget(this, key);
         rules.get(key).add(target);
+        compiled = null;
         return target;
     }
 
     public <T> void validate(BaseBuilder<T> builder) throws BuilderException {
-        for(ValidationKey key: rules.keySet()) {
-            IFlag value = getPropertyValue(builder, key.getType());
+        DispatchTable[] tables = compiled;
+        if(tables == null)
+            tables = compile();
+
+        for(DispatchTable table: tables) {
+            IFlag value = getPropertyValue(builder, table.propertyName);
             if(value == null && builder instanceof TransactionBuilder) {
-                value = getPropertyValue(((TransactionBuilder<T>)builder).getPaymentMethod(), key.getType());
-                if(value == null)
-                    continue;
+                value = getPropertyValue(((TransactionBuilder<T>)builder).getPaymentMethod(), table.propertyName);
             }
+            if(value == null || value.getClass() != table.type)
+                continue;
+
+            for(ValidationTarget validation: table.targets[((Enum<?>)value).ordinal()]) {
+                ValidationClause clause = validation.getClause();
+
+                // modifier
+                IFlag constraint = validation.getConstraint();
+                if(constraint != null) {
+                    IFlag modifier = getPropertyValue(builder, validation.getConstraintProperty());
+                    if(!constraint.equals(modifier))
+                        continue;
+                }
 
-            Set<?> values = key.getSet();
-            if(values.contains(value)) {
-                for(ValidationTarget validation: rules.get(key)) {
-                    ValidationClause clause = validation.getClause();
-                    if(clause == null) continue;
-
-                    // modifier
-                    IFlag constraint = validation.getConstraint();
-                    if(constraint != null) {
-                        IFlag modifier = getPropertyValue(builder, constraint.getClass());
-                        if(!constraint.equals(modifier))
+                // check precondition
+                ValidationClause precondition = validation.getPrecondition();
+                if(precondition != null) {
+                    try {
+                        if (!precondition.getCallback().call(builder))
                             continue;
                     }
-
-                    // check precondition
-                    ValidationClause precondition = validation.getPrecondition();
-                    if(precondition != null) {
-                        try {
-                            if (!precondition.getCallback().call(builder))
-                                continue;
-                        }
-                        catch(Exception exc) {
-                            throw new BuilderException(exc.getMessage());
-                        }
+                    catch(Exception exc) {
+                        throw new BuilderException(exc.getMessage());
                     }
+                }
 
-                    // run actual validation
-                    try{
-                        if(!clause.getCallback().call(builder))
-                            throw new BuilderException(clause.getMessage());
-                    }
-                    catch(Exception e) {
-                        throw new BuilderException(e.getMessage());
-                    }
+                // run actual validation
+                try{
+                    if(!clause.getCallback().call(builder))
+                        throw new BuilderException(clause.getMessage());
+                }
+                catch(Exception e) {
+                    throw new BuilderException(e.getMessage());
                 }
             }
         }
     }
 
-    private Field getField(Class clazz, String name) throws NoSuchFieldException {
-        try {
-            Field field = clazz.getDeclaredField(name);
-            field.setAccessible(true);
-            return field;
+    private synchronized DispatchTable[] compile() {
+        if(compiled != null)
+            return compiled;
+
+        LinkedHashMap<Class<?>, List<List<ValidationTarget>>> byType = new LinkedHashMap<Class<?>, List<List<ValidationTarget>>>();
+        for(Map.Entry<ValidationKey, List<ValidationTarget>> rule: rules.entrySet()) {
+            Set<?> values = rule.getKey().getSet();
+            if(values == null)
+                continue;
+
+            Class<?> type = rule.getKey().type;
+            List<List<ValidationTarget>> slots = byType.get(type);
+            if(slots == null) {
+                slots = new ArrayList<List<ValidationTarget>>();
+                for(int i = 0; i < type.getEnumConstants().length; i++)
+                    slots.add(new ArrayList<ValidationTarget>());
+                byType.put(type, slots);
+            }
+
+            for(Object value: values) {
+                for(ValidationTarget target: rule.getValue()) {
+                    if(target.getClause() != null)
+                        slots.get(((Enum<?>)value).ordinal()).add(target);
+                }
+            }
         }
-        catch(NoSuchFieldException e) {
-            Class superClazz = clazz.getSuperclass();
-            if(superClazz != null)
-                return getField(superClazz, name);
-            else throw e;
+
+        List<DispatchTable> tables = new ArrayList<DispatchTable>();
+        for(Map.Entry<Class<?>, List<List<ValidationTarget>>> entry: byType.entrySet()) {
+            DispatchTable table = new DispatchTable();
+            table.type = entry.getKey();
+            table.propertyName = getPropertyName(entry.getKey());
+            table.targets = new ValidationTarget[entry.getValue().size()][];
+            for(int i = 0; i < table.targets.length; i++) {
+                List<ValidationTarget> slot = entry.getValue().get(i);
+                table.targets[i] = slot.isEmpty() ? NO_TARGETS : slot.toArray(new ValidationTarget[slot.size()]);
+            }
+            tables.add(table);
         }
+
+        compiled = tables.toArray(new DispatchTable[tables.size()]);
+        return compiled;
     }
-    private IFlag getPropertyValue(Object obj, Object comp) {
-        if(obj == null) return null;
 
-        String name = ((Class)comp).getSimpleName();
-        name = name.substring(0, 1).toLowerCase() + name.substring(1);
+    static String getPropertyName(Class<?> clazz) {
+        String name = clazz.getSimpleName();
+        return name.substring(0, 1).toLowerCase() + name.substring(1);
+    }
+    private IFlag getPropertyValue(Object obj, String name) {
+        if(obj == null) return null;
 
         try{
-            Field field = getField(obj.getClass(), name);
+            FieldAccessor field = FieldAccessor.find(obj.getClass(), name);
+            if(field == null)
+                return null;
             return (IFlag)field.get(obj);
         }
         catch(Exception e) {
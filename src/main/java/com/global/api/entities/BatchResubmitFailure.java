@@ -0,0 +1,34 @@
+package com.global.api.entities;
+
+import com.global.api.entities.exceptions.ApiException;
+
+/**
+ * A message from batch recovery which the host did not accept, along with the reason it failed.
+ */
+public class BatchResubmitFailure {
+    private String messageTypeIndicator;
+    private String transactionToken;
+    private ApiException exception;
+
+    public BatchResubmitFailure(String messageTypeIndicator, String transactionToken, ApiException exception) {
+        this.messageTypeIndicator = messageTypeIndicator;
+        this.transactionToken = transactionToken;
+        this.exception = exception;
+    }
+
+    /**
+     * 1221 for a data collect, 1521 for the batch close.
+     */
+    public String getMessageTypeIndicator() {
+        return messageTypeIndicator;
+    }
+    /**
+     * The token of the failed message, which can be sent again with BatchSummary.resubmitTransactions.
+     */
+    public String getTransactionToken() {
+        return transactionToken;
+    }
+    public ApiException getException() {
+        return exception;
+    }
+}
@@ -15,6 +15,7 @@ public class BatchSummary {
     private Integer batchId;
     private Transaction resentBatchClose;
     private LinkedList<Transaction> resentTransactions;
+    private LinkedList<BatchResubmitFailure> resubmitFailures;
     private String responseCode;
     private String sequenceNumber;
     private Integer transactionCount;
@@ -124,6 +125,15 @@ public class BatchSummary {
     public void setResentTransactions(LinkedList<Transaction> resentTransactions) {
         this.resentTransactions = resentTransactions;
     }
+    /**
+     * The data collects and batch close which failed during batch recovery, empty when everything was accepted.
+     */
+    public LinkedList<BatchResubmitFailure> getResubmitFailures() {
+        return resubmitFailures;
+    }
+    public void setResubmitFailures(LinkedList<BatchResubmitFailure> resubmitFailures) {
+        this.resubmitFailures = resubmitFailures;
+    }
     public String getResponseCode() {
         return responseCode;
     }
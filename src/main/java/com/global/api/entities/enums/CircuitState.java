@@ -0,0 +1,7 @@
+package com.global.api.entities.enums;
+
+public enum CircuitState {
+    Closed,
+    Open,
+    HalfOpen
+}
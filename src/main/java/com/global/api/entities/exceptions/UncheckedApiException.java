@@ -0,0 +1,18 @@
+package com.global.api.entities.exceptions;
+
+/**
+ * Carries an ApiException out of APIs that cannot declare checked
+ * exceptions, such as iterators and streams.
+ */
+public class UncheckedApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedApiException(ApiException innerException) {
+        super(innerException.getMessage(), innerException);
+    }
+
+    @Override
+    public synchronized ApiException getCause() {
+        return (ApiException)super.getCause();
+    }
+}
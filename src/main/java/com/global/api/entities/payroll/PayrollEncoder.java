@@ -9,12 +9,14 @@ import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
 import java.security.spec.AlgorithmParameterSpec;
 
 public class PayrollEncoder implements IRequestEncoder {
+    private static final ThreadLocal<Cipher> ciphers = new ThreadLocal<Cipher>();
+
     private String username;
     private String apiKey;
+    private volatile KeyMaterial keyMaterial;
 
     public String getUsername() {
         return username;
@@ -22,6 +24,7 @@ public class PayrollEncoder implements IRequestEncoder {
 
     public void setUsername(String username) {
         this.username = username;
+        keyMaterial = null;
     }
 
     public String getApiKey() {
@@ -30,6 +33,7 @@ public class PayrollEncoder implements IRequestEncoder {
 
     public void setApiKey(String apiKey) {
         this.apiKey = apiKey;
+        keyMaterial = null;
     }
 
     public ValueConverter<String> getEncoder() {
@@ -63,18 +67,7 @@ public class PayrollEncoder implements IRequestEncoder {
             return null;
 
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
-            Key secretKey = factory.generateSecret(pbeKeySpec);
-            byte[] key = new byte[32];
-            byte[] iv = new byte[16];
-            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
-            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
-
-            SecretKeySpec secret = new SecretKeySpec(key, "AES");
-            AlgorithmParameterSpec ivSpec = new IvParameterSpec(iv);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secret, ivSpec);
+            Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
             byte[] results = cipher.doFinal(value.toString().getBytes("UTF-8"));
             return Base64.encodeBase64String(results);
         }
@@ -88,18 +81,7 @@ public class PayrollEncoder implements IRequestEncoder {
             return null;
 
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
-            Key secretKey = factory.generateSecret(pbeKeySpec);
-            byte[] key = new byte[32];
-            byte[] iv = new byte[16];
-            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
-            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
-
-            SecretKeySpec secret = new SecretKeySpec(key, "AES");
-            AlgorithmParameterSpec ivSpec = new IvParameterSpec(iv);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secret, ivSpec);
+            Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
             byte[] decode = Base64.decodeBase64(value.toString());
             byte[] results = cipher.doFinal(decode);
             return new String(results);
@@ -108,4 +90,45 @@ public class PayrollEncoder implements IRequestEncoder {
             return value.toString();
         }
     }
+
+    private Cipher getCipher(int mode) throws Exception {
+        KeyMaterial keyMaterial = getKeyMaterial();
+
+        Cipher cipher = ciphers.get();
+        if(cipher == null) {
+            cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            ciphers.set(cipher);
+        }
+        cipher.init(mode, keyMaterial.key, keyMaterial.iv);
+        return cipher;
+    }
+
+    // the key and iv only depend on the credentials, so they are derived once and kept with the encoder
+    private KeyMaterial getKeyMaterial() throws Exception {
+        KeyMaterial current = keyMaterial;
+        if(current == null) {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
+            byte[] encoded = factory.generateSecret(pbeKeySpec).getEncoded();
+            pbeKeySpec.clearPassword();
+            byte[] key = new byte[32];
+            byte[] iv = new byte[16];
+            System.arraycopy(encoded, 0, key, 0, 32);
+            System.arraycopy(encoded, 32, iv, 0, 16);
+
+            current = new KeyMaterial(new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+            keyMaterial = current;
+        }
+        return current;
+    }
+
+    private static class KeyMaterial {
+        private final SecretKeySpec key;
+        private final AlgorithmParameterSpec iv;
+
+        KeyMaterial(SecretKeySpec key, AlgorithmParameterSpec iv) {
+            this.key = key;
+            this.iv = iv;
+        }
+    }
 }
@@ -2,14 +2,15 @@ package com.global.api.gateways;
 
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.logging.RequestLogger;
 import com.global.api.utils.IOUtils;
-import com.global.api.utils.StringUtils;
 
 import org.apache.http.entity.mime.MultipartEntity;
 
 import javax.net.ssl.HttpsURLConnection;
 import java.io.*;
 import java.net.URL;
+import java.security.GeneralSecurityException;
 import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.Map;
@@ -56,58 +57,103 @@ abstract class Gateway {
     }
     protected GatewayResponse sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams) throws GatewayException {
         HttpsURLConnection conn;
+        long started = System.currentTimeMillis();
+        boolean failed = true;
         try{
-            String queryString = buildQueryString(queryStringParams);
-            conn = (HttpsURLConnection)new URL((serviceUrl + endpoint + queryString).trim()).openConnection();
-            conn.setSSLSocketFactory(new SSLSocketFactoryEx());
-            conn.setConnectTimeout(timeout);
-            conn.setDoInput(true);
-            conn.setRequestMethod(verb);
-            conn.addRequestProperty("Content-Type", String.format("%s; charset=UTF-8", contentType));
-
-            for(String key: headers.keySet()) {
-                conn.addRequestProperty(key, headers.get(key));
-            }
-
-            if(!verb.equals("GET")) {
-                byte[] request = data.getBytes();
+            conn = openRequest(verb, endpoint, data, queryStringParams);
 
-                conn.setDoOutput(true);
-                conn.addRequestProperty("Content-Length", String.valueOf(request.length));
-
-				if (this.enableLogging)
-					System.out.println("Request: " + StringUtils.mask(data));
-                DataOutputStream requestStream = new DataOutputStream(conn.getOutputStream());
-                requestStream.write(request);
-                requestStream.flush();
-                requestStream.close();
-            }
-            else if (this.enableLogging) {
-                    System.out.println("Request: " + endpoint);
-            }
-
-            InputStream responseStream = conn.getInputStream();
-            String rawResponse = IOUtils.readFully(responseStream);
-            responseStream.close();
+            String rawResponse = readResponse(conn);
 			if (this.enableLogging) {
-                System.out.println("Response: " + rawResponse);
+                RequestLogger.getInstance().log("Response: ", rawResponse);
             }
 
             GatewayResponse response = new GatewayResponse();
             response.setStatusCode(conn.getResponseCode());
             response.setRawResponse(rawResponse);
+            failed = false;
             return response;
         }
         catch(Exception exc) {
             throw new GatewayException("Error occurred while communicating with gateway.", exc);
         }
+        finally {
+            HttpConnectionMetrics.getInstance().requestCompleted(System.currentTimeMillis() - started, failed);
+        }
+    }
+    /**
+     * Sends the request and hands back the response body unread so it can be
+     * parsed as it arrives. The caller owns the stream and must close it.
+     */
+    protected InputStream sendRequestStream(String verb, String endpoint, String data) throws GatewayException {
+        long started = System.currentTimeMillis();
+        boolean failed = true;
+        try{
+            HttpsURLConnection conn = openRequest(verb, endpoint, data, null);
+            if(conn.getResponseCode() != 200) {
+                readResponse(conn);
+                throw new GatewayException("Unexpected http status code [" + conn.getResponseCode() + "]");
+            }
+            if (this.enableLogging) {
+                RequestLogger.getInstance().log("Response: ", "<streamed>");
+            }
+
+            InputStream responseStream = conn.getInputStream();
+            failed = false;
+            return responseStream;
+        }
+        catch(GatewayException exc) {
+            throw exc;
+        }
+        catch(Exception exc) {
+            throw new GatewayException("Error occurred while communicating with gateway.", exc);
+        }
+        finally {
+            HttpConnectionMetrics.getInstance().requestCompleted(System.currentTimeMillis() - started, failed);
+        }
+    }
+
+    private HttpsURLConnection openRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams) throws IOException, GeneralSecurityException {
+        String queryString = buildQueryString(queryStringParams);
+        HttpsURLConnection conn = (HttpsURLConnection)new URL((serviceUrl + endpoint + queryString).trim()).openConnection();
+        conn.setSSLSocketFactory(SSLSocketFactoryEx.getSharedInstance());
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setDoInput(true);
+        conn.setRequestMethod(verb);
+        conn.addRequestProperty("Content-Type", String.format("%s; charset=UTF-8", contentType));
+
+        for(String key: headers.keySet()) {
+            conn.addRequestProperty(key, headers.get(key));
+        }
+
+        if(!verb.equals("GET")) {
+            byte[] request = data.getBytes();
+
+            conn.setDoOutput(true);
+            conn.addRequestProperty("Content-Length", String.valueOf(request.length));
+
+            if (this.enableLogging)
+                RequestLogger.getInstance().log("Request: ", data);
+            DataOutputStream requestStream = new DataOutputStream(conn.getOutputStream());
+            requestStream.write(request);
+            requestStream.flush();
+            requestStream.close();
+        }
+        else if (this.enableLogging) {
+                RequestLogger.getInstance().log("Request: ", endpoint);
+        }
+        return conn;
     }
+
     protected GatewayResponse sendRequest(String endpoint, MultipartEntity content) throws GatewayException {
         HttpsURLConnection conn;
+        long started = System.currentTimeMillis();
+        boolean failed = true;
         try{
             conn = (HttpsURLConnection)new URL((serviceUrl + endpoint).trim()).openConnection();
-            conn.setSSLSocketFactory(new SSLSocketFactoryEx());
+            conn.setSSLSocketFactory(SSLSocketFactoryEx.getSharedInstance());
             conn.setConnectTimeout(timeout);
+            conn.setReadTimeout(timeout);
             conn.setDoInput(true);
             conn.setDoOutput(true);
             conn.setRequestMethod("POST");
@@ -116,27 +162,49 @@ abstract class Gateway {
 
             OutputStream out = conn.getOutputStream();
 			if (this.enableLogging) {
-                System.out.println("Request: " + content);
+                RequestLogger.getInstance().log("Request: ", content.toString());
             }
             content.writeTo(out);
             out.flush();
             out.close();
 
-            InputStream responseStream = conn.getInputStream();
-            String rawResponse = IOUtils.readFully(responseStream);
-            responseStream.close();
+            String rawResponse = readResponse(conn);
 			if (this.enableLogging) {
-                System.out.println("Response: " + rawResponse);
+                RequestLogger.getInstance().log("Response: ", rawResponse);
             }
 
             GatewayResponse response = new GatewayResponse();
             response.setStatusCode(conn.getResponseCode());
             response.setRawResponse(rawResponse);
+            failed = false;
             return response;
         }
         catch(Exception exc) {
             throw new GatewayException("Error occurred while communicating with gateway.", exc);
         }
+        finally {
+            HttpConnectionMetrics.getInstance().requestCompleted(System.currentTimeMillis() - started, failed);
+        }
+    }
+
+    // reads the whole body so the connection is returned to the keep-alive cache for reuse
+    private String readResponse(HttpsURLConnection conn) throws IOException {
+        InputStream responseStream;
+        try {
+            responseStream = conn.getInputStream();
+        }
+        catch(IOException exc) {
+            InputStream errorStream = conn.getErrorStream();
+            if(errorStream != null) {
+                IOUtils.readFully(errorStream);
+                errorStream.close();
+            }
+            throw exc;
+        }
+
+        String rawResponse = IOUtils.readFully(responseStream);
+        responseStream.close();
+        return rawResponse;
     }
 
     private String buildQueryString(HashMap<String, String> queryStringParams) throws UnsupportedEncodingException {
@@ -0,0 +1,206 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.CircuitState;
+import com.global.api.entities.enums.Host;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Tracks the health of each processing host. A host that fails too many times in a row is opened and
+ * skipped until the open timeout has passed, at which point it is probed with a keep alive in the
+ * background and closed again once it answers. Only an answer resets the failures, a host which accepts
+ * connections but never responds still opens. Requests are sent to the healthy host with the lower
+ * response time, with a bias towards the primary host; a host passed over for being slow is tried again
+ * once its average is older than the refresh interval, so the preference can change back.
+ */
+public class HostCircuitBreaker {
+    // the secondary host is only preferred once it answers this many times faster than the primary
+    private static final double LATENCY_BIAS = 2.0;
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private final NetworkGateway gateway;
+    private final int failureThreshold;
+    private final int openTimeout;
+    private final Executor probeExecutor;
+    private final HashMap<Host, HostHealth> hosts = new HashMap<Host, HostHealth>();
+    private volatile int latencyRefreshInterval = 60000;
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+    public int getOpenTimeout() {
+        return openTimeout;
+    }
+    public synchronized CircuitState getState(Host host) {
+        return getHealth(host).state;
+    }
+    public int getLatencyRefreshInterval() {
+        return latencyRefreshInterval;
+    }
+    /**
+     * Milliseconds after its last answer before a host passed over for being slow gets traffic again.
+     */
+    public void setLatencyRefreshInterval(int latencyRefreshInterval) {
+        this.latencyRefreshInterval = Math.max(0, latencyRefreshInterval);
+    }
+    /**
+     * Weighted average response time of the host in milliseconds, or -1 when it has not answered yet.
+     */
+    public synchronized double getAverageResponseTime(Host host) {
+        return getHealth(host).averageResponseTime;
+    }
+
+    /**
+     * @param gateway the gateway probing the hosts and raising the state change events
+     * @param failureThreshold consecutive failures before a host is opened
+     * @param openTimeout milliseconds a host stays open before it is probed
+     * @param probeExecutor the executor probes run on
+     */
+    public HostCircuitBreaker(NetworkGateway gateway, int failureThreshold, int openTimeout, Executor probeExecutor) {
+        this.gateway = gateway;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openTimeout = Math.max(0, openTimeout);
+        this.probeExecutor = probeExecutor;
+    }
+
+    /**
+     * Orders the given hosts for the next attempt. Closed hosts come first, fastest first, followed by
+     * the hosts which are open or being probed so they are still tried when nothing else answers.
+     */
+    public List<Host> selectHosts(List<Host> candidates) {
+        ArrayList<Host> available = new ArrayList<Host>();
+        ArrayList<Host> unavailable = new ArrayList<Host>();
+        ArrayList<Host> probes = new ArrayList<Host>();
+        synchronized (this) {
+            for(Host host : candidates) {
+                HostHealth health = getHealth(host);
+                if(health.state.equals(CircuitState.Open) && System.currentTimeMillis() - health.openedAt >= openTimeout) {
+                    health.state = CircuitState.HalfOpen;
+                    probes.add(host);
+                }
+
+                if(health.state.equals(CircuitState.Closed)) {
+                    available.add(host);
+                }
+                else unavailable.add(host);
+            }
+
+            if(available.size() > 1 && isSlower(available.get(0), available.get(1))) {
+                available.add(available.remove(0));
+            }
+        }
+
+        for(Host host : probes) {
+            gateway.circuitStateChanged(host, CircuitState.HalfOpen);
+            startProbe(host);
+        }
+
+        available.addAll(unavailable);
+        return available;
+    }
+
+    public void recordSuccess(Host host) {
+        setState(host, CircuitState.Closed, true);
+    }
+
+    public void recordResponseTime(Host host, long responseTime) {
+        synchronized (this) {
+            HostHealth health = getHealth(host);
+            // an average older than the refresh interval no longer says much, so it starts again
+            if(health.averageResponseTime < 0 || System.currentTimeMillis() - health.lastResponseAt >= latencyRefreshInterval) {
+                health.averageResponseTime = responseTime;
+            }
+            else health.averageResponseTime += LATENCY_WEIGHT * (responseTime - health.averageResponseTime);
+            health.lastResponseAt = System.currentTimeMillis();
+        }
+        recordSuccess(host);
+    }
+
+    public void recordFailure(Host host) {
+        boolean open;
+        synchronized (this) {
+            HostHealth health = getHealth(host);
+            health.failures++;
+            open = health.state.equals(CircuitState.HalfOpen) || health.failures >= failureThreshold;
+        }
+
+        if(open) {
+            setState(host, CircuitState.Open, false);
+        }
+    }
+
+    private void setState(Host host, CircuitState state, boolean resetFailures) {
+        CircuitState previous;
+        synchronized (this) {
+            HostHealth health = getHealth(host);
+            previous = health.state;
+            health.state = state;
+            if(resetFailures) {
+                health.failures = 0;
+            }
+            if(state.equals(CircuitState.Open)) {
+                health.openedAt = System.currentTimeMillis();
+            }
+        }
+
+        if(!previous.equals(state)) {
+            gateway.circuitStateChanged(host, state);
+        }
+    }
+
+    private void startProbe(final Host host) {
+        try {
+            probeExecutor.execute(new Runnable() {
+                public void run() {
+                    boolean healthy = false;
+                    try {
+                        healthy = gateway.probeHost(host);
+                    }
+                    catch(Exception exc) { /* still unhealthy */ }
+
+                    if(healthy) {
+                        recordSuccess(host);
+                    }
+                    else recordFailure(host);
+                }
+            });
+        }
+        catch(RejectedExecutionException exc) {
+            // try again once the next open period has passed
+            setState(host, CircuitState.Open, false);
+        }
+    }
+
+    private boolean isSlower(Host host, Host other) {
+        HostHealth health = getHealth(host);
+        double otherResponseTime = getHealth(other).averageResponseTime;
+        if(health.averageResponseTime < 0 || otherResponseTime < 0) {
+            return false;
+        }
+
+        // a stale average is refreshed by sending the host the next request
+        if(System.currentTimeMillis() - health.lastResponseAt >= latencyRefreshInterval) {
+            return false;
+        }
+        return health.averageResponseTime > otherResponseTime * LATENCY_BIAS;
+    }
+
+    private HostHealth getHealth(Host host) {
+        if(!hosts.containsKey(host)) {
+            hosts.put(host, new HostHealth());
+        }
+        return hosts.get(host);
+    }
+
+    private static class HostHealth {
+        private CircuitState state = CircuitState.Closed;
+        private int failures;
+        private long openedAt;
+        private double averageResponseTime = -1;
+        private long lastResponseAt;
+    }
+}
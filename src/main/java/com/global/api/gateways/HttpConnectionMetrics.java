@@ -0,0 +1,80 @@
+package com.global.api.gateways;
+
+import javax.net.ssl.SSLSessionContext;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the HTTP gateways (Portico, Realex, PayPlan, Payroll, Table Service).
+ *
+ * Connections are kept alive and reused by HttpsURLConnection; the number of idle connections
+ * kept per host is bounded by the standard http.maxConnections system property (default 5).
+ */
+public class HttpConnectionMetrics {
+    private static HttpConnectionMetrics instance;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failedRequestCount = new AtomicLong();
+    private final AtomicLong totalRequestTime = new AtomicLong();
+
+    public static synchronized HttpConnectionMetrics getInstance() {
+        if(instance == null)
+            instance = new HttpConnectionMetrics();
+        return instance;
+    }
+
+    private HttpConnectionMetrics() { }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+    public long getFailedRequestCount() {
+        return failedRequestCount.get();
+    }
+    /**
+     * Number of TLS connections opened by the HTTP gateways.
+     */
+    public long getConnectionCount() {
+        return SSLSocketFactoryEx.getSharedSocketCount();
+    }
+    /**
+     * Number of requests which were sent over an already open connection.
+     */
+    public long getReusedConnectionCount() {
+        return Math.max(0, getRequestCount() - getConnectionCount());
+    }
+    /**
+     * Number of TLS sessions currently cached for resumption.
+     */
+    public int getSessionCacheSize() {
+        try {
+            SSLSessionContext context = SSLSocketFactoryEx.getSharedInstance().getClientSessionContext();
+
+            int count = 0;
+            Enumeration<byte[]> ids = context.getIds();
+            while(ids.hasMoreElements()) {
+                ids.nextElement();
+                count++;
+            }
+            return count;
+        }
+        catch(Exception exc) {
+            return 0;
+        }
+    }
+    /**
+     * Average round trip of a request in milliseconds.
+     */
+    public long getAverageRequestTime() {
+        long count = getRequestCount();
+        return count == 0 ? 0 : totalRequestTime.get() / count;
+    }
+
+    void requestCompleted(long elapsed, boolean failed) {
+        requestCount.incrementAndGet();
+        totalRequestTime.addAndGet(elapsed);
+        if(failed) {
+            failedRequestCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.global.api.gateways;
+
+import com.global.api.builders.TransactionReportBuilder;
+import com.global.api.entities.exceptions.ApiException;
+
+import java.util.Date;
+
+public interface IReportStreamingGateway {
+    ITransactionSummaryReader openTransactionReader(TransactionReportBuilder<?> builder, Date startDate, Date endDate) throws ApiException;
+}
@@ -0,0 +1,10 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+
+public interface ITransactionSummaryReader {
+    /** Returns the next row of the report, or null once the report is exhausted. */
+    TransactionSummary read() throws ApiException;
+    void close();
+}
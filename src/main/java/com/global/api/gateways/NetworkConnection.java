@@ -0,0 +1,199 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.utils.AutoResetEvent;
+import com.global.api.utils.StringUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+
+/**
+ * A long lived connection to a single processing host. Requests are written as they arrive and
+ * responses are routed back to their callers using the origin correlation values (EH.12 and EH.14)
+ * of the message header, so several transactions can be in flight on the same socket.
+ */
+public class NetworkConnection {
+    // offsets of EH.12 and EH.14 in an outbound frame (including the 2 byte length)
+    private static final int REQUEST_CORRELATION_1_OFFSET = 17;
+    private static final int REQUEST_CORRELATION_2_OFFSET = 23;
+    // offsets of EH.12 and EH.14 in an inbound frame (length already removed)
+    private static final int RESPONSE_CORRELATION_1_OFFSET = 15;
+    private static final int RESPONSE_CORRELATION_2_OFFSET = 21;
+
+    private Host host;
+    private Socket client;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private final HashMap<String, PendingResponse> pendingResponses = new HashMap<String, PendingResponse>();
+    private volatile boolean closed = false;
+    private volatile long lastActivity;
+
+    public Host getHost() {
+        return host;
+    }
+    public long getLastActivity() {
+        return lastActivity;
+    }
+    public boolean isClosed() {
+        return closed;
+    }
+    public int getPendingCount() {
+        synchronized (pendingResponses) {
+            return pendingResponses.size();
+        }
+    }
+
+    public NetworkConnection(Host host, Socket client) throws IOException {
+        this.host = host;
+        this.client = client;
+        this.out = new DataOutputStream(client.getOutputStream());
+        this.in = new DataInputStream(client.getInputStream());
+        this.lastActivity = System.currentTimeMillis();
+
+        beginReceiveThread();
+    }
+
+    /**
+     * Writes the message to the host and waits for the response carrying the same origin correlation.
+     *
+     * @return the response (without the length header) or null if none arrived within the timeout
+     * @throws IOException if the message could not be written to the socket
+     */
+    public byte[] send(byte[] buffer, int timeout) throws IOException {
+        if(closed) {
+            throw new IOException("The connection has been closed.");
+        }
+
+        String key = getCorrelationKey(buffer, REQUEST_CORRELATION_1_OFFSET, REQUEST_CORRELATION_2_OFFSET);
+        PendingResponse pending = new PendingResponse();
+        synchronized (pendingResponses) {
+            pendingResponses.put(key, pending);
+        }
+
+        try {
+            synchronized (out) {
+                out.write(buffer);
+                out.flush();
+            }
+            lastActivity = System.currentTimeMillis();
+
+            pending.await.waitOne(timeout);
+            return pending.response;
+        }
+        catch(IOException exc) {
+            close();
+            throw exc;
+        }
+        catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        finally {
+            synchronized (pendingResponses) {
+                pendingResponses.remove(key);
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            if(!client.isClosed()) {
+                client.close();
+            }
+        }
+        catch(IOException exc) {
+            // eat the close exception
+        }
+
+        // release anyone still waiting, they will see a null response
+        synchronized (pendingResponses) {
+            for(PendingResponse pending : pendingResponses.values()) {
+                pending.await.set();
+            }
+        }
+    }
+
+    private void beginReceiveThread() {
+        Thread receiveThread = new Thread() {
+            public void run() {
+                try {
+                    while(!closed) {
+                        int length = in.readUnsignedShort() - 2;
+                        if(length < 0) {
+                            throw new IOException("Invalid message length received from the host.");
+                        }
+
+                        byte[] buffer = new byte[length];
+                        in.readFully(buffer);
+
+                        lastActivity = System.currentTimeMillis();
+                        dispatch(buffer);
+                    }
+                }
+                catch(IOException exc) {
+                    // the socket is no longer usable
+                }
+                finally {
+                    close();
+                }
+            }
+        };
+        receiveThread.setName(String.format("NetworkConnection-%s", host));
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+    }
+
+    private void dispatch(byte[] response) {
+        PendingResponse pending = null;
+        synchronized (pendingResponses) {
+            if(isCorrelated(response)) {
+                String key = getCorrelationKey(response, RESPONSE_CORRELATION_1_OFFSET, RESPONSE_CORRELATION_2_OFFSET);
+                pending = pendingResponses.get(key);
+            }
+            // hosts which do not echo the correlation values can only have one request outstanding
+            else if(pendingResponses.size() == 1) {
+                pending = pendingResponses.values().iterator().next();
+            }
+        }
+
+        // anything unmatched belongs to a request which has already timed out, so it is dropped
+        if(pending != null) {
+            pending.response = response;
+            pending.await.set();
+        }
+    }
+
+    // whether the host echoed the origin correlation (EH.12 and EH.14) of the request
+    private static boolean isCorrelated(byte[] response) {
+        if(response.length < RESPONSE_CORRELATION_2_OFFSET + 8) {
+            return false;
+        }
+        for(int i = 0; i < 2; i++) {
+            if(response[RESPONSE_CORRELATION_1_OFFSET + i] != 0) {
+                return true;
+            }
+        }
+        for(int i = 0; i < 8; i++) {
+            if(response[RESPONSE_CORRELATION_2_OFFSET + i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getCorrelationKey(byte[] buffer, int correlation1Offset, int correlation2Offset) {
+        byte[] key = new byte[10];
+        System.arraycopy(buffer, correlation1Offset, key, 0, 2);
+        System.arraycopy(buffer, correlation2Offset, key, 2, 8);
+        return StringUtils.hexFromBytes(key);
+    }
+
+    private static class PendingResponse {
+        private final AutoResetEvent await = new AutoResetEvent(false);
+        private volatile byte[] response;
+    }
+}
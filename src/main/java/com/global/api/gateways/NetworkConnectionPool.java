@@ -0,0 +1,162 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.entities.exceptions.GatewayComsException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Keeps a small number of warm connections open to each processing host. Connections are shared
+ * between concurrent requests, closed once they have sat idle past the idle timeout and checked
+ * with a keep alive while they are idle.
+ */
+public class NetworkConnectionPool {
+    private NetworkGateway gateway;
+    private int maxConnectionsPerHost;
+    private int idleTimeout;
+    private int keepAliveInterval;
+
+    private final HashMap<Host, LinkedList<NetworkConnection>> connections = new HashMap<Host, LinkedList<NetworkConnection>>();
+    private final HashMap<Host, Integer> pendingConnects = new HashMap<Host, Integer>();
+    private Timer maintenanceTimer;
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+    public int getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+    public synchronized int getConnectionCount(Host host) {
+        return getConnections(host).size();
+    }
+
+    public NetworkConnectionPool(NetworkGateway gateway, int maxConnectionsPerHost, int idleTimeout, int keepAliveInterval) {
+        this.gateway = gateway;
+        this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+        this.idleTimeout = idleTimeout;
+        this.keepAliveInterval = keepAliveInterval;
+
+        if(keepAliveInterval > 0) {
+            maintenanceTimer = new Timer("NetworkConnectionPool", true);
+            maintenanceTimer.schedule(new TimerTask() {
+                public void run() {
+                    maintain();
+                }
+            }, keepAliveInterval, keepAliveInterval);
+        }
+    }
+
+    /**
+     * Returns the least busy connection to the host, opening a new one while the host is under its limit
+     * and every existing connection already has a request in flight.
+     */
+    public NetworkConnection acquire(Host host) throws GatewayComsException {
+        NetworkConnection leastBusy = null;
+        synchronized (this) {
+            LinkedList<NetworkConnection> hostConnections = getConnections(host);
+            for(NetworkConnection connection : new ArrayList<NetworkConnection>(hostConnections)) {
+                if(connection.isClosed()) {
+                    hostConnections.remove(connection);
+                }
+                else if(leastBusy == null || connection.getPendingCount() < leastBusy.getPendingCount()) {
+                    leastBusy = connection;
+                }
+            }
+
+            int connecting = pendingConnects.containsKey(host) ? pendingConnects.get(host) : 0;
+            if(leastBusy != null && (leastBusy.getPendingCount() == 0 || hostConnections.size() + connecting >= maxConnectionsPerHost)) {
+                return leastBusy;
+            }
+            pendingConnects.put(host, connecting + 1);
+        }
+
+        // connect outside the lock so a slow handshake does not hold up requests on warm connections
+        try {
+            NetworkConnection connection = gateway.openConnection(host);
+            synchronized (this) {
+                getConnections(host).add(connection);
+            }
+            return connection;
+        }
+        catch(GatewayComsException exc) {
+            if(leastBusy != null && !leastBusy.isClosed()) {
+                return leastBusy;
+            }
+            throw exc;
+        }
+        finally {
+            synchronized (this) {
+                pendingConnects.put(host, pendingConnects.get(host) - 1);
+            }
+        }
+    }
+
+    public void close() {
+        if(maintenanceTimer != null) {
+            maintenanceTimer.cancel();
+        }
+
+        for(NetworkConnection connection : snapshot()) {
+            gateway.closeConnection(connection);
+        }
+        synchronized (this) {
+            connections.clear();
+        }
+    }
+
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for(NetworkConnection connection : snapshot()) {
+            if(connection.isClosed() || connection.getPendingCount() > 0) {
+                continue;
+            }
+
+            long idle = now - connection.getLastActivity();
+            if(idleTimeout > 0 && idle >= idleTimeout) {
+                evict(connection);
+            }
+            else if(idle >= keepAliveInterval && !gateway.keepAlive(connection)) {
+                evict(connection);
+            }
+        }
+
+        synchronized (this) {
+            for(LinkedList<NetworkConnection> hostConnections : connections.values()) {
+                for(NetworkConnection connection : new ArrayList<NetworkConnection>(hostConnections)) {
+                    if(connection.isClosed()) {
+                        hostConnections.remove(connection);
+                    }
+                }
+            }
+        }
+    }
+
+    private void evict(NetworkConnection connection) {
+        synchronized (this) {
+            getConnections(connection.getHost()).remove(connection);
+        }
+        gateway.closeConnection(connection);
+    }
+
+    private synchronized ArrayList<NetworkConnection> snapshot() {
+        ArrayList<NetworkConnection> rvalue = new ArrayList<NetworkConnection>();
+        for(LinkedList<NetworkConnection> hostConnections : connections.values()) {
+            rvalue.addAll(hostConnections);
+        }
+        return rvalue;
+    }
+
+    private LinkedList<NetworkConnection> getConnections(Host host) {
+        if(!connections.containsKey(host)) {
+            connections.put(host, new LinkedList<NetworkConnection>());
+        }
+        return connections.get(host);
+    }
+}
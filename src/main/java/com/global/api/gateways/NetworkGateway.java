@@ -1,5 +1,6 @@
 package com.global.api.gateways;
 
+import com.global.api.entities.enums.CircuitState;
 import com.global.api.entities.enums.Host;
 import com.global.api.entities.enums.HostError;
 import com.global.api.entities.exceptions.ApiException;
@@ -7,7 +8,14 @@ import com.global.api.entities.exceptions.GatewayComsException;
 import com.global.api.entities.exceptions.GatewayException;
 import com.global.api.entities.exceptions.GatewayTimeoutException;
 import com.global.api.gateways.events.*;
+import com.global.api.gateways.metrics.GatewayMetrics;
+import com.global.api.gateways.metrics.GatewayMetricsRegistry;
+import com.global.api.gateways.trace.INetworkTraceFormatter;
+import com.global.api.gateways.trace.NetworkTrace;
+import com.global.api.gateways.trace.NetworkTraceEntry;
+import com.global.api.gateways.trace.TraceOutcome;
 import com.global.api.terminals.abstractions.IDeviceMessage;
+import com.global.api.utils.AsyncExecutor;
 import com.global.api.utils.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -15,15 +23,21 @@ import org.joda.time.DateTimeZone;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
-import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NetworkGateway {
-    private SSLSocket client;
+    // the non-persistent connection is shared by the gateway, so only one exchange uses it at a time
+    private final Object clientLock = new Object();
+    private Socket client;
     private DataOutputStream out;
     private InputStream in;
     private int connectionFaults = 0;
@@ -33,14 +47,41 @@ public class NetworkGateway {
     private String secondaryEndpoint;
     private Integer secondaryPort;
 
-    protected Host currentHost;
+    // each exchange keeps its own host so concurrent sends report where they actually went
+    private final ThreadLocal<Host> currentHost = new ThreadLocal<Host>();
 
     private boolean enableLogging = false;
     private HashMap<Host, ArrayList<HostError>> simulatedHostErrors;
     private int timeout;
+    private int connectTimeout = 5000;
+    private int circuitBreakerThreshold = 3;
+    private int circuitBreakerTimeout = 30000;
+    private HostCircuitBreaker circuitBreaker;
 
     private String connectorName = "NetworkGateway";
     private IGatewayEventHandler gatewayEventHandler;
+    private int eventQueueCapacity = GatewayEventDispatcher.DEFAULT_CAPACITY;
+    private EventOverflowPolicy eventOverflowPolicy = EventOverflowPolicy.DropOldest;
+    private Executor eventExecutor;
+    private GatewayEventDispatcher eventDispatcher;
+
+    private static final AtomicLong metricsSequence = new AtomicLong();
+    private static SSLSocketFactory socketFactory;
+    private String metricsName;
+    private GatewayMetrics metrics;
+    private final ThreadLocal<Long> lastResponseTime = new ThreadLocal<Long>();
+    private final ThreadLocal<Long> lastConnectTime = new ThreadLocal<Long>();
+
+    private int traceCapacity = 0;
+    private NetworkTrace trace;
+    private final ThreadLocal<NetworkTraceEntry> lastTrace = new ThreadLocal<NetworkTraceEntry>();
+
+    private boolean persistentConnection = false;
+    private int maxConnectionsPerHost = 2;
+    private int connectionIdleTimeout = 300000;
+    private int keepAliveInterval = 60000;
+    private NetworkConnectionPool connectionPool;
+    private final AtomicLong originCorrelation = new AtomicLong();
 
     public String getPrimaryEndpoint() {
         return primaryEndpoint;
@@ -72,13 +113,170 @@ public class NetworkGateway {
     public void setTimeout(int timeout) {
         this.timeout = timeout;
     }
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+    public synchronized void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+        this.circuitBreaker = null;
+    }
+    public int getCircuitBreakerTimeout() {
+        return circuitBreakerTimeout;
+    }
+    public synchronized void setCircuitBreakerTimeout(int circuitBreakerTimeout) {
+        this.circuitBreakerTimeout = circuitBreakerTimeout;
+        this.circuitBreaker = null;
+    }
+    public synchronized HostCircuitBreaker getCircuitBreaker() {
+        if(circuitBreaker == null) {
+            circuitBreaker = new HostCircuitBreaker(this, circuitBreakerThreshold, circuitBreakerTimeout, AsyncExecutor.getDefaultExecutor());
+        }
+        return circuitBreaker;
+    }
     boolean isEnableLogging() {
         return enableLogging;
     }
     public void setEnableLogging(boolean enableLogging) {
         this.enableLogging = enableLogging;
     }
-    public void setGatewayEventHandler(IGatewayEventHandler eventHandler) { this.gatewayEventHandler = eventHandler; }
+    public synchronized void setGatewayEventHandler(IGatewayEventHandler eventHandler) {
+        this.gatewayEventHandler = eventHandler;
+        this.eventDispatcher = null;
+    }
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+    public synchronized void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+        this.eventDispatcher = null;
+    }
+    public EventOverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+    public synchronized void setEventOverflowPolicy(EventOverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+        this.eventDispatcher = null;
+    }
+    public Executor getEventExecutor() {
+        return eventExecutor;
+    }
+    public synchronized void setEventExecutor(Executor eventExecutor) {
+        this.eventExecutor = eventExecutor;
+        this.eventDispatcher = null;
+    }
+    public boolean isPersistentConnection() {
+        return persistentConnection;
+    }
+    public void setPersistentConnection(boolean persistentConnection) {
+        this.persistentConnection = persistentConnection;
+    }
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+    public int getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+    public void setConnectionIdleTimeout(int connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+    public int getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+    public void setKeepAliveInterval(int keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+    public String getMetricsName() {
+        return metricsName;
+    }
+    public synchronized void setMetricsName(String metricsName) {
+        releaseMetrics();
+        this.metricsName = metricsName;
+    }
+    /**
+     * Latency and throughput figures for this gateway, also published over JMX by GatewayMetricsRegistry.
+     */
+    public synchronized GatewayMetrics getMetrics() {
+        if(metrics == null) {
+            if(StringUtils.isNullOrEmpty(metricsName)) {
+                metricsName = String.format("%s-%s", connectorName, metricsSequence.incrementAndGet());
+            }
+            metrics = GatewayMetricsRegistry.getInstance().getMetrics(metricsName);
+        }
+        return metrics;
+    }
+    /**
+     * Milliseconds the host took to answer the last message sent on the calling thread, or null if it did not answer.
+     */
+    protected Long getLastResponseTime() {
+        return lastResponseTime.get();
+    }
+    /**
+     * Milliseconds spent connecting for the last message sent on the calling thread, 0 when an open connection was reused.
+     */
+    protected Long getLastConnectTime() {
+        return lastConnectTime.get();
+    }
+    /**
+     * The host the last message sent on the calling thread went to, or null if no host could be reached.
+     */
+    protected Host getCurrentHost() {
+        return currentHost.get();
+    }
+    /**
+     * Sets the host the calling thread's exchange is going to, for subclasses that connect on their own.
+     */
+    protected void setCurrentHost(Host host) {
+        currentHost.set(host);
+    }
+    public int getTraceCapacity() {
+        return traceCapacity;
+    }
+    /**
+     * Number of recent exchanges kept by the trace, 0 (the default) turns tracing off. NetworkTrace.DEFAULT_CAPACITY
+     * is a reasonable size when it is wanted.
+     */
+    public synchronized void setTraceCapacity(int traceCapacity) {
+        this.traceCapacity = traceCapacity;
+        this.trace = null;
+    }
+    /**
+     * The most recent exchanges with the host, with the raw buffers and timings, or null when tracing is off.
+     */
+    public synchronized NetworkTrace getTrace() {
+        if(trace == null && traceCapacity > 0) {
+            trace = new NetworkTrace(traceCapacity, getTraceFormatter());
+        }
+        return trace;
+    }
+    /**
+     * The trace of the last message sent on the calling thread, or null if tracing is off.
+     */
+    protected NetworkTraceEntry getLastTrace() {
+        return lastTrace.get();
+    }
+    /**
+     * Renders traced buffers. Connectors which understand their message format should break the messages
+     * down with the card data masked; by default only the sizes are shown.
+     */
+    protected INetworkTraceFormatter getTraceFormatter() {
+        return new INetworkTraceFormatter() {
+            public String formatRequest(byte[] buffer) {
+                return String.format("%s bytes", buffer.length);
+            }
+            public String formatResponse(byte[] buffer) {
+                return String.format("%s bytes", buffer.length);
+            }
+        };
+    }
     public HashMap<Host, ArrayList<HostError>> getSimulatedHostErrors() {
         return simulatedHostErrors;
     }
@@ -87,82 +285,330 @@ public class NetworkGateway {
         this.simulatedHostErrors = simulatedHostErrors;
     }
     private boolean isForcedError(HostError error) {
-        if(simulatedHostErrors != null && simulatedHostErrors.containsKey(currentHost)) {
-            return simulatedHostErrors.get(currentHost).contains(error);
+        if(simulatedHostErrors != null && simulatedHostErrors.containsKey(currentHost.get())) {
+            return simulatedHostErrors.get(currentHost.get()).contains(error);
         }
         return false;
     }
 
-    // establish connection
-    private void connect(String endpoint, Integer port) throws GatewayComsException {
-        currentHost = endpoint.equals(primaryEndpoint) ? Host.Primary : Host.Secondary;
+    // establish connection, trying the healthiest host first
+    private void connect(Host preferred) throws GatewayComsException {
+        if(client != null && out != null && in != null && client.isConnected()) {
+            return;
+        }
+        if(client != null) {
+            disconnect();
+        }
+
+        List<Host> hosts = getHostOrder(preferred);
+        if(hosts.isEmpty()) {
+            throw new GatewayComsException(new IOException("No processing endpoints have been configured."));
+        }
+
+        // every host once, then another try on the hosts which are still healthy
+        connectionFaults = 0;
+        for(int pass = 0; pass < 2; pass++) {
+            for(Host host : hosts) {
+                if(pass > 0 && !getCircuitBreaker().getState(host).equals(CircuitState.Closed)) {
+                    continue;
+                }
+                if(connectTo(host)) {
+                    return;
+                }
+                connectionFaults++;
+            }
+        }
+        throw new GatewayComsException(new IOException("Failed to connect to primary or secondary processing endpoints."));
+    }
+
+    private boolean connectTo(Host host) {
+        currentHost.set(host);
+        String endpoint = getEndpoint(host);
+        Integer port = getPort(host);
 
         // create the connection event
         ConnectionEvent connectionEvent = new ConnectionEvent(connectorName);
         connectionEvent.setEndpoint(endpoint);
-        connectionEvent.setPort(port.toString());
-        connectionEvent.setHost(currentHost.getValue());
+        connectionEvent.setPort(String.valueOf(port));
+        connectionEvent.setHost(host.getValue());
         connectionEvent.setConnectionAttempts(connectionFaults);
-        raiseGatewayEvent(connectionEvent);
 
+        // connection started
         DateTime connectionStarted = DateTime.now(DateTimeZone.UTC);
-        if(client == null || out == null || in == null || !client.isConnected()) {
-            if(client != null) {
-                disconnect();
+        connectionEvent.setConnectionStarted(connectionStarted);
+        raiseGatewayEvent(connectionEvent);
+
+        client = openSocket(endpoint, port);
+        try {
+            if(client != null && client.isConnected()) {
+                out = new DataOutputStream(client.getOutputStream());
+                in = client.getInputStream();
+                client.setKeepAlive(true);
+
+                // connection completed
+                DateTime connectionCompleted = DateTime.now(DateTimeZone.UTC);
+                lastConnectTime.set(connectionCompleted.getMillis() - connectionStarted.getMillis());
+                raiseGatewayEvent(new ConnectionCompleteEvent(connectorName, connectionStarted, connectionCompleted));
+                return true;
             }
+        }
+        catch(IOException exc) {
+            disconnect();
+        }
 
-            try {
-                // connection started
-                connectionEvent.setConnectionStarted(connectionStarted);
-
-                // check for simulated connection error
-                if(!isForcedError(HostError.Connection)) {
-                    try {
-                        SSLSocketFactory factory = new SSLSocketFactoryEx();
-                        client = (SSLSocket) factory.createSocket();
-                        client.connect(new InetSocketAddress(endpoint, port), 5000);
-                        client.startHandshake();
-
-                        raiseGatewayEvent(new SslHandshakeEvent(connectorName, null));
-                    }
-                    catch(Exception exc) {
-                        raiseGatewayEvent(new SslHandshakeEvent(connectorName, exc));
-                        if(client != null && client.isConnected()) {
-                            disconnect();
-                        }
-                    }
-                }
+        // connection fail over
+        raiseGatewayEvent(new FailOverEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
+        getCircuitBreaker().recordFailure(host);
+        return false;
+    }
+
+    private List<Host> getHostOrder(Host preferred) {
+        ArrayList<Host> candidates = new ArrayList<Host>();
+        if(!StringUtils.isNullOrEmpty(primaryEndpoint)) {
+            candidates.add(Host.Primary);
+        }
+        if(!StringUtils.isNullOrEmpty(secondaryEndpoint)) {
+            candidates.add(Host.Secondary);
+        }
+
+        List<Host> rvalue = getCircuitBreaker().selectHosts(candidates);
+        if(preferred != null && rvalue.remove(preferred)) {
+            rvalue.add(0, preferred);
+        }
+        return rvalue;
+    }
+
+    private Host getAlternateHost(Host host) {
+        Host alternate = host.equals(Host.Primary) ? Host.Secondary : Host.Primary;
+        return StringUtils.isNullOrEmpty(getEndpoint(alternate)) ? null : alternate;
+    }
+
+    private String getEndpoint(Host host) {
+        return host.equals(Host.Primary) ? primaryEndpoint : secondaryEndpoint;
+    }
+
+    private Integer getPort(Host host) {
+        return host.equals(Host.Primary) ? primaryPort : secondaryPort;
+    }
+
+    private Socket openSocket(String endpoint, Integer port) {
+        // check for simulated connection error
+        if(isForcedError(HostError.Connection)) {
+            return null;
+        }
+
+        Socket socket = null;
+        try {
+            socket = createSocket();
+            socket.connect(new InetSocketAddress(endpoint, port), connectTimeout);
 
-                if(client != null && client.isConnected()) {
-                    // connection completed
-                    raiseGatewayEvent(new ConnectionCompleteEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
+            if(socket instanceof SSLSocket) {
+                long handshakeStarted = System.currentTimeMillis();
+                ((SSLSocket)socket).startHandshake();
 
-                    out = new DataOutputStream(client.getOutputStream());
-                    in = client.getInputStream();
-                    client.setKeepAlive(true);
-                    connectionFaults = 0;
+                raiseGatewayEvent(new SslHandshakeEvent(connectorName, null, System.currentTimeMillis() - handshakeStarted));
+            }
+            return socket;
+        }
+        catch(Exception exc) {
+            raiseGatewayEvent(new SslHandshakeEvent(connectorName, exc));
+            if(socket != null) {
+                try {
+                    socket.close();
                 }
-                else {
-                    // connection fail over
-                    raiseGatewayEvent(new FailOverEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
-
-                    if(connectionFaults++ != 3) {
-                        if(endpoint.equals(primaryEndpoint) && secondaryEndpoint != null) {
-                            connect(secondaryEndpoint, secondaryPort);
-                        }
-                        else {
-                            connect(primaryEndpoint, primaryPort);
-                        }
-                    }
-                    else {
-                        throw new IOException("Failed to connect to primary or secondary processing endpoints.");
-                    }
+                catch(IOException e) {
+                    // eat the close exception
                 }
             }
-            catch(Exception exc) {
-                throw new GatewayComsException(exc);
+            return null;
+        }
+    }
+
+    /**
+     * The unconnected socket used to reach a host, a TLS socket from the shared factory unless overridden.
+     */
+    protected Socket createSocket() throws IOException, GeneralSecurityException {
+        return getSocketFactory().createSocket();
+    }
+
+    // shared by the network gateways, apart from the HTTP one so these sockets are not counted as HTTP connections
+    private static synchronized SSLSocketFactory getSocketFactory() throws GeneralSecurityException {
+        if(socketFactory == null) {
+            socketFactory = new SSLSocketFactoryEx();
+        }
+        return socketFactory;
+    }
+
+    // establish a pooled connection
+    NetworkConnection openConnection(Host host) throws GatewayComsException {
+        String endpoint = getEndpoint(host);
+        Integer port = getPort(host);
+        if(StringUtils.isNullOrEmpty(endpoint)) {
+            throw new GatewayComsException(new IOException(String.format("No %s endpoint has been configured.", host.getValue())));
+        }
+        currentHost.set(host);
+
+        DateTime connectionStarted = DateTime.now(DateTimeZone.UTC);
+        ConnectionEvent connectionEvent = new ConnectionEvent(connectorName);
+        connectionEvent.setEndpoint(endpoint);
+        connectionEvent.setPort(port.toString());
+        connectionEvent.setHost(host.getValue());
+        connectionEvent.setConnectionStarted(connectionStarted);
+        raiseGatewayEvent(connectionEvent);
+
+        Socket socket = openSocket(endpoint, port);
+        if(socket == null) {
+            raiseGatewayEvent(new FailOverEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
+            getCircuitBreaker().recordFailure(host);
+            throw new GatewayComsException(new IOException(String.format("Failed to connect to the %s processing endpoint.", host.getValue())));
+        }
+
+        try {
+            socket.setKeepAlive(true);
+            NetworkConnection connection = new NetworkConnection(host, socket);
+            DateTime connectionCompleted = DateTime.now(DateTimeZone.UTC);
+            lastConnectTime.set(connectionCompleted.getMillis() - connectionStarted.getMillis());
+            raiseGatewayEvent(new ConnectionCompleteEvent(connectorName, connectionStarted, connectionCompleted));
+            return connection;
+        }
+        catch(IOException exc) {
+            throw new GatewayComsException(exc);
+        }
+    }
+
+    /**
+     * Opens a connection for the caller's own use, trying the healthiest host first. Messages sent over it
+     * share the socket, so several can be in flight at once; the caller closes it with closeConnection.
+     */
+    protected NetworkConnection openDedicatedConnection() throws GatewayComsException {
+        GatewayComsException lastError = null;
+        for(Host host : getHostOrder(null)) {
+            try {
+                return openConnection(host);
             }
+            catch(GatewayComsException exc) {
+                lastError = exc;
+            }
+        }
+
+        if(lastError == null) {
+            lastError = new GatewayComsException(new IOException("No processing endpoints have been configured."));
         }
+        throw lastError;
+    }
+
+    // close a pooled connection
+    void closeConnection(NetworkConnection connection) {
+        connection.close();
+        raiseGatewayEvent(new DisconnectEvent(connectorName));
+    }
+
+    /**
+     * Health check for an idle pooled connection. Connectors which support a keep alive message should
+     * send it over the given connection and report whether the host answered.
+     */
+    protected boolean keepAlive(NetworkConnection connection) {
+        return !connection.isClosed();
+    }
+
+    /**
+     * Checks an open host with a keep alive on a fresh connection so it can be closed again without
+     * risking a live transaction.
+     */
+    boolean probeHost(Host host) {
+        String endpoint = getEndpoint(host);
+        if(StringUtils.isNullOrEmpty(endpoint)) {
+            return false;
+        }
+
+        Socket socket = openSocket(endpoint, getPort(host));
+        if(socket == null) {
+            return false;
+        }
+
+        NetworkConnection connection;
+        try {
+            connection = new NetworkConnection(host, socket);
+        }
+        catch(IOException exc) {
+            try {
+                socket.close();
+            }
+            catch(IOException e) {
+                // eat the close exception
+            }
+            return false;
+        }
+
+        try {
+            return keepAlive(connection);
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    void circuitStateChanged(Host host, CircuitState state) {
+        raiseGatewayEvent(new FailOverEvent(connectorName, host, state));
+    }
+
+    /**
+     * Returns the next origin correlation value used to route responses back on a shared connection.
+     */
+    protected byte[] nextOriginCorrelation() {
+        long value = originCorrelation.incrementAndGet();
+
+        byte[] rvalue = new byte[8];
+        for(int i = 7; i >= 0; i--) {
+            rvalue[i] = (byte)(value & 0xFF);
+            value >>= 8;
+        }
+        return rvalue;
+    }
+
+    /**
+     * Closes any pooled connections held by this gateway.
+     */
+    public void close() {
+        synchronized (this) {
+            if(connectionPool != null) {
+                connectionPool.close();
+                connectionPool = null;
+            }
+            releaseMetrics();
+        }
+    }
+
+    // unpublishes the metrics unless another connector is still using the name
+    private synchronized void releaseMetrics() {
+        if(metrics != null) {
+            GatewayMetricsRegistry.getInstance().release(metricsName);
+            metrics = null;
+        }
+    }
+
+    private synchronized NetworkConnectionPool getConnectionPool() {
+        if(connectionPool == null) {
+            connectionPool = new NetworkConnectionPool(this, maxConnectionsPerHost, connectionIdleTimeout, keepAliveInterval);
+        }
+        return connectionPool;
+    }
+
+    private NetworkConnection acquireConnection(Host preferred) throws GatewayComsException {
+        GatewayComsException lastError = null;
+        for(Host host : getHostOrder(preferred)) {
+            try {
+                return getConnectionPool().acquire(host);
+            }
+            catch(GatewayComsException exc) {
+                lastError = exc;
+            }
+        }
+
+        if(lastError == null) {
+            lastError = new GatewayComsException(new IOException("No processing endpoints have been configured."));
+        }
+        throw lastError;
     }
 
     // close connection
@@ -193,10 +639,92 @@ public class NetworkGateway {
         5) if connection to secondary host is successful, return to step 2
         6) if no response from the secondary host, GatewayTimeoutException is thrown
          */
-        boolean timeout = false;
-        connect(getPrimaryEndpoint(), getPrimaryPort());
+        lastResponseTime.remove();
+        lastConnectTime.set(0L);
+        lastTrace.remove();
+        currentHost.remove();
 
         byte[] buffer = message.getSendBuffer();
+        long requestSent = System.currentTimeMillis();
+        byte[] rvalue = null;
+        TraceOutcome outcome = TraceOutcome.ComsFailure;
+        try {
+            if(persistentConnection) {
+                rvalue = sendPooled(buffer);
+            }
+            else {
+                synchronized (clientLock) {
+                    rvalue = sendDirect(buffer);
+                }
+            }
+            outcome = TraceOutcome.Response;
+            return rvalue;
+        }
+        catch(GatewayTimeoutException exc) {
+            outcome = TraceOutcome.Timeout;
+            throw exc;
+        }
+        finally {
+            recordTrace(requestSent, currentHost.get(), buffer, rvalue, outcome);
+        }
+    }
+
+    /**
+     * Sends the message over a connection opened with openDedicatedConnection rather than one the gateway
+     * manages. There is no fail over; a message the host does not answer in time raises a GatewayTimeoutException.
+     */
+    byte[] send(IDeviceMessage message, NetworkConnection connection) throws GatewayTimeoutException, GatewayComsException {
+        lastResponseTime.remove();
+        lastConnectTime.set(0L);
+        lastTrace.remove();
+        currentHost.set(connection.getHost());
+
+        byte[] buffer = message.getSendBuffer();
+        long requestSent = System.currentTimeMillis();
+        byte[] rvalue = null;
+        TraceOutcome outcome = TraceOutcome.ComsFailure;
+        try {
+            raiseGatewayEvent(new RequestSentEvent(connectorName));
+            DateTime sent = DateTime.now(DateTimeZone.UTC);
+            try {
+                rvalue = connection.send(buffer, getTimeout());
+            }
+            catch(IOException exc) {
+                getCircuitBreaker().recordFailure(connection.getHost());
+                throw new GatewayComsException(exc);
+            }
+
+            if(rvalue == null) {
+                outcome = TraceOutcome.Timeout;
+                getCircuitBreaker().recordFailure(connection.getHost());
+                raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.Timeout));
+                throw new GatewayTimeoutException();
+            }
+
+            ResponseReceivedEvent responseEvent = new ResponseReceivedEvent(connectorName, sent);
+            lastResponseTime.set(responseEvent.getResponseTime());
+            getCircuitBreaker().recordResponseTime(connection.getHost(), responseEvent.getResponseTime());
+            raiseGatewayEvent(responseEvent);
+            outcome = TraceOutcome.Response;
+            return rvalue;
+        }
+        finally {
+            recordTrace(requestSent, connection.getHost(), buffer, rvalue, outcome);
+        }
+    }
+
+    // keep the buffers as they are, they are only parsed if the trace is read
+    private void recordTrace(long requestSent, Host host, byte[] requestBuffer, byte[] responseBuffer, TraceOutcome outcome) {
+        NetworkTrace trace = getTrace();
+        if(trace != null) {
+            lastTrace.set(trace.record(requestSent, host, requestBuffer, responseBuffer, lastResponseTime.get(), lastConnectTime.get(), outcome));
+        }
+    }
+
+    private byte[] sendDirect(byte[] buffer) throws GatewayTimeoutException, GatewayComsException {
+        boolean timeout = false;
+        connect(null);
+
         try {
             for(int i = 0; i < 2; i++) {
                 raiseGatewayEvent(new RequestSentEvent(connectorName));
@@ -209,7 +737,10 @@ public class NetworkGateway {
 
                     byte[] rvalue = getGatewayResponse();
                     if (rvalue != null && !isForcedError(HostError.Timeout)) {
-                        raiseGatewayEvent(new ResponseReceivedEvent(connectorName, requestSent));
+                        ResponseReceivedEvent responseEvent = new ResponseReceivedEvent(connectorName, requestSent);
+                        lastResponseTime.set(responseEvent.getResponseTime());
+                        getCircuitBreaker().recordResponseTime(currentHost.get(), responseEvent.getResponseTime());
+                        raiseGatewayEvent(responseEvent);
                         return rvalue;
                     }
                     timeout = true;
@@ -217,13 +748,15 @@ public class NetworkGateway {
                 catch(IOException exc) {
                     /* Exception occurred on message send, do not trip timeout */
                 }
+                getCircuitBreaker().recordFailure(currentHost.get());
 
                 // did not get a response, switch endpoints and try again
-                if(!currentHost.equals(Host.Secondary) && !StringUtils.isNullOrEmpty(secondaryEndpoint) && i < 1) {
+                Host alternate = getAlternateHost(currentHost.get());
+                if(alternate != null && i < 1) {
                     raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.TimeoutFailOver));
 
                     disconnect();
-                    connect(getSecondaryEndpoint(), getSecondaryPort());
+                    connect(alternate);
                 }
             }
 
@@ -250,61 +783,124 @@ public class NetworkGateway {
         }
     }
 
-    private byte[] getGatewayResponse() throws IOException, GatewayTimeoutException {
-        byte[] buffer = new byte[2048];
+    private byte[] sendPooled(byte[] buffer) throws GatewayTimeoutException, GatewayComsException {
+        boolean timeout = false;
+        try {
+            NetworkConnection connection = acquireConnection(null);
+            for(int i = 0; i < 2; i++) {
+                currentHost.set(connection.getHost());
+                raiseGatewayEvent(new RequestSentEvent(connectorName));
+                DateTime requestSent = DateTime.now(DateTimeZone.UTC);
+                try {
+                    if(isForcedError(HostError.SendFailure)) {
+                        throw new IOException("Simulated IO Exception on request send.");
+                    }
+
+                    byte[] rvalue = connection.send(buffer, getTimeout());
+                    if (rvalue != null && !isForcedError(HostError.Timeout)) {
+                        ResponseReceivedEvent responseEvent = new ResponseReceivedEvent(connectorName, requestSent);
+                        lastResponseTime.set(responseEvent.getResponseTime());
+                        getCircuitBreaker().recordResponseTime(currentHost.get(), responseEvent.getResponseTime());
+                        raiseGatewayEvent(responseEvent);
+                        return rvalue;
+                    }
+                    timeout = true;
+                }
+                catch(IOException exc) {
+                    /* Exception occurred on message send, do not trip timeout */
+                }
+                getCircuitBreaker().recordFailure(currentHost.get());
 
-        int bytesReceived = awaitResponse(in, buffer);
+                // did not get a response, switch endpoints and try again
+                Host alternate = getAlternateHost(currentHost.get());
+                if(alternate != null && i < 1) {
+                    raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.TimeoutFailOver));
+                    connection = getConnectionPool().acquire(alternate);
+                }
+            }
 
-        if(bytesReceived > 0) {
-            byte[] rec_buffer = new byte[bytesReceived];
-            System.arraycopy(buffer, 0, rec_buffer, 0, bytesReceived);
-            return rec_buffer;
+            raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.Timeout));
+            if(timeout) {
+                throw new GatewayTimeoutException();
+            }
+            else throw new GatewayComsException();
+        }
+        catch(GatewayComsException exc) {
+            if(timeout) {
+                throw new GatewayTimeoutException(exc);
+            }
+            throw exc;
+        }
+        finally {
+            // remove simulated errors
+            if(simulatedHostErrors != null) {
+                simulatedHostErrors = null;
+            }
         }
-
-        return null;
     }
 
-    private int awaitResponse(InputStream in, byte[] buffer) throws GatewayTimeoutException, IOException {
-        long t = System.currentTimeMillis();
+    // the response frame, or null if it has not fully arrived by the time the timeout runs out
+    private byte[] getGatewayResponse() throws IOException {
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        try {
+            // 2 byte length header, which includes itself
+            byte[] lengthBuffer = new byte[2];
+            if(!readFully(lengthBuffer, deadline)) {
+                return null;
+            }
 
-        int position = 0;
-        Integer messageLength = null;
-        do {
-            if(messageLength == null) {
-                byte[] lengthBuffer = new byte[2];
-                int length = in.read(lengthBuffer, 0, 2);
-                if(length == 2) {
-                    messageLength = new BigInteger(lengthBuffer).intValue() - 2;
-                }
+            int messageLength = (((lengthBuffer[0] & 0xFF) << 8) | (lengthBuffer[1] & 0xFF)) - 2;
+            if(messageLength <= 0) {
+                throw new IOException("Invalid message length received from the host.");
             }
 
-            if(messageLength != null) {
-                int currLength = in.read(buffer, position, messageLength);
-                if (currLength == messageLength) {
-                    return messageLength;
-                }
-                else {
-                    position += currLength;
-                }
+            byte[] buffer = new byte[messageLength];
+            return readFully(buffer, deadline) ? buffer : null;
+        }
+        finally {
+            if(!client.isClosed()) {
+                client.setSoTimeout(0);
             }
+        }
+    }
+
+    // blocks until the buffer is full, waking as soon as data arrives rather than polling; false if the deadline passes first
+    private boolean readFully(byte[] buffer, long deadline) throws IOException {
+        int position = 0;
+        while(position < buffer.length) {
+            long remaining = deadline - System.currentTimeMillis();
+            if(remaining <= 0) {
+                return false;
+            }
+            client.setSoTimeout((int)Math.min(remaining, Integer.MAX_VALUE));
 
             try {
-                Thread.sleep(50);
+                int bytesReceived = in.read(buffer, position, buffer.length - position);
+                if(bytesReceived < 0) {
+                    throw new IOException("The connection was closed by the host.");
+                }
+                position += bytesReceived;
+            }
+            catch(SocketTimeoutException exc) {
+                return false;
             }
-            catch(InterruptedException e) { break; }
         }
-        while((System.currentTimeMillis() - t) <= 20000);
+        return true;
+    }
 
-        throw new GatewayTimeoutException();
+    private void raiseGatewayEvent(IGatewayEvent event) {
+        getMetrics().eventRaised(event);
+
+        GatewayEventDispatcher dispatcher = getEventDispatcher();
+        if(dispatcher != null) {
+            dispatcher.dispatch(event);
+        }
     }
 
-    private void raiseGatewayEvent(final IGatewayEvent event) {
-        if(gatewayEventHandler != null) {
-            new Thread(new Runnable() {
-                public void run() {
-                    gatewayEventHandler.eventRaised(event);
-                }
-            }).start();
+    private synchronized GatewayEventDispatcher getEventDispatcher() {
+        if(eventDispatcher == null && gatewayEventHandler != null) {
+            eventDispatcher = new GatewayEventDispatcher(gatewayEventHandler, eventQueueCapacity, eventOverflowPolicy, eventExecutor);
         }
+        return eventDispatcher;
     }
 }
@@ -12,6 +12,7 @@ import com.global.api.entities.reporting.CheckData;
 import com.global.api.network.NetworkMessageHeader;
 import com.global.api.paymentMethods.*;
 import com.global.api.utils.Element;
+import com.global.api.utils.ElementReader;
 import com.global.api.utils.ElementTree;
 import com.global.api.utils.EnumUtils;
 import com.global.api.utils.ReverseStringEnumMap;
@@ -25,7 +26,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Map;
 
-public class PorticoConnector extends XmlGateway implements IPaymentGateway {
+public class PorticoConnector extends XmlGateway implements IPaymentGateway, IReportStreamingGateway {
     private int siteId;
     private int licenseId;
     private int deviceId;
@@ -529,17 +530,80 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
     public <TResult> TResult processReport(ReportBuilder<TResult> builder, Class<TResult> clazz) throws ApiException {
         ElementTree et = new ElementTree();
 
+        Element transaction;
+        if(builder instanceof TransactionReportBuilder) {
+            TransactionReportBuilder<TResult> trb = (TransactionReportBuilder<TResult>)builder;
+            transaction = buildReportTransaction(et, builder, trb.getStartDate(), trb.getEndDate());
+        }
+        else transaction = buildReportTransaction(et, builder, null, null);
+
+        String response = doTransaction(buildEnvelope(et, transaction));
+        return mapReportResponse(response, builder.getReportType(), clazz);
+    }
+
+    /**
+     * Sends a FindTransactions or Activity request for the given window and
+     * reads the rows back one at a time as the response arrives.
+     */
+    public ITransactionSummaryReader openTransactionReader(TransactionReportBuilder<?> builder, Date startDate, Date endDate) throws ApiException {
+        final String rowTag;
+        if(builder.getReportType().equals(ReportType.FindTransactions)) {
+            rowTag = "Transactions";
+        }
+        else if(builder.getReportType().equals(ReportType.Activity)) {
+            rowTag = "Details";
+        }
+        else throw new UnsupportedTransactionException(String.format("%s reports cannot be streamed.", builder.getReportType()));
+
+        ElementTree et = new ElementTree();
+        Element transaction = buildReportTransaction(et, builder, startDate, endDate);
+
+        final ElementReader reader = new ElementReader(doTransactionStream(buildEnvelope(et, transaction)));
+        try {
+            // the header comes ahead of the rows, so a failed request is reported before anything is read
+            if(!reader.next("Header")) {
+                throw new GatewayException("Unexpected Gateway Response: the response has no header.");
+            }
+            checkReportResponse(reader.read());
+        }
+        catch(ApiException exc) {
+            reader.close();
+            throw exc;
+        }
+
+        return new ITransactionSummaryReader() {
+            public TransactionSummary read() throws ApiException {
+                try {
+                    if(reader.next(rowTag)) {
+                        return hydrateTransactionSummary(reader.read());
+                    }
+                }
+                catch(ApiException exc) {
+                    reader.close();
+                    throw exc;
+                }
+                reader.close();
+                return null;
+            }
+
+            public void close() {
+                reader.close();
+            }
+        };
+    }
+
+    private Element buildReportTransaction(ElementTree et, ReportBuilder<?> builder, Date startDate, Date endDate) throws UnsupportedTransactionException {
         Element transaction = et.element(mapReportType(builder.getReportType()));
         et.subElement(transaction, "TzConversion", builder.getTimeZoneConversion());
         if(builder instanceof TransactionReportBuilder) {
-            TransactionReportBuilder<TResult> trb = (TransactionReportBuilder<TResult>)builder;
+            TransactionReportBuilder<?> trb = (TransactionReportBuilder<?>)builder;
             if (trb.getTransactionId() != null) {
                 et.subElement(transaction, "TxnId", trb.getTransactionId());
             }
             else{
                 Element criteria = et.subElement(transaction, "Criteria");
-                et.subElement(criteria, "StartUtcDT", trb.getStartDate() == null ? null : formatDate(trb.getStartDate()));
-                et.subElement(criteria, "EndUtcDT", trb.getEndDate() == null ? null : formatDate(trb.getEndDate()));
+                et.subElement(criteria, "StartUtcDT", startDate == null ? null : formatDate(startDate));
+                et.subElement(criteria, "EndUtcDT", endDate == null ? null : formatDate(endDate));
                 et.subElement(criteria, "AuthCode", trb.getSearchBuilder().getAuthCode());
                 et.subElement(criteria, "CardHolderLastName", trb.getSearchBuilder().getCardHolderLastName());
                 et.subElement(criteria, "CardHolderFirtName", trb.getSearchBuilder().getCardHolderFirstName());
@@ -574,9 +638,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
                 et.subElement(criteria, "AltPaymentStatus", trb.getSearchBuilder().getAltPaymentStatus());
             }
         }
-
-        String response = doTransaction(buildEnvelope(et, transaction));
-        return mapReportResponse(response, builder.getReportType(), clazz);
+        return transaction;
     }
 
     private String buildEnvelope(ElementTree et, Element transaction) {
@@ -712,24 +774,10 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
 
     @SuppressWarnings("unchecked")
     private <TResult> TResult mapReportResponse(String rawResponse, ReportType reportType, Class<TResult> clazz) throws ApiException {
-        Element response = ElementTree.parse(rawResponse).get("PosResponse");
-        ArrayList<String> acceptedCodes = new ArrayList<String>();
-        acceptedCodes.add("00");
-        acceptedCodes.add("0");
-
-        // check gateway responses
-        String gatewayRspCode = normalizeResponse(response.getString("GatewayRspCode"));
-        String gatewayRspText = response.getString("GatewayRspMsg");
-
-        if (!acceptedCodes.contains(gatewayRspCode)) {
-            throw new GatewayException(
-                    String.format("Unexpected Gateway Response: %s - %s", gatewayRspCode, gatewayRspText),
-                    gatewayRspCode,
-                    gatewayRspText
-            );
-        }
+        ElementTree tree = ElementTree.parse(rawResponse);
+        checkReportResponse(tree.get("PosResponse"));
 
-        Element doc = ElementTree.parse(rawResponse).get(mapReportType(reportType));
+        Element doc = tree.get(mapReportType(reportType));
 
         try {
             TResult rvalue = clazz.newInstance();
@@ -757,6 +805,24 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
         }
     }
 
+    private void checkReportResponse(Element response) throws GatewayException {
+        ArrayList<String> acceptedCodes = new ArrayList<String>();
+        acceptedCodes.add("00");
+        acceptedCodes.add("0");
+
+        // check gateway responses
+        String gatewayRspCode = normalizeResponse(response.getString("GatewayRspCode"));
+        String gatewayRspText = response.getString("GatewayRspMsg");
+
+        if (!acceptedCodes.contains(gatewayRspCode)) {
+            throw new GatewayException(
+                    String.format("Unexpected Gateway Response: %s - %s", gatewayRspCode, gatewayRspText),
+                    gatewayRspCode,
+                    gatewayRspText
+            );
+        }
+    }
+
     private String normalizeResponse(String input) {
         if(input != null) {
             if (input.equals("0") || input.equals("85"))
@@ -1002,8 +1068,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
             LodgingData lodgingData = new LodgingData();
 
             String advancedDepositType = root.getString("AdvancedDepositType");
-            ReverseStringEnumMap<AdvancedDepositType> map = new ReverseStringEnumMap<AdvancedDepositType>(AdvancedDepositType.class);
-            lodgingData.setAdvancedDepositType(map.get(advancedDepositType));
+            lodgingData.setAdvancedDepositType(ReverseStringEnumMap.parse(advancedDepositType, AdvancedDepositType.class));
             lodgingData.setLodgingDataEdit(root.getString("LodgingDataEdit"));
             summary.setLodgingData(lodgingData);
         }
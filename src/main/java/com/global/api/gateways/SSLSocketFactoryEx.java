@@ -11,9 +11,43 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SSLSocketFactoryEx extends SSLSocketFactory
 {
+    private static SSLSocketFactoryEx sharedInstance;
+    private static long retiredSocketCount;
+
+    /**
+     * A single factory (and SSLContext) shared by the HTTP gateways, so TLS sessions can be resumed and
+     * HttpsURLConnection can reuse kept-alive connections, which it only does for the same factory.
+     */
+    public static synchronized SSLSocketFactoryEx getSharedInstance() throws NoSuchAlgorithmException, KeyManagementException
+    {
+        if(sharedInstance == null)
+            sharedInstance = new SSLSocketFactoryEx();
+        return sharedInstance;
+    }
+
+    /**
+     * Replaces the factory shared by the HTTP gateways, for instance with one built on other trust managers.
+     * Null goes back to the default factory.
+     */
+    public static synchronized void setSharedInstance(SSLSocketFactoryEx factory)
+    {
+        if(sharedInstance != null)
+            retiredSocketCount += sharedInstance.getSocketCount();
+        sharedInstance = factory;
+    }
+
+    /**
+     * Number of sockets opened through the shared factory, including those of any factory it replaced.
+     */
+    public static synchronized long getSharedSocketCount()
+    {
+        return retiredSocketCount + (sharedInstance == null ? 0 : sharedInstance.getSocketCount());
+    }
+
     public SSLSocketFactoryEx() throws NoSuchAlgorithmException, KeyManagementException
     {
         initSSLSocketFactoryEx(null,null,null);
@@ -29,6 +63,16 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
         initSSLSocketFactoryEx(ctx);
     }
 
+    public long getSocketCount()
+    {
+        return m_socketCount.get();
+    }
+
+    public SSLSessionContext getClientSessionContext()
+    {
+        return m_ctx.getClientSessionContext();
+    }
+
     public String[] getDefaultCipherSuites()
     {
         return m_ciphers;
@@ -56,6 +100,7 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
         ss.setEnabledProtocols(m_protocols);
         ss.setEnabledCipherSuites(m_ciphers);
+        m_socketCount.incrementAndGet();
 
         return ss;
     }
@@ -67,6 +112,7 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
         ss.setEnabledProtocols(m_protocols);
         ss.setEnabledCipherSuites(m_ciphers);
+        m_socketCount.incrementAndGet();
 
         return ss;
     }
@@ -78,6 +124,7 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
         ss.setEnabledProtocols(m_protocols);
         ss.setEnabledCipherSuites(m_ciphers);
+        m_socketCount.incrementAndGet();
 
         return ss;
     }
@@ -89,6 +136,7 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
         ss.setEnabledProtocols(m_protocols);
         ss.setEnabledCipherSuites(m_ciphers);
+        m_socketCount.incrementAndGet();
 
         return ss;
     }
@@ -100,6 +148,7 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
         ss.setEnabledProtocols(m_protocols);
         ss.setEnabledCipherSuites(m_ciphers);
+        m_socketCount.incrementAndGet();
 
         return ss;
     }
@@ -110,6 +159,7 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
         ss.setEnabledProtocols(m_protocols);
         ss.setEnabledCipherSuites(m_ciphers);
+        m_socketCount.incrementAndGet();
 
         return ss;
     }
@@ -268,4 +318,5 @@ public class SSLSocketFactoryEx extends SSLSocketFactory
 
     private String[] m_ciphers;
     private String[] m_protocols;
+    private final AtomicLong m_socketCount = new AtomicLong();
 }
@@ -0,0 +1,121 @@
+package com.global.api.gateways;
+
+import com.global.api.builders.TransactionBuilder;
+import com.global.api.entities.BatchResubmitFailure;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.network.NetworkMessage;
+import com.global.api.utils.AsyncExecutor;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resends the batch's data collects when the host asks for batch recovery (580 on the batch close).
+ * Each worker decodes the next token and writes its 1221 over one dedicated connection, so the tokens
+ * are decoded side by side and no more than the window of messages wait on the host at once. The
+ * responses are kept in batch order; a token which could not be decoded or was not answered is
+ * reported as a failure rather than stopping the rest.
+ */
+class VapsBatchResubmitter {
+    private VapsConnector connector;
+    private Executor executor;
+    private int window;
+    private NetworkConnection connection;
+
+    private LinkedList<Transaction> resentTransactions = new LinkedList<Transaction>();
+    private LinkedList<BatchResubmitFailure> failures = new LinkedList<BatchResubmitFailure>();
+
+    VapsBatchResubmitter(VapsConnector connector, int window, Executor executor) {
+        this.connector = connector;
+        this.window = Math.max(1, window);
+        this.executor = executor;
+    }
+
+    LinkedList<Transaction> getResentTransactions() {
+        return resentTransactions;
+    }
+    LinkedList<BatchResubmitFailure> getFailures() {
+        return failures;
+    }
+
+    void resubmit(final List<String> tokens) {
+        final Transaction[] responses = new Transaction[tokens.size()];
+        final ApiException[] errors = new ApiException[tokens.size()];
+        final AtomicInteger nextToken = new AtomicInteger();
+
+        // the calling thread is one of the workers, so the batch still moves if the executor is busy
+        int workerCount = Math.max(1, Math.min(window, tokens.size()));
+        Runnable worker = new Runnable() {
+            public void run() {
+                int index;
+                while((index = nextToken.getAndIncrement()) < tokens.size()) {
+                    try {
+                        responses[index] = resend(tokens.get(index));
+                    }
+                    catch(ApiException exc) {
+                        errors[index] = exc;
+                    }
+                    catch(RuntimeException exc) {
+                        errors[index] = new ApiException(exc.getMessage(), exc);
+                    }
+                }
+            }
+        };
+
+        try {
+            AsyncExecutor.runWithHelpers(executor, workerCount - 1, worker);
+        }
+        catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+
+        for(int i = 0; i < tokens.size(); i++) {
+            if(responses[i] != null) {
+                resentTransactions.add(responses[i]);
+            }
+            else if(errors[i] != null) {
+                failures.add(new BatchResubmitFailure("1221", tokens.get(i), errors[i]));
+            }
+            else {
+                // still waiting on the host when the caller was interrupted
+                failures.add(new BatchResubmitFailure("1221", tokens.get(i), new ApiException("Batch recovery was interrupted.")));
+            }
+        }
+    }
+
+    <T extends TransactionBuilder<Transaction>> Transaction send(NetworkMessage request, T builder) throws ApiException {
+        return connector.sendRequest(request, builder, getConnection());
+    }
+
+    synchronized void close() {
+        if(connection != null) {
+            connector.closeConnection(connection);
+            connection = null;
+        }
+    }
+
+    private Transaction resend(String token) throws ApiException {
+        NetworkMessage request;
+        try {
+            request = connector.decodeRequest(token);
+        }
+        catch(RuntimeException exc) {
+            throw new ApiException("The transaction token could not be decoded.", exc);
+        }
+        request.setMessageTypeIndicator("1221");
+
+        return connector.sendRequest(request, null, getConnection());
+    }
+
+    // opens the connection on first use, and again if the host has dropped it
+    private synchronized NetworkConnection getConnection() throws ApiException {
+        if(connection == null || connection.isClosed()) {
+            close();
+            connection = connector.openDedicatedConnection();
+        }
+        return connection;
+    }
+}
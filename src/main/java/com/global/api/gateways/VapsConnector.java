@@ -2,12 +2,16 @@ package com.global.api.gateways;
 
 import com.global.api.builders.*;
 import com.global.api.entities.Address;
+import com.global.api.entities.BatchResubmitFailure;
 import com.global.api.entities.BatchSummary;
 import com.global.api.entities.EncryptionData;
 import com.global.api.entities.Transaction;
 import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.*;
 import com.global.api.entities.payroll.PayrollEncoder;
+import com.global.api.gateways.trace.INetworkTraceFormatter;
+import com.global.api.gateways.trace.NetworkTraceEntry;
+import com.global.api.logging.RequestLogger;
 import com.global.api.network.*;
 import com.global.api.network.abstractions.IBatchProvider;
 import com.global.api.network.abstractions.IStanProvider;
@@ -28,6 +32,7 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -48,7 +53,9 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
     private String terminalId;
     private String uniqueDeviceId;
     private LinkedList<Transaction> resentTransactions;
+    private LinkedList<BatchResubmitFailure> resubmitFailures;
     private Transaction resentBatch;
+    private int batchResubmitWindow = 8;
     private NetworkProcessingFlag processingFlag;
 
     public void setAcceptorConfig(AcceptorConfig acceptorConfig) {
@@ -60,6 +67,13 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             requestEncoder = batchProvider.getRequestEncoder();
         }
     }
+    /**
+     * Number of data collects which may wait on the host at once during batch recovery. The host must echo the
+     * origin correlation values of the header for more than one to be in flight.
+     */
+    public void setBatchResubmitWindow(int batchResubmitWindow) {
+        this.batchResubmitWindow = batchResubmitWindow;
+    }
     public void setCompanyId(String companyId) {
         this.companyId = companyId;
     }
@@ -1035,54 +1049,137 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         throw new UnsupportedTransactionException("VAPS does not support hosted payments.");
     }
     
-    private IDeviceMessage buildMessage(byte[] message, byte[] orgCorr1, byte[] orgCorr2) {
-        return buildMessage(message, orgCorr1, orgCorr2, false);
+    private IDeviceMessage buildMessage(NetworkMessage request, byte[] orgCorr1, byte[] orgCorr2) {
+        // the ISO 8583 data is encoded straight into the frame behind the header
+        ByteBuffer buffer = buildHeader(request.getMessageLength(), orgCorr1, orgCorr2, false);
+        request.writeTo(buffer);
+
+        return new DeviceMessage(buffer.array());
     }
 
     private IDeviceMessage buildMessage(byte[] message, byte[] orgCorr1, byte[] orgCorr2, Boolean isKeepAlive) {
-        int messageLength = message.length + 32;
-        
+        ByteBuffer buffer = buildHeader(message.length, orgCorr1, orgCorr2, isKeepAlive);
+        buffer.put(message);
+
+        return new DeviceMessage(buffer.array());
+    }
+
+    private ByteBuffer buildHeader(int dataLength, byte[] orgCorr1, byte[] orgCorr2, Boolean isKeepAlive) {
+        int messageLength = dataLength + 32;
+
+        // shared connections route responses back using the origin correlation
+        if(isPersistentConnection() && isEmpty(orgCorr1) && isEmpty(orgCorr2)) {
+            orgCorr2 = nextOriginCorrelation();
+        }
+
+        // size the frame up front (24 bytes of fixed width fields) so the header and data are written in a single pass
+        byte[] nodeIdentificationBytes = nodeIdentification.getBytes();
+        byte[] companyIdBytes = companyId.getBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(24 + nodeIdentificationBytes.length + companyIdBytes.length + dataLength);
+
         // build the header
-        NetworkMessageBuilder buffer = new NetworkMessageBuilder()
-                .append(messageLength, 2) // EH.1: Total Tran Length
-                .append(isKeepAlive ? NetworkTransactionType.KeepAlive : NetworkTransactionType.Transaction) // EH.2: ID (Transaction or Keep Alive)
-                .append(0 ,2) // EH.3: Reserved
-                .append(messageType) // EH.4: Type Message
-                .append(characterSet) // EH.5: Character Set
-                .append(0) // EH.6: Response Code
-                .append(0) // EH.7: Response Code Origin
-                .append(processingFlag); // EH.8: Processing Flag
+        buffer.putShort((short)messageLength) // EH.1: Total Tran Length
+                .put((isKeepAlive ? NetworkTransactionType.KeepAlive : NetworkTransactionType.Transaction).getBytes()) // EH.2: ID (Transaction or Keep Alive)
+                .putShort((short)0) // EH.3: Reserved
+                .put(messageType.getByte()) // EH.4: Type Message
+                .put(characterSet.getByte()) // EH.5: Character Set
+                .put((byte)0) // EH.6: Response Code
+                .put((byte)0) // EH.7: Response Code Origin
+                .put(processingFlag.getByte()); // EH.8: Processing Flag
 
         // EH.9: Protocol Type
         if(protocolType.equals(ProtocolType.Async)) {
             if (messageType.equals(MessageType.Heartland_POS_8583) || messageType.equals(MessageType.Heartland_NTS)) {
-                buffer.append(0x07);
+                buffer.put((byte)0x07);
             }
             else {
-                buffer.append(protocolType);
+                buffer.put(protocolType.getByte());
             }
         }
         else {
-            buffer.append(protocolType);
+            buffer.put(protocolType.getByte());
         }
 
         // rest of the header
-        buffer.append(connectionType) // EH.10: Connection Type
-                .append(nodeIdentification) // EH.11: Node Identification
-                .append(orgCorr1) // EH.12: Origin Correlation 1 (2 Bytes)
-                .append(companyId) // EH.13: Company ID
-                .append(orgCorr2) // EH.14: Origin Correlation 2 (8 bytes)
-                .append(1); // EH.15: Version (0x01)
-
-        // append the 8683 DATA
-        buffer.append(message);
-
-        return new DeviceMessage(buffer.toArray());
+        buffer.put(connectionType.getByte()) // EH.10: Connection Type
+                .put(nodeIdentificationBytes) // EH.11: Node Identification
+                .put(orgCorr1) // EH.12: Origin Correlation 1 (2 Bytes)
+                .put(companyIdBytes) // EH.13: Company ID
+                .put(orgCorr2) // EH.14: Origin Correlation 2 (8 bytes)
+                .put((byte)1); // EH.15: Version (0x01)
+
+        return buffer;
     }
     
+    private boolean isEmpty(byte[] buffer) {
+        for(byte b : buffer) {
+            if(b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public NetworkMessageHeader sendKeepAlive() throws ApiException {
         IDeviceMessage keepAlive = buildMessage(new byte[0], new byte[2], new byte[8], true);
         byte[] responseBuffer = send(keepAlive);
+        return checkKeepAlive(responseBuffer);
+    }
+
+    @Override
+    protected boolean keepAlive(NetworkConnection connection) {
+        IDeviceMessage keepAlive = buildMessage(new byte[0], new byte[2], new byte[8], true);
+        try {
+            byte[] responseBuffer = connection.send(keepAlive.getSendBuffer(), getTimeout());
+            if(responseBuffer == null) {
+                return false;
+            }
+            checkKeepAlive(responseBuffer);
+            return true;
+        }
+        catch(Exception exc) {
+            return false;
+        }
+    }
+
+    @Override
+    protected INetworkTraceFormatter getTraceFormatter() {
+        return new INetworkTraceFormatter() {
+            public String formatRequest(byte[] buffer) {
+                // requests still carry the two byte length
+                return formatMessage(buffer, 2, false);
+            }
+            public String formatResponse(byte[] buffer) {
+                return formatMessage(buffer, 0, true);
+            }
+        };
+    }
+
+    private String formatMessage(byte[] buffer, int offset, boolean isResponse) {
+        try {
+            MessageReader mr = new MessageReader(buffer);
+            mr.readBytes(offset);
+
+            StringBuilder sb = new StringBuilder();
+            NetworkMessageHeader header = NetworkMessageHeader.parse(mr.readBytes(30));
+            if(isResponse) {
+                sb.append(String.format("Header: %s %s\r\n", header.getResponseCode(), header.getResponseCodeOrigin()));
+            }
+
+            if(!header.getMessageType().equals(MessageType.NoMessage) && buffer.length > offset + 34) {
+                String messageTransactionIndicator = mr.readString(4);
+                NetworkMessage message = NetworkMessage.parse(mr.readBytes(buffer.length), Iso8583MessageType.CompleteMessage);
+                message.setMessageTypeIndicator(messageTransactionIndicator);
+                sb.append(message.toMaskedString());
+            }
+            return sb.toString();
+        }
+        catch(RuntimeException exc) {
+            return String.format("Unable to break down the %s byte message: %s", buffer.length, exc.getMessage());
+        }
+    }
+
+    private NetworkMessageHeader checkKeepAlive(byte[] responseBuffer) throws GatewayException {
         MessageReader mr = new MessageReader(responseBuffer);
 
         // parse the header
@@ -1098,12 +1195,38 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         }
     }
     
-    private <T extends TransactionBuilder<Transaction>> Transaction sendRequest(NetworkMessage request, T builder, byte[] orgCorr1, byte[] orgCorr2) throws ApiException {
-        byte[] sendBuffer = request.buildMessage();
-        if(isEnableLogging()) {
-            System.out.println("Request Breakdown:\r\n" + request.toString());
+    // the breakdown is rendered from the trace on the logging thread
+    private void logExchange(NetworkMessage request) {
+        if(!isEnableLogging()) {
+            return;
+        }
+
+        NetworkTraceEntry trace = getLastTrace();
+        if(trace != null) {
+            RequestLogger.getInstance().log(null, trace);
         }
-        IDeviceMessage message = buildMessage(sendBuffer, orgCorr1, orgCorr2, false);
+        else RequestLogger.getInstance().log("Request Breakdown:\r\n", request.toMaskedString());
+    }
+
+    // DE48-39 times are reported in tenths of a second, 999 when not known
+    private String formatElapsedTime(Long elapsed) {
+        if(elapsed == null) {
+            return "999";
+        }
+        return StringUtils.padLeft(Math.min(999, (elapsed + 50) / 100), 3, '0');
+    }
+
+    private <T extends TransactionBuilder<Transaction>> Transaction sendRequest(NetworkMessage request, T builder, byte[] orgCorr1, byte[] orgCorr2) throws ApiException {
+        return sendRequest(request, builder, orgCorr1, orgCorr2, null);
+    }
+
+    // sends over a dedicated connection with its own origin correlation so other messages can share it
+    <T extends TransactionBuilder<Transaction>> Transaction sendRequest(NetworkMessage request, T builder, NetworkConnection connection) throws ApiException {
+        return sendRequest(request, builder, new byte[2], nextOriginCorrelation(), connection);
+    }
+
+    private <T extends TransactionBuilder<Transaction>> Transaction sendRequest(NetworkMessage request, T builder, byte[] orgCorr1, byte[] orgCorr2, NetworkConnection connection) throws ApiException {
+        IDeviceMessage message = buildMessage(request, orgCorr1, orgCorr2);
         TransactionType transactionType = null;
 
         try {
@@ -1111,7 +1234,13 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
                 transactionType = builder.getTransactionType();
                 this.setSimulatedHostErrors(builder.getSimulatedHostErrors());
             }
-            byte[] responseBuffer = send(message);
+            byte[] responseBuffer;
+            try {
+                responseBuffer = connection != null ? send(message, connection) : send(message);
+            }
+            finally {
+                logExchange(request);
+            }
 
             String functionCode = request.getString(DataElementId.DE_024);
             String messageReasonCode = request.getString(DataElementId.DE_025);
@@ -1127,16 +1256,20 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
                 }
             }
 
-//            priorMessageInformation.setResponseTime(); // TODO: Need to get this from the send message
+            priorMessageInformation.setResponseTime(formatElapsedTime(getLastResponseTime()));
+            priorMessageInformation.setConnectTime(formatElapsedTime(getLastConnectTime()));
             priorMessageInformation.setFunctionCode(functionCode);
             priorMessageInformation.setMessageReasonCode(messageReasonCode);
             priorMessageInformation.setMessageTransactionIndicator(request.getMessageTypeIndicator());
             priorMessageInformation.setProcessingCode(processingCode);
             priorMessageInformation.setSystemTraceAuditNumber(stan);
-            priorMessageInformation.setProcessingHost(currentHost);
+            priorMessageInformation.setProcessingHost(getCurrentHost());
 
             Transaction response = mapResponse(responseBuffer, request, builder);
             response.setMessageInformation(priorMessageInformation);
+            if(getLastResponseTime() != null) {
+                getMetrics().recordResponse(getCurrentHost(), request.getMessageTypeIndicator(), response.getResponseCode(), getLastResponseTime());
+            }
             if(batchProvider != null) {
                 batchProvider.setPriorMessageData(priorMessageInformation);
             }
@@ -1222,7 +1355,9 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             exc.setMessageTypeIndicator(request.getMessageTypeIndicator());
             exc.setProcessingCode(request.getString(DataElementId.DE_003));
             exc.setTransmissionTime(request.getString(DataElementId.DE_007));
-            exc.setHost(currentHost.getValue());
+            if(getCurrentHost() != null) {
+                exc.setHost(getCurrentHost().getValue());
+            }
             throw exc;
         }
     }
@@ -1250,11 +1385,6 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
                 NetworkMessage message = NetworkMessage.parse(mr.readBytes(buffer.length), Iso8583MessageType.CompleteMessage);
                 message.setMessageTypeIndicator(messageTransactionIndicator);
 
-                // log out the breakdown
-                if(isEnableLogging()) {
-                    System.out.println("\r\nResponse Breakdown:\r\n" + message.toString());
-                }
-
                 DE44_AdditionalResponseData additionalResponseData = message.getDataElement(DataElementId.DE_044, DE44_AdditionalResponseData.class);
                 DE48_MessageControl messageControl = message.getDataElement(DataElementId.DE_048, DE48_MessageControl.class);
                 DE54_AmountsAdditional additionalAmounts = message.getDataElement(DataElementId.DE_054, DE54_AmountsAdditional.class);
@@ -1370,8 +1500,11 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
                     if(builder.getTransactionType().equals(TransactionType.BatchClose)) {
                         BatchSummary summary = new BatchSummary();
                         summary.setResponseCode(responseCode);
-                        summary.setResentTransactions(resentTransactions);
-                        summary.setResentBatchClose(resentBatch);
+                        if(responseCode.equals("580")) {
+                            summary.setResentTransactions(resentTransactions);
+                            summary.setResubmitFailures(resubmitFailures);
+                            summary.setResentBatchClose(resentBatch);
+                        }
                         summary.setTransactionToken(result.getTransactionToken());
 
                         if(messageControl != null) {
@@ -1962,6 +2095,7 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
 
         DE48_39_PriorMessageInformation pmi = new DE48_39_PriorMessageInformation();
         pmi.setResponseTime(priorMessageInformation.getResponseTime());
+        pmi.setConnectTime(priorMessageInformation.getConnectTime());
         pmi.setCardType(priorMessageInformation.getCardType());
         pmi.setMessageTransactionIndicator(priorMessageInformation.getMessageTransactionIndicator());
         pmi.setProcessingCode(priorMessageInformation.getProcessingCode());
@@ -2248,32 +2382,13 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             if ((responseCode.equals("500") || responseCode.equals("501")) && batchProvider != null) {
                 batchProvider.closeBatch(responseCode.equals("500"));
             } else if (responseCode.equals("580")) {
-                if(batchProvider != null) {
-                    try {
-                        LinkedList<String> encodedRequests = batchProvider.getEncodedRequests();
-                        if (encodedRequests != null) {
-                            resentTransactions = new LinkedList<Transaction>();
-                            for (String encRequest : encodedRequests) {
-                                try {
-                                    NetworkMessage newRequest = decodeRequest(encRequest);
-                                    newRequest.setMessageTypeIndicator("1221");
-
-                                    Transaction resend = sendRequest(newRequest, null, new byte[2], new byte[8]);
-                                    resentTransactions.add(resend);
-                                } catch (ApiException exc) {
-                                    /* NOM NOM */
-                                    // TODO: this should be reported
-                                }
-                            }
+                resentTransactions = null;
+                resubmitFailures = null;
+                resentBatch = null;
 
-                            // resend the batch close
-                            request.setMessageTypeIndicator("1521");
-                            resentBatch = sendRequest(request, builder, new byte[2], new byte[8]);
-                        }
-                    } catch (ApiException exc) {
-                        /* NOM NOM */
-                        // TODO: this should be reported
-                    }
+                // a resent batch close which is still out of balance is reported as it is rather than recovered again
+                if(batchProvider != null && !"1521".equals(request.getMessageTypeIndicator())) {
+                    resubmitBatch(request, builder);
                 }
                 encodedRequest = encodeRequest(request);
             }
@@ -2298,6 +2413,38 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         return encodedRequest;
     }
 
+    // resend the data collects held by the batch provider, then the batch close
+    private <T extends TransactionBuilder<Transaction>> void resubmitBatch(NetworkMessage request, T builder) {
+        LinkedList<Transaction> resent = null;
+        LinkedList<BatchResubmitFailure> failures = null;
+        Transaction batchClose = null;
+
+        LinkedList<String> encodedRequests = batchProvider.getEncodedRequests();
+        if(encodedRequests != null) {
+            VapsBatchResubmitter resubmitter = new VapsBatchResubmitter(this, batchResubmitWindow, AsyncExecutor.getDefaultExecutor());
+            try {
+                resubmitter.resubmit(encodedRequests);
+                resent = resubmitter.getResentTransactions();
+                failures = resubmitter.getFailures();
+
+                request.setMessageTypeIndicator("1521");
+                try {
+                    batchClose = resubmitter.send(request, builder);
+                }
+                catch(ApiException exc) {
+                    failures.add(new BatchResubmitFailure("1521", null, exc));
+                }
+            }
+            finally {
+                resubmitter.close();
+            }
+        }
+
+        resentTransactions = resent;
+        resubmitFailures = failures;
+        resentBatch = batchClose;
+    }
+
     private NetworkMessage buildImpliedCapture(NetworkMessage request, NetworkMessage response, PaymentMethodType paymentMethodType) {
         String authCode = null;
         String ntsData = null;
@@ -2426,7 +2573,7 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         mw.add(TerminalUtilities.calculateLRC(mw.toArray()));
         return new String(mw.toArray());
     }
-    private NetworkMessage decodeRequest(String encodedStr) {
+    NetworkMessage decodeRequest(String encodedStr) {
         if(requestEncoder == null) {
             requestEncoder = new PayrollEncoder(companyId, terminalId);
         }
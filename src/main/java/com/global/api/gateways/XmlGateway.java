@@ -2,6 +2,8 @@ package com.global.api.gateways;
 
 import com.global.api.entities.exceptions.GatewayException;
 
+import java.io.InputStream;
+
 public abstract class XmlGateway extends Gateway {
     public XmlGateway() {
         super("text/xml");
@@ -13,4 +15,8 @@ public abstract class XmlGateway extends Gateway {
             throw new GatewayException("Unexpected http status code [" + response.getStatusCode() + "]");
         return response.getRawResponse();
     }
+
+    public InputStream doTransactionStream(String request) throws GatewayException {
+        return sendRequestStream("POST", "", request);
+    }
 }
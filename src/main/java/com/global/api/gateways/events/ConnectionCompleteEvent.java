@@ -6,7 +6,7 @@ public class ConnectionCompleteEvent extends GatewayEvent {
     private DateTime started;
     private DateTime complete;
 
-    private long getConnectionTime() {
+    public long getConnectionTime() {
         if (complete != null) {
             return complete.getMillis() - started.getMillis();
         }
@@ -0,0 +1,13 @@
+package com.global.api.gateways.events;
+
+/**
+ * What the event dispatcher does with a new event while its queue is full.
+ */
+public enum EventOverflowPolicy {
+    /** Discard the new event. */
+    DropNewest,
+    /** Discard the oldest queued event to make room for the new one. */
+    DropOldest,
+    /** Hold the raising thread until there is room in the queue, delivering queued events on it if need be. */
+    Block
+}
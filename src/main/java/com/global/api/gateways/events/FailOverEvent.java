@@ -1,12 +1,26 @@
 package com.global.api.gateways.events;
 
+import com.global.api.entities.enums.CircuitState;
+import com.global.api.entities.enums.Host;
 import org.joda.time.DateTime;
 
 public class FailOverEvent extends GatewayEvent {
     private DateTime started;
     private DateTime complete;
+    private Host host;
+    private CircuitState circuitState;
 
-    private long getConnectionTime() {
+    public Host getHost() {
+        return host;
+    }
+    /**
+     * The new state of the host's circuit, or null when the event reports a failed connection.
+     */
+    public CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    public long getConnectionTime() {
         if (complete != null) {
             return complete.getMillis() - started.getMillis();
         }
@@ -16,6 +30,9 @@ public class FailOverEvent extends GatewayEvent {
     }
     public String getEventMessage() {
         String rvalue = super.getEventMessage();
+        if(circuitState != null) {
+            return rvalue.concat(String.format("Circuit for %s host is now %s.", host.getValue(), circuitState));
+        }
         return rvalue.concat(String.format("Connection failed (milliseconds): %sms", getConnectionTime()));
     }
 
@@ -24,4 +41,9 @@ public class FailOverEvent extends GatewayEvent {
         this.started = started;
         this.complete = complete;
     }
+    public FailOverEvent(String connectorName, Host host, CircuitState circuitState) {
+        super(connectorName, GatewayEventType.FailOver);
+        this.host = host;
+        this.circuitState = circuitState;
+    }
 }
@@ -0,0 +1,168 @@
+package com.global.api.gateways.events;
+
+import com.global.api.utils.AsyncExecutor;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers gateway events to a handler off the calling thread. Events are held in a bounded queue
+ * and drained by one task at a time, so the handler sees them in the order they were raised and
+ * never from two threads at once. When the queue is full the overflow policy decides what is lost.
+ */
+public class GatewayEventDispatcher {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final IGatewayEventHandler handler;
+    private final ArrayBlockingQueue<IGatewayEvent> queue;
+    private final EventOverflowPolicy overflowPolicy;
+    private final Executor executor;
+
+    // a scheduled drain can still be claimed by a raising thread which is blocked on a full queue
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int RUNNING = 2;
+    private final AtomicInteger drainState = new AtomicInteger(IDLE);
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final Runnable drainTask = new Runnable() {
+        public void run() {
+            if(drainState.compareAndSet(SCHEDULED, RUNNING)) {
+                drain();
+            }
+        }
+    };
+
+    public IGatewayEventHandler getHandler() {
+        return handler;
+    }
+    public EventOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    public int getCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public GatewayEventDispatcher(IGatewayEventHandler handler) {
+        this(handler, DEFAULT_CAPACITY, EventOverflowPolicy.DropOldest, null);
+    }
+
+    /**
+     * @param handler the handler events are delivered to
+     * @param capacity the most events that can wait for delivery
+     * @param overflowPolicy what to do with an event raised while the queue is full
+     * @param executor the executor the queue is drained on, or null for the SDK default executor
+     */
+    public GatewayEventDispatcher(IGatewayEventHandler handler, int capacity, EventOverflowPolicy overflowPolicy, Executor executor) {
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<IGatewayEvent>(Math.max(1, capacity));
+        this.overflowPolicy = overflowPolicy != null ? overflowPolicy : EventOverflowPolicy.DropOldest;
+        this.executor = executor != null ? executor : AsyncExecutor.getDefaultExecutor();
+    }
+
+    public void dispatch(IGatewayEvent event) {
+        if(event == null) {
+            return;
+        }
+
+        switch(overflowPolicy) {
+            case Block:
+                // rather than wait on a drain which may be queued behind this thread on a busy executor,
+                // deliver the waiting events here whenever no other thread is delivering them
+                while(!queue.offer(event)) {
+                    if(drainState.compareAndSet(IDLE, RUNNING) || drainState.compareAndSet(SCHEDULED, RUNNING)) {
+                        drain();
+                        continue;
+                    }
+
+                    try {
+                        if(queue.offer(event, 10, TimeUnit.MILLISECONDS)) {
+                            break;
+                        }
+                    }
+                    catch(InterruptedException exc) {
+                        Thread.currentThread().interrupt();
+                        droppedCount.incrementAndGet();
+                        return;
+                    }
+                }
+                break;
+            case DropOldest:
+                while(!queue.offer(event)) {
+                    if(queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            default:
+                if(!queue.offer(event)) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if(!queue.isEmpty() && drainState.compareAndSet(IDLE, SCHEDULED)) {
+            try {
+                executor.execute(drainTask);
+            }
+            catch(RejectedExecutionException exc) {
+                // nothing is left to deliver them, don't let the queue fill up behind a dead executor
+                drainState.compareAndSet(SCHEDULED, IDLE);
+                droppedCount.addAndGet(drainQueue().size());
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            ArrayList<IGatewayEvent> batch;
+            while(!(batch = drainQueue()).isEmpty()) {
+                deliver(batch);
+            }
+        }
+        finally {
+            drainState.set(IDLE);
+        }
+
+        // an event may have been queued after the last drain but before the flag was cleared
+        scheduleDrain();
+    }
+
+    private ArrayList<IGatewayEvent> drainQueue() {
+        ArrayList<IGatewayEvent> batch = new ArrayList<IGatewayEvent>();
+        queue.drainTo(batch, MAX_BATCH_SIZE);
+        return batch;
+    }
+
+    private void deliver(ArrayList<IGatewayEvent> batch) {
+        if(handler instanceof IBatchGatewayEventHandler) {
+            try {
+                ((IBatchGatewayEventHandler)handler).eventsRaised(batch);
+            }
+            catch(RuntimeException exc) { /* a failing handler must not stop delivery */ }
+        }
+        else {
+            for(IGatewayEvent event : batch) {
+                try {
+                    handler.eventRaised(event);
+                }
+                catch(RuntimeException exc) { /* a failing handler must not stop delivery */ }
+            }
+        }
+    }
+}
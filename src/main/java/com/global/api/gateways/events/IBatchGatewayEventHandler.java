@@ -0,0 +1,11 @@
+package com.global.api.gateways.events;
+
+import java.util.List;
+
+/**
+ * An event handler that receives every event waiting in the dispatcher queue in a single call,
+ * in the order they were raised.
+ */
+public interface IBatchGatewayEventHandler extends IGatewayEventHandler {
+    void eventsRaised(List<IGatewayEvent> events);
+}
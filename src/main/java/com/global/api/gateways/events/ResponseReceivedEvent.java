@@ -9,7 +9,7 @@ public class ResponseReceivedEvent extends GatewayEvent {
         String rvalue = super.getEventMessage();
         return rvalue.concat(String.format("Host response received. Response time (milliseconds): %sms.", getResponseTime()));
     }
-    private long getResponseTime() {
+    public long getResponseTime() {
         if(requestSent != null) {
             return timestamp.getMillis() - requestSent.getMillis();
         }
@@ -2,6 +2,14 @@ package com.global.api.gateways.events;
 
 public class SslHandshakeEvent extends GatewayEvent {
     private Exception sslException;
+    private long handshakeTime;
+
+    public Exception getSslException() {
+        return sslException;
+    }
+    public long getHandshakeTime() {
+        return handshakeTime;
+    }
 
     public String getEventMessage() {
         String rvalue = super.getEventMessage();
@@ -17,7 +25,11 @@ public class SslHandshakeEvent extends GatewayEvent {
     }
 
     public SslHandshakeEvent(String connectorName, Exception exc) {
+        this(connectorName, exc, 0);
+    }
+    public SslHandshakeEvent(String connectorName, Exception exc, long handshakeTime) {
         super(connectorName, GatewayEventType.SslHandshake);
         sslException = exc;
+        this.handshakeTime = handshakeTime;
     }
 }
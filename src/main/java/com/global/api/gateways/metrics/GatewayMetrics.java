@@ -0,0 +1,165 @@
+package com.global.api.gateways.metrics;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.gateways.events.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms and counters for one connector. Connection, handshake, timeout and fail over figures
+ * are taken from the gateway events the connector raises; response times are also broken down by host,
+ * message type and response code as the connector reports each response.
+ */
+public class GatewayMetrics implements IGatewayEventHandler, GatewayMetricsMXBean {
+    private final String connectorName;
+    private volatile long started = System.currentTimeMillis();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong failOverCount = new AtomicLong();
+    private final AtomicLong connectionFailureCount = new AtomicLong();
+    private final AtomicLong handshakeFailureCount = new AtomicLong();
+
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LatencyHistogram connectTimes = new LatencyHistogram();
+    private final LatencyHistogram handshakeTimes = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LatencyHistogram> messageResponseTimes = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public GatewayMetrics(String connectorName) {
+        this.connectorName = connectorName;
+    }
+
+    public String getConnectorName() {
+        return connectorName;
+    }
+    public long getUptime() {
+        return System.currentTimeMillis() - started;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+    public long getResponseCount() {
+        return responseTimes.getCount();
+    }
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+    public long getFailOverCount() {
+        return failOverCount.get();
+    }
+    public long getConnectionCount() {
+        return connectTimes.getCount();
+    }
+    public long getConnectionFailureCount() {
+        return connectionFailureCount.get();
+    }
+    public long getHandshakeFailureCount() {
+        return handshakeFailureCount.get();
+    }
+    public double getRequestsPerSecond() {
+        long uptime = getUptime();
+        return uptime <= 0 ? 0 : getRequestCount() * 1000.0 / uptime;
+    }
+
+    public LatencyHistogram getResponseTimes() {
+        return responseTimes;
+    }
+    public LatencyHistogram getConnectTimes() {
+        return connectTimes;
+    }
+    public LatencyHistogram getHandshakeTimes() {
+        return handshakeTimes;
+    }
+    /**
+     * Response times keyed by host, message type indicator and response code, e.g. "primary/1110/000".
+     */
+    public Map<String, LatencyHistogram> getMessageResponseTimes() {
+        return Collections.unmodifiableMap(new TreeMap<String, LatencyHistogram>(messageResponseTimes));
+    }
+
+    public double getMeanResponseTime() {
+        return responseTimes.getMean();
+    }
+    public long getResponseTime50th() {
+        return responseTimes.getValueAtPercentile(50);
+    }
+    public long getResponseTime99th() {
+        return responseTimes.getValueAtPercentile(99);
+    }
+    public long getMaxResponseTime() {
+        return responseTimes.getMax();
+    }
+    public double getMeanConnectTime() {
+        return connectTimes.getMean();
+    }
+    public long getConnectTime99th() {
+        return connectTimes.getValueAtPercentile(99);
+    }
+    public double getMeanHandshakeTime() {
+        return handshakeTimes.getMean();
+    }
+    public long getHandshakeTime99th() {
+        return handshakeTimes.getValueAtPercentile(99);
+    }
+
+    public void eventRaised(IGatewayEvent event) {
+        if(event instanceof RequestSentEvent) {
+            requestCount.incrementAndGet();
+        }
+        else if(event instanceof ResponseReceivedEvent) {
+            responseTimes.record(((ResponseReceivedEvent)event).getResponseTime());
+        }
+        else if(event instanceof ConnectionCompleteEvent) {
+            connectTimes.record(((ConnectionCompleteEvent)event).getConnectionTime());
+        }
+        else if(event instanceof FailOverEvent) {
+            if(((FailOverEvent)event).getCircuitState() == null) {
+                connectionFailureCount.incrementAndGet();
+            }
+        }
+        else if(event instanceof SslHandshakeEvent) {
+            SslHandshakeEvent handshake = (SslHandshakeEvent)event;
+            if(handshake.getSslException() != null) {
+                handshakeFailureCount.incrementAndGet();
+            }
+            else handshakeTimes.record(handshake.getHandshakeTime());
+        }
+        else if(event instanceof TimeoutEvent) {
+            if(event.getEventType().equals(GatewayEventType.TimeoutFailOver)) {
+                failOverCount.incrementAndGet();
+            }
+            else timeoutCount.incrementAndGet();
+        }
+    }
+
+    public void recordResponse(Host host, String messageTypeIndicator, String responseCode, long responseTime) {
+        String key = String.format("%s/%s/%s", host != null ? host.getValue() : "unknown", messageTypeIndicator, responseCode);
+
+        LatencyHistogram histogram = messageResponseTimes.get(key);
+        if(histogram == null) {
+            LatencyHistogram existing = messageResponseTimes.putIfAbsent(key, histogram = new LatencyHistogram());
+            if(existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.record(responseTime);
+    }
+
+    public void reset() {
+        requestCount.set(0);
+        timeoutCount.set(0);
+        failOverCount.set(0);
+        connectionFailureCount.set(0);
+        handshakeFailureCount.set(0);
+        responseTimes.reset();
+        connectTimes.reset();
+        handshakeTimes.reset();
+        messageResponseTimes.clear();
+        started = System.currentTimeMillis();
+    }
+}
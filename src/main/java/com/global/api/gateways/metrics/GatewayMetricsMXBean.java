@@ -0,0 +1,29 @@
+package com.global.api.gateways.metrics;
+
+/**
+ * The JMX view of a connector's metrics. Times are in milliseconds.
+ */
+public interface GatewayMetricsMXBean {
+    String getConnectorName();
+    long getUptime();
+
+    long getRequestCount();
+    long getResponseCount();
+    long getTimeoutCount();
+    long getFailOverCount();
+    long getConnectionCount();
+    long getConnectionFailureCount();
+    long getHandshakeFailureCount();
+    double getRequestsPerSecond();
+
+    double getMeanResponseTime();
+    long getResponseTime50th();
+    long getResponseTime99th();
+    long getMaxResponseTime();
+    double getMeanConnectTime();
+    long getConnectTime99th();
+    double getMeanHandshakeTime();
+    long getHandshakeTime99th();
+
+    void reset();
+}
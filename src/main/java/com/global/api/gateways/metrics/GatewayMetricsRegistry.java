@@ -0,0 +1,131 @@
+package com.global.api.gateways.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the metrics for every connector in the process, publishes each of them as an MXBean under
+ * com.global.api:type=GatewayMetrics and hands them to the registered exporters.
+ */
+public class GatewayMetricsRegistry {
+    private static GatewayMetricsRegistry instance;
+
+    private final LinkedHashMap<String, GatewayMetrics> metrics = new LinkedHashMap<String, GatewayMetrics>();
+    private final HashMap<String, Integer> references = new HashMap<String, Integer>();
+    private final CopyOnWriteArrayList<IMetricsExporter> exporters = new CopyOnWriteArrayList<IMetricsExporter>();
+    private Timer exportTimer;
+
+    public static synchronized GatewayMetricsRegistry getInstance() {
+        if(instance == null)
+            instance = new GatewayMetricsRegistry();
+        return instance;
+    }
+
+    private GatewayMetricsRegistry() { }
+
+    /**
+     * Returns the metrics for the named connector, creating and publishing them on first use. Connectors
+     * sharing a name share the metrics; each one hands its use back with release when it is closed.
+     */
+    public synchronized GatewayMetrics getMetrics(String name) {
+        GatewayMetrics rvalue = metrics.get(name);
+        if(rvalue == null) {
+            rvalue = new GatewayMetrics(name);
+            metrics.put(name, rvalue);
+            registerMBean(rvalue);
+        }
+
+        Integer count = references.get(name);
+        references.put(name, count == null ? 1 : count + 1);
+        return rvalue;
+    }
+    /**
+     * Hands back one use of the named metrics, removing them once nothing uses them.
+     */
+    public synchronized void release(String name) {
+        Integer count = references.get(name);
+        if(count == null) {
+            return;
+        }
+
+        if(count > 1) {
+            references.put(name, count - 1);
+        }
+        else remove(name);
+    }
+    public synchronized Collection<GatewayMetrics> getAllMetrics() {
+        return new ArrayList<GatewayMetrics>(metrics.values());
+    }
+    public synchronized void remove(String name) {
+        references.remove(name);
+        if(metrics.remove(name) != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName(name));
+            }
+            catch(Exception exc) { /* not registered */ }
+        }
+    }
+
+    public void addExporter(IMetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+    public void removeExporter(IMetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    public void export() {
+        Collection<GatewayMetrics> current = getAllMetrics();
+        for(IMetricsExporter exporter : exporters) {
+            try {
+                exporter.export(current);
+            }
+            catch(RuntimeException exc) { /* a failing exporter must not stop the others */ }
+        }
+    }
+
+    /**
+     * Exports to every registered exporter on a background timer.
+     *
+     * @param interval milliseconds between exports, 0 to stop exporting
+     */
+    public synchronized void setExportInterval(long interval) {
+        if(exportTimer != null) {
+            exportTimer.cancel();
+            exportTimer = null;
+        }
+
+        if(interval > 0) {
+            exportTimer = new Timer("GatewayMetricsExporter", true);
+            exportTimer.schedule(new TimerTask() {
+                public void run() {
+                    export();
+                }
+            }, interval, interval);
+        }
+    }
+
+    private void registerMBean(GatewayMetrics gatewayMetrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = getObjectName(gatewayMetrics.getConnectorName());
+            if(!server.isRegistered(objectName)) {
+                server.registerMBean(gatewayMetrics, objectName);
+            }
+        }
+        catch(Exception exc) {
+            // JMX is optional, the metrics are still available through the registry
+        }
+    }
+
+    private static ObjectName getObjectName(String name) throws Exception {
+        return new ObjectName(String.format("com.global.api:type=GatewayMetrics,name=%s", ObjectName.quote(name)));
+    }
+}
@@ -0,0 +1,10 @@
+package com.global.api.gateways.metrics;
+
+import java.util.Collection;
+
+/**
+ * Receives the metrics of every registered connector each time GatewayMetricsRegistry exports them.
+ */
+public interface IMetricsExporter {
+    void export(Collection<GatewayMetrics> metrics);
+}
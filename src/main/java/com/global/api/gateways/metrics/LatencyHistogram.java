@@ -0,0 +1,103 @@
+package com.global.api.gateways.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, lock free histogram of millisecond latencies. Values below 32 get their own bucket
+ * and every power of two above that is split into 16 buckets, so percentiles are accurate to within
+ * about 6% of the value at any scale without storing the samples.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_SHIFT = 36;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + MAX_SHIFT * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public long getCount() {
+        return count.get();
+    }
+    public long getTotal() {
+        return total.get();
+    }
+    public long getMax() {
+        return max.get();
+    }
+    public double getMean() {
+        long samples = getCount();
+        return samples == 0 ? 0 : (double)getTotal() / samples;
+    }
+
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long current;
+        while(value > (current = max.get())) {
+            if(max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value in the bucket holding the given percentile, never more than the max recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long samples = getCount();
+        if(samples == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long)Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * samples));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if(seen >= target) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    private static int bucketIndex(long value) {
+        if(value < LINEAR_BUCKETS) {
+            return (int)value;
+        }
+
+        // keep the top five bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        if(shift > MAX_SHIFT) {
+            return BUCKET_COUNT - 1;
+        }
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int)((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long bucketUpperBound(int index) {
+        if(index < LINEAR_BUCKETS) {
+            return index;
+        }
+
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long magnitude = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((magnitude + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,10 @@
+package com.global.api.gateways.trace;
+
+/**
+ * Turns the raw buffers of a traced exchange into readable text. Only called
+ * when a trace is rendered, so the work is never done for traces nobody reads.
+ */
+public interface INetworkTraceFormatter {
+    String formatRequest(byte[] buffer);
+    String formatResponse(byte[] buffer);
+}
@@ -0,0 +1,94 @@
+package com.global.api.gateways.trace;
+
+import com.global.api.entities.enums.Host;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent exchanges a gateway has had with its host in a fixed
+ * size ring, overwriting the oldest once it is full. Recording only keeps
+ * references to the buffers already built for the wire; nothing is parsed or
+ * formatted until an entry is rendered. The buffers hold card data as sent, so
+ * gateways only keep a trace when it has been turned on.
+ */
+public class NetworkTrace {
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private static final Comparator<NetworkTraceEntry> BY_SEQUENCE = new Comparator<NetworkTraceEntry>() {
+        public int compare(NetworkTraceEntry a, NetworkTraceEntry b) {
+            return a.getSequence() < b.getSequence() ? -1 : (a.getSequence() == b.getSequence() ? 0 : 1);
+        }
+    };
+
+    private final AtomicReferenceArray<NetworkTraceEntry> entries;
+    private final AtomicLong sequence = new AtomicLong();
+    private final INetworkTraceFormatter formatter;
+    private volatile long clearedAt;
+
+    public NetworkTrace(int capacity, INetworkTraceFormatter formatter) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("The trace capacity must be greater than zero.");
+        }
+        this.entries = new AtomicReferenceArray<NetworkTraceEntry>(capacity);
+        this.formatter = formatter;
+    }
+
+    public int getCapacity() {
+        return entries.length();
+    }
+
+    public NetworkTraceEntry record(long timestamp, Host host, byte[] requestBuffer, byte[] responseBuffer, Long responseTime, Long connectTime, TraceOutcome outcome) {
+        long next = sequence.incrementAndGet();
+        NetworkTraceEntry entry = new NetworkTraceEntry(next, timestamp, host, requestBuffer, responseBuffer, responseTime, connectTime, outcome, formatter);
+        entries.set((int)(next % entries.length()), entry);
+        return entry;
+    }
+
+    /**
+     * The most recent exchange, or null if there has not been one.
+     */
+    public NetworkTraceEntry getLast() {
+        long last = sequence.get();
+        if(last <= clearedAt) {
+            return null;
+        }
+
+        NetworkTraceEntry entry = entries.get((int)(last % entries.length()));
+        return entry != null && entry.getSequence() > clearedAt ? entry : null;
+    }
+
+    /**
+     * The exchanges still held, oldest first.
+     */
+    public List<NetworkTraceEntry> getEntries() {
+        List<NetworkTraceEntry> rvalue = new ArrayList<NetworkTraceEntry>(entries.length());
+        for(int i = 0; i < entries.length(); i++) {
+            NetworkTraceEntry entry = entries.get(i);
+            if(entry != null && entry.getSequence() > clearedAt) {
+                rvalue.add(entry);
+            }
+        }
+        Collections.sort(rvalue, BY_SEQUENCE);
+        return rvalue;
+    }
+
+    /**
+     * Drops the exchanges held so far, releasing their buffers.
+     */
+    public void clear() {
+        long cleared = sequence.get();
+        clearedAt = cleared;
+        for(int i = 0; i < entries.length(); i++) {
+            NetworkTraceEntry entry = entries.get(i);
+            // leave anything recorded since in place
+            if(entry != null && entry.getSequence() <= cleared) {
+                entries.compareAndSet(i, entry, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.global.api.gateways.trace;
+
+import com.global.api.entities.enums.Host;
+
+/**
+ * One request and response exchanged with the host. The raw buffers are held
+ * as they went over the wire; the breakdown is rendered by the connector's
+ * formatter only when asked for, with the card data masked.
+ */
+public class NetworkTraceEntry {
+    private final long sequence;
+    private final long timestamp;
+    private final Host host;
+    private final byte[] requestBuffer;
+    private final byte[] responseBuffer;
+    private final Long responseTime;
+    private final Long connectTime;
+    private final TraceOutcome outcome;
+    private final INetworkTraceFormatter formatter;
+
+    NetworkTraceEntry(long sequence, long timestamp, Host host, byte[] requestBuffer, byte[] responseBuffer, Long responseTime, Long connectTime, TraceOutcome outcome, INetworkTraceFormatter formatter) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.host = host;
+        this.requestBuffer = requestBuffer;
+        this.responseBuffer = responseBuffer;
+        this.responseTime = responseTime;
+        this.connectTime = connectTime;
+        this.outcome = outcome;
+        this.formatter = formatter;
+    }
+
+    /**
+     * Position of this exchange in the order the gateway sent them.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+    /**
+     * When the request was sent, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    public Host getHost() {
+        return host;
+    }
+    /**
+     * Milliseconds the host took to answer, or null if it did not answer.
+     */
+    public Long getResponseTime() {
+        return responseTime;
+    }
+    /**
+     * Milliseconds spent connecting, 0 when an open connection was reused.
+     */
+    public Long getConnectTime() {
+        return connectTime;
+    }
+    public TraceOutcome getOutcome() {
+        return outcome;
+    }
+    public int getRequestLength() {
+        return requestBuffer == null ? 0 : requestBuffer.length;
+    }
+    public int getResponseLength() {
+        return responseBuffer == null ? 0 : responseBuffer.length;
+    }
+
+    public String getRequestBreakdown() {
+        if(requestBuffer == null) {
+            return null;
+        }
+        return formatter.formatRequest(requestBuffer);
+    }
+    public String getResponseBreakdown() {
+        if(responseBuffer == null) {
+            return null;
+        }
+        return formatter.formatResponse(responseBuffer);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Trace #").append(sequence)
+                .append(": ").append(outcome)
+                .append(", Host: ").append(host == null ? "None" : host.getValue())
+                .append(", Connect Time: ").append(connectTime)
+                .append(", Response Time: ").append(responseTime)
+                .append("\r\n");
+
+        sb.append("Request Breakdown:\r\n").append(getRequestBreakdown());
+        if(responseBuffer != null) {
+            sb.append("\r\nResponse Breakdown:\r\n").append(getResponseBreakdown());
+        }
+        return sb.toString();
+    }
+}
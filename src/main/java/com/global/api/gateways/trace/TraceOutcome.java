@@ -0,0 +1,13 @@
+package com.global.api.gateways.trace;
+
+/**
+ * How a traced exchange with the host ended.
+ */
+public enum TraceOutcome {
+    /** The host answered. */
+    Response,
+    /** The request was sent but no host answered in time. */
+    Timeout,
+    /** The request could not be sent to any host. */
+    ComsFailure
+}
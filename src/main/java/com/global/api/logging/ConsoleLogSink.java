@@ -0,0 +1,7 @@
+package com.global.api.logging;
+
+public class ConsoleLogSink implements ILogSink {
+    public void write(String message) {
+        System.out.println(message);
+    }
+}
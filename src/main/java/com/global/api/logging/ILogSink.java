@@ -0,0 +1,9 @@
+package com.global.api.logging;
+
+/**
+ * Receives the masked log lines written by the gateways. Lines are handed
+ * over one at a time from a single background thread.
+ */
+public interface ILogSink {
+    void write(String message);
+}
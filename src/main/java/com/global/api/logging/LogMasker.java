@@ -0,0 +1,311 @@
+package com.global.api.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Masks card data in a log line in a single pass over the text.
+ *
+ * Card numbers keep their first six and last four digits. When track data
+ * masking is on, the data after the card number on track 1 (after the name)
+ * and track 2 (after the '=') is masked too. The values of the configured
+ * field names are masked in full wherever they appear as an XML element,
+ * an attribute, a JSON property, a form field or a "name: value" line.
+ */
+public class LogMasker {
+    private static final int MAX_CARD_LENGTH = 19;
+    private static final int MAX_TRACK_NAME = 26;
+    private static final int MAX_TRACK_DATA = 79;
+
+    private static final String[] DEFAULT_FIELDS = {
+            "cvv", "cvv2", "cvn", "cvc", "cvc2", "cvd",
+            "pinblock", "pin_block",
+            "DE_035", "DE_045", "DE_052", "DE_055"
+    };
+
+    private static final LogMasker panMasker = new LogMasker(false, new String[0]);
+    private static final LogMasker defaultMasker = new LogMasker(true, DEFAULT_FIELDS);
+
+    private boolean maskTrackData;
+    // field names in lower case, grouped by their first character
+    private char[][][] fieldsByFirstChar = new char[128][][];
+
+    /**
+     * Masks card numbers only, the way StringUtils.mask always has.
+     */
+    public static LogMasker getPanMasker() {
+        return panMasker;
+    }
+
+    /**
+     * Masks card numbers, track data, security codes, PIN blocks and the
+     * ISO 8583 card data elements (DE 35, 45, 52 and 55).
+     */
+    public static LogMasker getDefault() {
+        return defaultMasker;
+    }
+
+    public LogMasker(String... fieldNames) {
+        this(true, fieldNames);
+    }
+
+    private LogMasker(boolean maskTrackData, String[] fieldNames) {
+        this.maskTrackData = maskTrackData;
+
+        List<List<char[]>> grouped = new ArrayList<List<char[]>>();
+        for(int i = 0; i < 128; i++) {
+            grouped.add(null);
+        }
+        for(String fieldName: fieldNames) {
+            char[] name = fieldName.toLowerCase().toCharArray();
+            if(name.length == 0 || name[0] >= 128)
+                throw new IllegalArgumentException(String.format("%s cannot be used as a masked field name.", fieldName));
+
+            if(grouped.get(name[0]) == null)
+                grouped.set(name[0], new ArrayList<char[]>());
+            grouped.get(name[0]).add(name);
+        }
+        for(int i = 0; i < 128; i++) {
+            if(grouped.get(i) != null)
+                fieldsByFirstChar[i] = grouped.get(i).toArray(new char[0][]);
+        }
+    }
+
+    public String mask(String value) {
+        if(value == null)
+            return null;
+
+        StringBuilder sb = null;
+        int copied = 0;
+        int length = value.length();
+        int i = 0;
+        while(i < length) {
+            char c = value.charAt(i);
+            if(isDigit(c)) {
+                boolean track1 = i >= 2 && value.charAt(i - 1) == 'B' && value.charAt(i - 2) == '%';
+                int end = (i == 0 || !isWordChar(value.charAt(i - 1)) || track1) ? findCard(value, i) : -1;
+                if(end > 0) {
+                    if(sb == null)
+                        sb = new StringBuilder(length);
+                    sb.append(value, copied, i);
+                    appendCard(sb, value, i, end);
+                    if(maskTrackData && end < length)
+                        end = appendTrackData(sb, value, end, track1);
+                    i = copied = end;
+                    continue;
+                }
+            }
+            else if(c < 128 && fieldsByFirstChar[Character.toLowerCase(c)] != null && isFieldStart(value, i)) {
+                int valueStart = findFieldValue(value, i);
+                if(valueStart > 0) {
+                    if(sb == null)
+                        sb = new StringBuilder(length);
+                    sb.append(value, copied, valueStart);
+
+                    int end = findFieldEnd(value, valueStart);
+                    for(int j = valueStart; j < end; j++) {
+                        sb.append('X');
+                    }
+                    i = copied = end;
+                    continue;
+                }
+            }
+            i++;
+        }
+
+        if(sb == null)
+            return value;
+        return sb.append(value, copied, length).toString();
+    }
+
+    // finds the end of the longest card number starting at the given position that ends on a word boundary, or -1 if there isn't one
+    private int findCard(String value, int start) {
+        int prefix = 0;
+        int count = 0;
+        int end = -1;
+        for(int i = start; i < value.length() && count < MAX_CARD_LENGTH; i++) {
+            char c = value.charAt(i);
+            if(isDigit(c)) {
+                if(count < 4)
+                    prefix = prefix * 10 + (c - '0');
+                count++;
+                if(count >= 13 && (i + 1 == value.length() || !isWordChar(value.charAt(i + 1))) && isCardNumber(prefix, count))
+                    end = i + 1;
+            }
+            else if(c != ' ' && c != '-') {
+                break;
+            }
+        }
+        return end;
+    }
+
+    // the first six and last four digits are kept, without the separators
+    private void appendCard(StringBuilder sb, String value, int start, int end) {
+        int cardLength = 0;
+        for(int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if(isDigit(c))
+                cardLength++;
+        }
+
+        int position = 0;
+        for(int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if(isDigit(c)) {
+                sb.append(position < 6 || position >= cardLength - 4 ? c : 'X');
+                position++;
+            }
+        }
+    }
+
+    private int appendTrackData(StringBuilder sb, String value, int start, boolean track1) {
+        int i = start;
+        char separator = value.charAt(i);
+        if(separator == '=') {
+            // track 2: expiry, service code and discretionary data
+            sb.append(separator);
+            for(i++; i < value.length() && i - start <= MAX_TRACK_DATA && isDigit(value.charAt(i)); i++) {
+                sb.append('X');
+            }
+            return i;
+        }
+
+        if(separator == '^' && track1) {
+            // track 1: the name is left alone, everything after it is masked
+            int nameEnd = value.indexOf('^', i + 1);
+            if(nameEnd < 0 || nameEnd - i > MAX_TRACK_NAME + 1)
+                return start;
+
+            sb.append(value, i, nameEnd + 1);
+            for(i = nameEnd + 1; i < value.length() && i - nameEnd <= MAX_TRACK_DATA && isTrackDataChar(value.charAt(i)); i++) {
+                sb.append('X');
+            }
+            return i;
+        }
+        return start;
+    }
+
+    // finds where the value of a masked field named at the given position starts, or -1 if there isn't one
+    private int findFieldValue(String value, int start) {
+        int length = value.length();
+        for(char[] name: fieldsByFirstChar[Character.toLowerCase(value.charAt(start))]) {
+            int i = start + name.length;
+            if(i > length || !matches(value, start, name) || (i < length && isWordChar(value.charAt(i))))
+                continue;
+
+            // the end of the name: a closing quote, then the separator
+            if(i < length && value.charAt(i) == '"')
+                i++;
+            i = skipSpaces(value, i);
+            if(i == length)
+                continue;
+
+            char separator = value.charAt(i);
+            if(separator != '>' && separator != ':' && separator != '=')
+                continue;
+            i = skipSpaces(value, i + 1);
+
+            if(separator == '>') {
+                // the value may sit in a child element, as in <cvn><number>123</number>
+                while(i + 1 < length && value.charAt(i) == '<' && value.charAt(i + 1) != '/') {
+                    int tagEnd = value.indexOf('>', i);
+                    if(tagEnd < 0 || value.charAt(tagEnd - 1) == '/')
+                        break;
+                    i = skipSpaces(value, tagEnd + 1);
+                }
+            }
+
+            if(i < length && (value.charAt(i) == '"' || value.charAt(i) == '\''))
+                i++;
+            return i;
+        }
+        return -1;
+    }
+
+    // the value runs to its closing quote, the next tag, or the end of the field
+    private static int findFieldEnd(String value, int start) {
+        int opener = start - 1;
+        while(value.charAt(opener) == ' ')
+            opener--;
+        char separator = value.charAt(opener);
+
+        int i = start;
+        for(; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(separator == '"' || separator == '\'') {
+                if(c == separator)
+                    break;
+            }
+            else if(separator == '>') {
+                if(c == '<')
+                    break;
+            }
+            else if(c == '\r' || c == '\n' || c == '&' || c == '<' || c == ',' || c == '}' || c == '"' || (separator == '=' && c == ' ')) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    // checks the leading four digits against the card brands' ranges for the given length
+    private static boolean isCardNumber(int first4, int length) {
+        int first2 = first4 / 100;
+        switch(length) {
+            case 13:
+                return first2 / 10 == 4;
+            case 14:
+                return (first4 >= 3000 && first4 <= 3059) || first2 == 36 || first2 == 38;
+            case 15:
+                return first2 == 34 || first2 == 37 || first4 == 2131 || first4 == 1800;
+            case 16:
+                return first2 / 10 == 4
+                        || (first2 >= 51 && first2 <= 55)
+                        || (first4 >= 2221 && first4 <= 2720)
+                        || first4 == 6011 || first2 == 65
+                        || first2 == 35;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean matches(String value, int start, char[] name) {
+        for(int i = 0; i < name.length; i++) {
+            if(Character.toLowerCase(value.charAt(start + i)) != name[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int skipSpaces(String value, int i) {
+        while(i < value.length() && value.charAt(i) == ' ')
+            i++;
+        return i;
+    }
+
+    // a name starts a field unless it is inside a word or names a closing tag, a namespace prefix counts as part of the name
+    private static boolean isFieldStart(String value, int start) {
+        int i = start - 1;
+        if(i >= 1 && value.charAt(i) == ':' && isWordChar(value.charAt(i - 1))) {
+            i--;
+            while(i >= 0 && isWordChar(value.charAt(i)))
+                i--;
+        }
+        if(i < 0)
+            return true;
+
+        char previous = value.charAt(i);
+        return !isWordChar(previous) && previous != '/';
+    }
+
+    private static boolean isTrackDataChar(char c) {
+        return c != '?' && c != '<' && c != '"' && c != '|' && c != ';' && c != '&' && c >= ' ';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+}
@@ -0,0 +1,143 @@
+package com.global.api.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the gateways' request and response logging from a background thread.
+ *
+ * Callers only queue the raw message; rendering it to text, masking and
+ * writing to the sink happen on the logging thread, so a slow sink never
+ * holds up a transaction. When the
+ * queue is full new lines are dropped and counted rather than waited on.
+ */
+public class RequestLogger {
+    private static final int DEFAULT_CAPACITY = 10000;
+    private static RequestLogger instance;
+
+    private final BlockingQueue<Object[]> queue;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile ILogSink sink = new ConsoleLogSink();
+    private volatile LogMasker masker = LogMasker.getDefault();
+    private Thread worker;
+    private int pending;
+    private boolean shutdownHookAdded;
+
+    public static synchronized RequestLogger getInstance() {
+        if(instance == null)
+            instance = new RequestLogger(DEFAULT_CAPACITY);
+        return instance;
+    }
+
+    RequestLogger(int capacity) {
+        queue = new ArrayBlockingQueue<Object[]>(capacity);
+    }
+
+    public ILogSink getSink() {
+        return sink;
+    }
+    public void setSink(ILogSink sink) {
+        this.sink = (sink != null) ? sink : new ConsoleLogSink();
+    }
+    public LogMasker getMasker() {
+        return masker;
+    }
+    public void setMasker(LogMasker masker) {
+        this.masker = (masker != null) ? masker : LogMasker.getDefault();
+    }
+    /**
+     * Number of lines dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Queues a line made of the label followed by the masked message. The
+     * message is turned into text with toString on the logging thread, so it
+     * must not change once it has been queued.
+     */
+    public void log(String label, Object message) {
+        synchronized (this) {
+            if(!queue.offer(new Object[] { label, message })) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            pending++;
+            if(worker == null)
+                start();
+        }
+    }
+
+    /**
+     * Waits until every queued line has been written, or the timeout has passed.
+     * Returns false if lines were still waiting when it gave up.
+     */
+    public synchronized boolean flush(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while(pending > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if(remaining <= 0)
+                return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void start() {
+        worker = new Thread(new Runnable() {
+            public void run() {
+                while(true) {
+                    Object[] entry;
+                    try {
+                        entry = queue.poll(60, TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException exc) {
+                        entry = null;
+                    }
+
+                    synchronized (RequestLogger.this) {
+                        if(entry == null) {
+                            // idle; let the thread go until there is something to write
+                            if(queue.isEmpty()) {
+                                worker = null;
+                                return;
+                            }
+                            continue;
+                        }
+                    }
+
+                    try {
+                        String message = entry[1] == null ? "" : masker.mask(entry[1].toString());
+                        sink.write(entry[0] == null ? message : entry[0] + message);
+                    }
+                    catch(RuntimeException exc) {
+                        /* a failing sink must not stop the logging thread */
+                    }
+                    finally {
+                        synchronized (RequestLogger.this) {
+                            pending--;
+                            RequestLogger.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        }, "RequestLogger");
+        worker.setDaemon(true);
+        worker.start();
+
+        if(shutdownHookAdded)
+            return;
+        shutdownHookAdded = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                try {
+                    flush(1000);
+                }
+                catch(InterruptedException exc) { /* exiting anyway */ }
+            }
+        }));
+    }
+}
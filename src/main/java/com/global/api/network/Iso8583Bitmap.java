@@ -1,83 +1,130 @@
 package com.global.api.network;
 
 import com.global.api.network.enums.DataElementId;
-import com.global.api.utils.ReverseIntEnumMap;
-import com.global.api.utils.StringUtils;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public class Iso8583Bitmap {
-    private String binaryValue;
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+    private static final DataElementId[] DATA_ELEMENTS;
+    static {
+        int maxValue = 0;
+        for(DataElementId id: DataElementId.values()) {
+            maxValue = Math.max(maxValue, id.getValue());
+        }
+
+        DATA_ELEMENTS = new DataElementId[maxValue + 1];
+        for(DataElementId id: DataElementId.values()) {
+            DATA_ELEMENTS[id.getValue()] = id;
+        }
+    }
+
+    // bit n of the bitmap is bit (n % 64) of word (n / 64), so iteration can use numberOfTrailingZeros
+    private long[] words;
+    private int length;
     private int offset;
     private int currIndex = -1;
 
-    private ReverseIntEnumMap<DataElementId> dataElementMap;
-
     public Iso8583Bitmap(byte[] bytes) {
         this(bytes, 0);
     }
     public Iso8583Bitmap(byte[] bytes, int offset) {
         this.offset = offset;
-
-        StringBuilder sb = new StringBuilder();
-        for(byte b: bytes) {
-            sb.append(Integer.toBinaryString((b & 0xFF) + 0x100).substring(1));
+        this.length = bytes.length * 8;
+        this.words = new long[(length + 63) >>> 6];
+
+        for(int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            while(b != 0) {
+                // highest bit in the byte is the lowest element number
+                int bit = Integer.numberOfLeadingZeros(b) - 24;
+                int index = (i << 3) + bit;
+                words[index >>> 6] |= 1L << (index & 63);
+                b &= ~(0x80 >>> bit);
+            }
         }
-
-        binaryValue = sb.toString();
-        dataElementMap = new ReverseIntEnumMap<DataElementId>(DataElementId.class);
     }
 
     public boolean isPresent(DataElementId element) {
-        return binaryValue.charAt(element.getValue() - offset) == '1';
+        int index = element.getValue() - offset;
+        return (words[index >>> 6] & (1L << (index & 63))) != 0;
     }
 
     public DataElementId getNextDataElement() {
-        // get the next set value
-        char value;
-        do {
-            // return null if end of string
-            if(++currIndex >= binaryValue.length()) {
-                return null;
+        int from = currIndex + 1;
+        while(from < length) {
+            int wordIndex = from >>> 6;
+            long word = words[wordIndex] & (-1L << (from & 63));
+            if(word != 0) {
+                currIndex = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                if(currIndex >= length) {
+                    break;
+                }
+
+                // return the enum value
+                int value = currIndex + offset;
+                return value < DATA_ELEMENTS.length ? DATA_ELEMENTS[value] : null;
             }
-
-            value = binaryValue.charAt(currIndex);
+            from = (wordIndex + 1) << 6;
         }
-        while (value == '0');
 
-        // return the enum value
-        return dataElementMap.get(currIndex + offset);
+        // end of the bitmap
+        currIndex = length;
+        return null;
     }
 
     void setDataElement(DataElementId element) {
-        StringBuilder sb = new StringBuilder(binaryValue);
-        sb.setCharAt(element.getValue() - offset, '1');
-        binaryValue = sb.toString();
+        int index = element.getValue() - offset;
+        words[index >>> 6] |= 1L << (index & 63);
     }
 
     public String toBinaryString() {
-        return binaryValue;
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++) {
+            chars[i] = (words[i >>> 6] & (1L << (i & 63))) != 0 ? '1' : '0';
+        }
+        return new String(chars);
     }
     public String toHexString() {
-        StringBuilder sb = new StringBuilder();
-
-        for(int i = 0; i < binaryValue.length(); i += 8) {
-            int decimal = Integer.parseInt(binaryValue.substring(i, i + 8), 2);
-            String hexValue = Integer.toString(decimal, 16);
-            sb.append(StringUtils.padLeft(hexValue, 2, '0'));
+        char[] chars = new char[length >>> 2];
+        for(int i = 0; i < chars.length; i++) {
+            chars[i] = HEX_CHARS[getNibble(i)];
         }
-
-        return sb.toString();
+        return new String(chars);
     }
     public byte[] toByteArray() {
-        String s = toHexString();
-
-        byte[] b = new byte[s.length() / 2];
-        for (int i = 0; i < b.length; i++) {
-            int index = i * 2;
-            int v = Integer.parseInt(s.substring(index, index + 2), 16);
-            b[i] = (byte) v;
+        byte[] b = new byte[length >>> 3];
+        for(int i = 0; i < b.length; i++) {
+            b[i] = getByte(i);
         }
         return b;
     }
+
+    void writeTo(ByteBuffer buffer, boolean asHexString) {
+        if(asHexString) {
+            for(int i = 0; i < length >>> 2; i++) {
+                buffer.put((byte)HEX_CHARS[getNibble(i)]);
+            }
+        }
+        else {
+            for(int i = 0; i < length >>> 3; i++) {
+                buffer.put(getByte(i));
+            }
+        }
+    }
+    int getEncodedLength(boolean asHexString) {
+        return asHexString ? length >>> 2 : length >>> 3;
+    }
+
+    private byte getByte(int byteIndex) {
+        int index = byteIndex << 3;
+        int value = (int)(words[index >>> 6] >>> (index & 63)) & 0xFF;
+
+        // element order within the byte runs from the high bit down
+        return (byte)(Integer.reverse(value) >>> 24);
+    }
+    private int getNibble(int nibbleIndex) {
+        int value = getByte(nibbleIndex >>> 1) & 0xFF;
+        return (nibbleIndex & 1) == 0 ? value >>> 4 : value & 0x0F;
+    }
 }
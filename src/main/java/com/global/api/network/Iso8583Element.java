@@ -4,8 +4,8 @@ import com.global.api.network.abstractions.IDataElement;
 import com.global.api.network.enums.DataElementType;
 import com.global.api.network.enums.DataElementId;
 import com.global.api.utils.MessageReader;
-import com.global.api.utils.MessageWriter;
-import com.global.api.utils.StringUtils;
+
+import java.nio.ByteBuffer;
 
 public class Iso8583Element {
     private DataElementId id;
@@ -14,6 +14,15 @@ public class Iso8583Element {
     private Integer length;
     private byte[] buffer;
 
+    // parsed elements point into the received message and are only copied out when read
+    private byte[] source;
+    private int sourceOffset;
+    private int sourceLength;
+
+    // decoded forms of the value, built on first access
+    private String stringValue;
+    private Object concrete;
+
     public DataElementId getId() {
         return id;
     }
@@ -27,29 +36,75 @@ public class Iso8583Element {
         return length;
     }
     public byte[] getBuffer() {
+        if(buffer == null && source != null) {
+            buffer = new byte[sourceLength];
+
+            // a truncated message leaves the missing bytes zeroed
+            int available = Math.min(sourceLength, source.length - sourceOffset);
+            if(available > 0) {
+                System.arraycopy(source, sourceOffset, buffer, 0, available);
+            }
+        }
         return buffer;
     }
+    String getString() {
+        if(stringValue == null && hasValue()) {
+            stringValue = new String(getBuffer());
+        }
+        return stringValue;
+    }
+    private boolean hasValue() {
+        return buffer != null || source != null;
+    }
+    private int getValueLength() {
+        return buffer != null ? buffer.length : sourceLength;
+    }
     byte[] getSendBuffer() {
-        if(buffer == null) {
-            return new byte[0];
+        byte[] sendBuffer = new byte[getSendLength()];
+        writeTo(ByteBuffer.wrap(sendBuffer));
+        return sendBuffer;
+    }
+    int getSendLength() {
+        if(!hasValue()) {
+            return 0;
+        }
+        return getLengthDigits() + getValueLength();
+    }
+    void writeTo(ByteBuffer sendBuffer) {
+        if(!hasValue()) {
+            return;
         }
 
+        // variable length elements are prefixed with their length as zero padded ascii digits
+        int digits = getLengthDigits();
+        int position = sendBuffer.position();
+        int value = getValueLength();
+        for(int i = digits - 1; i >= 0; i--) {
+            sendBuffer.put(position + i, (byte)('0' + (value % 10)));
+            value /= 10;
+        }
+        sendBuffer.position(position + digits);
+        if(buffer == null && sourceOffset + sourceLength <= source.length) {
+            sendBuffer.put(source, sourceOffset, sourceLength);
+        }
+        else {
+            sendBuffer.put(getBuffer());
+        }
+    }
+    private int getLengthDigits() {
+        int digits;
         switch (type) {
-            case LVAR:
-            case LLVAR:
-            case LLLVAR: {
-                String length = StringUtils.padLeft(buffer.length, type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3, '0');
-
-                MessageWriter mw = new MessageWriter();
-                mw.addRange(length.getBytes());
-                mw.addRange(buffer);
+            case LVAR: digits = 1; break;
+            case LLVAR: digits = 2; break;
+            case LLLVAR: digits = 3; break;
+            default: return 0;
+        }
 
-                return mw.toArray();
-            }
-            default: {
-                return buffer;
-            }
+        // an oversized value keeps all of its length digits
+        for(int limit = (int)Math.pow(10, digits); getValueLength() >= limit; limit *= 10) {
+            digits++;
         }
+        return digits;
     }
 
     private Iso8583Element() {}
@@ -76,22 +131,33 @@ public class Iso8583Element {
             case LLVAR:
             case LLLVAR: {
                 String lengthStr = mr.readString(type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3);
-                Integer actualLength = Integer.parseInt(lengthStr);
-                element.buffer = mr.readBytes(actualLength);
+                element.setSource(mr, Integer.parseInt(lengthStr));
             }
             break;
             default: {
-                element.buffer = mr.readBytes(length);
+                element.setSource(mr, length);
             }
         }
 
         return element;
     }
 
+    private void setSource(MessageReader mr, int length) {
+        source = mr.getBuffer();
+        sourceOffset = mr.getPosition();
+        sourceLength = length;
+        mr.skip(length);
+    }
+
     <TResult extends IDataElement<TResult>> TResult getConcrete(Class<TResult> clazz) {
+        if(clazz.isInstance(concrete)) {
+            return clazz.cast(concrete);
+        }
+
         try {
-            TResult rvalue = clazz.newInstance();
-            return rvalue.fromByteArray(buffer);
+            TResult rvalue = clazz.newInstance().fromByteArray(getBuffer());
+            concrete = rvalue;
+            return rvalue;
         }
         catch(Exception exc) {
             return null;
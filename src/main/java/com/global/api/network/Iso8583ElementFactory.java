@@ -5,23 +5,39 @@ import com.global.api.network.enums.DataElementType;
 import com.global.api.utils.MessageReader;
 import com.global.api.network.enums.Iso8583MessageType;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 
 class Iso8583ElementFactory {
-    private HashMap<DataElementId, String> elementDescriptions;
-    private HashMap<DataElementId, Integer> elementLengths;
-    private HashMap<DataElementId, DataElementType> elementTypes;
-    private MessageReader messageReader;
+    /**
+     * How an element's value is shown when a message is rendered for diagnostics.
+     */
+    enum Masking {
+        None,
+        // the first six and last four characters are kept
+        Account,
+        Full
+    }
+
+    private static final EnumMap<Iso8583MessageType, Iso8583ElementFactory> factories;
+    static {
+        factories = new EnumMap<Iso8583MessageType, Iso8583ElementFactory>(Iso8583MessageType.class);
+        for(Iso8583MessageType messageType: Iso8583MessageType.values()) {
+            factories.put(messageType, buildFactory(messageType));
+        }
+    }
+
+    // element definitions indexed by the data element value, never modified once built
+    private final ElementDefinition[] definitions;
 
     static Iso8583ElementFactory getConfiguredFactory(Iso8583MessageType messageType) {
-        return getConfiguredFactory(null, messageType);
+        return factories.get(messageType);
     }
-    static Iso8583ElementFactory getConfiguredFactory(MessageReader mr, Iso8583MessageType messageType) {
-        Iso8583ElementFactory factory = new Iso8583ElementFactory(mr);
+    private static Iso8583ElementFactory buildFactory(Iso8583MessageType messageType) {
+        Iso8583ElementFactory factory = new Iso8583ElementFactory();
 
         if(messageType.equals(Iso8583MessageType.CompleteMessage)) {
             factory.addElementMapping(DataElementId.DE_001, DataElementType.BINARY, "Secondary BitmapElement", 8);
-            factory.addElementMapping(DataElementId.DE_002, DataElementType.LLVAR, "Primary Account Number (PAN)", 19);
+            factory.addElementMapping(DataElementId.DE_002, DataElementType.LLVAR, "Primary Account Number (PAN)", 19, Masking.Account);
             factory.addElementMapping(DataElementId.DE_003, DataElementType.NUMERIC, "Processing Code", 6);
             factory.addElementMapping(DataElementId.DE_004, DataElementType.NUMERIC, "Amount, Transaction", 12);
             factory.addElementMapping(DataElementId.DE_007, DataElementType.NUMERIC, "Date and Time, Transmission", 10);
@@ -39,8 +55,8 @@ class Iso8583ElementFactory {
             factory.addElementMapping(DataElementId.DE_028, DataElementType.NUMERIC, "Date, Reconciliation", 6);
             factory.addElementMapping(DataElementId.DE_030, DataElementType.NUMERIC, "Amounts, Original", 24);
             factory.addElementMapping(DataElementId.DE_032, DataElementType.LLVAR, "Acquiring Institution Identification Code", 11);
-            factory.addElementMapping(DataElementId.DE_034, DataElementType.LLVAR, "Primary Account Number, Extended", 28);
-            factory.addElementMapping(DataElementId.DE_035, DataElementType.LLVAR, "Track 2 Data", 37);
+            factory.addElementMapping(DataElementId.DE_034, DataElementType.LLVAR, "Primary Account Number, Extended", 28, Masking.Account);
+            factory.addElementMapping(DataElementId.DE_035, DataElementType.LLVAR, "Track 2 Data", 37, Masking.Full);
             factory.addElementMapping(DataElementId.DE_037, DataElementType.ALPHA_NUMERIC_PAD, "Retrieval Reference Number", 12);
             factory.addElementMapping(DataElementId.DE_038, DataElementType.ALPHA_NUMERIC_PAD, "Approval Code", 6);
             factory.addElementMapping(DataElementId.DE_039, DataElementType.NUMERIC, "Action Code", 3);
@@ -48,15 +64,15 @@ class Iso8583ElementFactory {
             factory.addElementMapping(DataElementId.DE_042, DataElementType.ALPHA_NUMERIC_SPECIAL, "Card Acceptor Identification Code", 15);
             factory.addElementMapping(DataElementId.DE_043, DataElementType.LLVAR, "Card Acceptor Name/Location", 99);
             factory.addElementMapping(DataElementId.DE_044, DataElementType.LLVAR, "Additional Response Data", 99);
-            factory.addElementMapping(DataElementId.DE_045, DataElementType.LLVAR, "Track 1 Data", 76);
+            factory.addElementMapping(DataElementId.DE_045, DataElementType.LLVAR, "Track 1 Data", 76, Masking.Full);
             factory.addElementMapping(DataElementId.DE_046, DataElementType.LLLVAR, "Amounts, Fees", 204);
             factory.addElementMapping(DataElementId.DE_048, DataElementType.LLLVAR, "Message Control", 999);
             factory.addElementMapping(DataElementId.DE_049, DataElementType.NUMERIC, "Currency Code, Transaction", 3);
             factory.addElementMapping(DataElementId.DE_050, DataElementType.NUMERIC, "Currency Code, Reconciliation", 3);
-            factory.addElementMapping(DataElementId.DE_052, DataElementType.BINARY, "Personal Identification Number (PIN) Data", 8);
+            factory.addElementMapping(DataElementId.DE_052, DataElementType.BINARY, "Personal Identification Number (PIN) Data", 8, Masking.Full);
             factory.addElementMapping(DataElementId.DE_053, DataElementType.LLVAR, "Security Related Control Information", 48);
             factory.addElementMapping(DataElementId.DE_054, DataElementType.LLLVAR, "Amounts, Additional", 120);
-            factory.addElementMapping(DataElementId.DE_055, DataElementType.LLLVAR, "Integrated Circuit Card (ICC) Data", 512);
+            factory.addElementMapping(DataElementId.DE_055, DataElementType.LLLVAR, "Integrated Circuit Card (ICC) Data", 512, Masking.Full);
             factory.addElementMapping(DataElementId.DE_056, DataElementType.LLVAR, "Original Data Elements", 35);
             factory.addElementMapping(DataElementId.DE_058, DataElementType.LLVAR, "Authorizing Agent Institution Identification Code", 11);
             factory.addElementMapping(DataElementId.DE_059, DataElementType.LLLVAR, "Transport Data", 999);
@@ -66,8 +82,8 @@ class Iso8583ElementFactory {
             factory.addElementMapping(DataElementId.DE_073, DataElementType.NUMERIC, "Date, Action", 6);
             factory.addElementMapping(DataElementId.DE_096, DataElementType.LLLVAR, "Key Management Data", 999);
             factory.addElementMapping(DataElementId.DE_097, DataElementType.NUMERIC, "Amount, Net Reconciliation", 16);
-            factory.addElementMapping(DataElementId.DE_102, DataElementType.LLVAR, "Account Identification 1", 28);
-            factory.addElementMapping(DataElementId.DE_103, DataElementType.LLVAR, "Check MICR Data (Account Identification 2)", 28);
+            factory.addElementMapping(DataElementId.DE_102, DataElementType.LLVAR, "Account Identification 1", 28, Masking.Account);
+            factory.addElementMapping(DataElementId.DE_103, DataElementType.LLVAR, "Check MICR Data (Account Identification 2)", 28, Masking.Account);
             factory.addElementMapping(DataElementId.DE_115, DataElementType.LLLVAR, "eWIC Overflow Data", 999);
             factory.addElementMapping(DataElementId.DE_116, DataElementType.LLLVAR, "eWIC Overflow Data", 999);
             factory.addElementMapping(DataElementId.DE_117, DataElementType.LLLVAR, "eWIC Data", 999);
@@ -86,8 +102,8 @@ class Iso8583ElementFactory {
             factory.addElementMapping(DataElementId.DE_006, DataElementType.LVAR, "Clerk Id", 9);
             factory.addElementMapping(DataElementId.DE_007, DataElementType.NUMERIC, "Multiple Transaction Control", 9);
             factory.addElementMapping(DataElementId.DE_008, DataElementType.LLLVAR, "Customer Data", 250);
-            factory.addElementMapping(DataElementId.DE_009, DataElementType.LLVAR, "Track 2 for Second Card", 37);
-            factory.addElementMapping(DataElementId.DE_010, DataElementType.LLVAR, "Track 1 for Second Card", 76);
+            factory.addElementMapping(DataElementId.DE_009, DataElementType.LLVAR, "Track 2 for Second Card", 37, Masking.Full);
+            factory.addElementMapping(DataElementId.DE_010, DataElementType.LLVAR, "Track 1 for Second Card", 76, Masking.Full);
             factory.addElementMapping(DataElementId.DE_011, DataElementType.ALPHA_NUMERIC_PAD, "Card Type", 4);
             factory.addElementMapping(DataElementId.DE_012, DataElementType.BINARY, "Administratively Directed Task", 1);
             factory.addElementMapping(DataElementId.DE_013, DataElementType.LLVAR, "RFID Data", 99);
@@ -96,7 +112,7 @@ class Iso8583ElementFactory {
             factory.addElementMapping(DataElementId.DE_034, DataElementType.LLVAR, "Message Configuration", 99);
             factory.addElementMapping(DataElementId.DE_035, DataElementType.LLVAR, "Name 1", 99);
             factory.addElementMapping(DataElementId.DE_036, DataElementType.LLVAR, "Name 2", 99);
-            factory.addElementMapping(DataElementId.DE_037, DataElementType.LLVAR, "Secondary Account Number", 28);
+            factory.addElementMapping(DataElementId.DE_037, DataElementType.LLVAR, "Secondary Account Number", 28, Masking.Account);
             factory.addElementMapping(DataElementId.DE_039, DataElementType.LLVAR, "Prior Message Information", 99);
             factory.addElementMapping(DataElementId.DE_040, DataElementType.LLVAR, "Address 1", 99);
             factory.addElementMapping(DataElementId.DE_041, DataElementType.LLVAR, "Address 2", 99);
@@ -113,31 +129,52 @@ class Iso8583ElementFactory {
         return factory;
     }
 
-    private Iso8583ElementFactory(MessageReader mr) {
-        messageReader = mr;
-        elementTypes = new HashMap<DataElementId, DataElementType>();
-        elementDescriptions = new HashMap<DataElementId, String>();
-        elementLengths = new HashMap<DataElementId, Integer>();
+    private Iso8583ElementFactory() {
+        int maxValue = 0;
+        for(DataElementId id: DataElementId.values()) {
+            maxValue = Math.max(maxValue, id.getValue());
+        }
+        definitions = new ElementDefinition[maxValue + 1];
     }
 
     private void addElementMapping(DataElementId id, DataElementType type, String description, int length) {
-        elementTypes.put(id, type);
-        elementDescriptions.put(id, description);
-        elementLengths.put(id, length);
+        addElementMapping(id, type, description, length, Masking.None);
+    }
+    private void addElementMapping(DataElementId id, DataElementType type, String description, int length, Masking masking) {
+        definitions[id.getValue()] = new ElementDefinition(type, description, length, masking);
     }
 
-    Iso8583Element createElement(DataElementId id) {
-        DataElementType type = elementTypes.get(id);
-        String description = elementDescriptions.get(id);
-        Integer length = elementLengths.get(id);
+    Masking getMasking(DataElementId id) {
+        ElementDefinition definition = definitions[id.getValue()];
+        return definition == null ? Masking.None : definition.masking;
+    }
 
-        return Iso8583Element.inflate(id, type, description, length, messageReader);
+    Iso8583Element createElement(DataElementId id, MessageReader mr) {
+        ElementDefinition definition = definitions[id.getValue()];
+        if(definition == null) {
+            return Iso8583Element.inflate(id, null, null, null, mr);
+        }
+        return Iso8583Element.inflate(id, definition.type, definition.description, definition.length, mr);
     }
     Iso8583Element createElement(DataElementId id, byte[] buffer) {
-        DataElementType type = elementTypes.get(id);
-        String description = elementDescriptions.get(id);
-        Integer length = elementLengths.get(id);
+        ElementDefinition definition = definitions[id.getValue()];
+        if(definition == null) {
+            return Iso8583Element.inflate(id, null, null, null, buffer);
+        }
+        return Iso8583Element.inflate(id, definition.type, definition.description, definition.length, buffer);
+    }
+
+    private static class ElementDefinition {
+        private final DataElementType type;
+        private final String description;
+        private final Integer length;
+        private final Masking masking;
 
-        return Iso8583Element.inflate(id, type, description, length, buffer);
+        ElementDefinition(DataElementType type, String description, Integer length, Masking masking) {
+            this.type = type;
+            this.description = description;
+            this.length = length;
+            this.masking = masking;
+        }
     }
 }
@@ -3,6 +3,7 @@ package com.global.api.network;
 import com.global.api.entities.enums.IByteConstant;
 import com.global.api.entities.enums.IStringConstant;
 import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.logging.LogMasker;
 import com.global.api.network.abstractions.IDataElement;
 import com.global.api.network.enums.DataElementId;
 import com.global.api.utils.*;
@@ -10,6 +11,7 @@ import com.global.api.network.enums.Iso8583MessageType;
 import org.joda.time.DateTime;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -56,9 +58,6 @@ public class NetworkMessage {
     private void setBitmap(Iso8583Bitmap bitmap) {
         this.bitmap = bitmap;
     }
-    private void setFactory(Iso8583ElementFactory factory) {
-        this.factory = factory;
-    }
 
     public NetworkMessage() {
         this(Iso8583MessageType.CompleteMessage);
@@ -76,7 +75,7 @@ public class NetworkMessage {
     public BigDecimal getAmount(DataElementId id) {
         if(elements.containsKey(id)) {
             Iso8583Element element = elements.get(id);
-            return StringUtils.toAmount(new String(element.getBuffer()));
+            return StringUtils.toAmount(element.getString());
         }
         return null;
     }
@@ -102,7 +101,7 @@ public class NetworkMessage {
     public String getString(DataElementId id) {
         if(elements.containsKey(id)) {
             Iso8583Element element = elements.get(id);
-            return new String(element.getBuffer());
+            return element.getString();
         }
         return null;
     }
@@ -117,11 +116,12 @@ public class NetworkMessage {
     public <TResult extends Enum<TResult> & IStringConstant> TResult getStringConstant(DataElementId id, Class<TResult> clazz) {
         if(elements.containsKey(id)) {
             Iso8583Element element = elements.get(id);
-            String value = new String(element.getBuffer());
+            String value = element.getString();
 
-            TResult rvalue = ReverseStringEnumMap.parse(StringUtils.trim(value), clazz);
+            ReverseStringEnumMap<TResult> map = ReverseStringEnumMap.forType(clazz);
+            TResult rvalue = map.get(StringUtils.trim(value));
             if(rvalue == null) {
-                rvalue = ReverseStringEnumMap.parse(value, clazz);
+                rvalue = map.get(value);
             }
             return rvalue;
         }
@@ -169,44 +169,67 @@ public class NetworkMessage {
         return buildMessage(false);
     }
     public byte[] buildMessage(boolean addBitmapAsString) {
-        MessageWriter mw = new MessageWriter();
+        generateBitmaps();
 
-        // put the MTI
+        byte[] buffer = new byte[calculateLength(addBitmapAsString)];
+        writeMessage(ByteBuffer.wrap(buffer), addBitmapAsString);
+        return buffer;
+    }
+
+    /**
+     * The number of bytes writeTo will put into the buffer.
+     */
+    public int getMessageLength() {
+        generateBitmaps();
+        return calculateLength(false);
+    }
+
+    /**
+     * Encodes the message into the buffer starting at its current position.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        generateBitmaps();
+        writeMessage(buffer, false);
+    }
+
+    private int calculateLength(boolean addBitmapAsString) {
+        int length = bitmap.getEncodedLength(addBitmapAsString);
         if(!StringUtils.isNullOrEmpty(messageTypeIndicator)) {
-            mw.addRange(messageTypeIndicator.getBytes());
+            length += messageTypeIndicator.length();
         }
 
-        // deal with the bitmaps
-        generateBitmaps();
-        if(addBitmapAsString) {
-            mw.addRange(bitmap.toHexString().getBytes());
+        for(Iso8583Element element: elements.values()) {
+            length += element.getSendLength();
         }
-        else {
-            mw.addRange(bitmap.toByteArray());
+        return length;
+    }
+
+    private void writeMessage(ByteBuffer buffer, boolean addBitmapAsString) {
+        // put the MTI
+        if(!StringUtils.isNullOrEmpty(messageTypeIndicator)) {
+            for(int i = 0; i < messageTypeIndicator.length(); i++) {
+                buffer.put((byte)messageTypeIndicator.charAt(i));
+            }
         }
 
+        // deal with the bitmaps
+        bitmap.writeTo(buffer, addBitmapAsString);
+
         // primary bitmap
         DataElementId currentElement = bitmap.getNextDataElement();
-        do {
-            Iso8583Element element = elements.get(currentElement);
-            mw.addRange(element.getSendBuffer());
-
+        while(currentElement != null) {
+            elements.get(currentElement).writeTo(buffer);
             currentElement = bitmap.getNextDataElement();
         }
-        while(currentElement != null);
 
         // secondary bitmap
         if(messageType.equals(Iso8583MessageType.CompleteMessage)) {
             currentElement = secondaryBitmap.getNextDataElement();
             while(currentElement != null){
-                Iso8583Element element = elements.get(currentElement);
-                mw.addRange(element.getSendBuffer());
-
+                elements.get(currentElement).writeTo(buffer);
                 currentElement = secondaryBitmap.getNextDataElement();
             }
         }
-
-        return mw.toArray();
     }
 
     private void generateBitmaps() {
@@ -249,13 +272,10 @@ public class NetworkMessage {
         NetworkMessage message = new NetworkMessage(messageType);
         message.setBitmap(bitmap);
 
-        // initialize the factory
-        message.setFactory(Iso8583ElementFactory.getConfiguredFactory(mr, messageType));
-
         // read the primary bitmap
         DataElementId currentElement = bitmap.getNextDataElement();
         do {
-            message.elements.put(currentElement, message.factory.createElement(currentElement));
+            message.elements.put(currentElement, message.factory.createElement(currentElement, mr));
             currentElement = bitmap.getNextDataElement();
         }
         while(currentElement != null);
@@ -267,7 +287,7 @@ public class NetworkMessage {
 
             currentElement = secondaryMap.getNextDataElement();
             while(currentElement != null) {
-                message.elements.put(currentElement, message.factory.createElement(currentElement));
+                message.elements.put(currentElement, message.factory.createElement(currentElement, mr));
                 currentElement = secondaryMap.getNextDataElement();
             }
         }
@@ -277,32 +297,37 @@ public class NetworkMessage {
     }
 
     public String toString() {
-        StringBuilder sb = new StringBuilder();
+        return renderBreakdown(false);
+    }
+
+    /**
+     * The same breakdown as toString with the card data masked, following the
+     * masking given to each element by its definition. Any card numbers or track
+     * data left in the other elements are masked as well.
+     */
+    public String toMaskedString() {
+        return renderBreakdown(true);
+    }
+
+    private String renderBreakdown(boolean masked) {
+        generateBitmaps();
+        StringBuilder sb = new StringBuilder(calculateLength(false) * 2);
 
         // put the MTI
         if(!StringUtils.isNullOrEmpty(messageTypeIndicator)) {
-            sb.append(String.format("MTI: %s\r\n", messageTypeIndicator));
+            sb.append("MTI: ").append(messageTypeIndicator).append("\r\n");
         }
 
         // deal with the bitmaps
-        generateBitmaps();
-        sb.append(String.format("P_BITMAP: %s\r\n", bitmap.toHexString()));
+        sb.append("P_BITMAP: ").append(bitmap.toHexString()).append("\r\n");
 
         // primary bitmap
         DataElementId currentElement = bitmap.getNextDataElement();
         do {
-            Iso8583Element element = elements.get(currentElement);
             if(currentElement.equals(DataElementId.DE_001)) {
-                sb.append(String.format("S_BITMAP: %s\r\n", secondaryBitmap.toHexString()));
-            }
-            else {
-                // special handling for DE 55
-                if(element.getId().equals(DataElementId.DE_055)) {
-                    byte[] buffer = element.getBuffer();
-                    sb.append(String.format("%s: %s%s\r\n", element.getId(), StringUtils.padLeft(buffer.length, 3, '0'), StringUtils.hexFromBytes(buffer)));
-                }
-                else sb.append(String.format("%s: %s\r\n", element.getId(), new String(element.getSendBuffer())));
+                sb.append("S_BITMAP: ").append(secondaryBitmap.toHexString()).append("\r\n");
             }
+            else appendElement(sb, elements.get(currentElement), masked);
 
             currentElement = bitmap.getNextDataElement();
         }
@@ -312,13 +337,52 @@ public class NetworkMessage {
         if(messageType.equals(Iso8583MessageType.CompleteMessage)) {
             currentElement = secondaryBitmap.getNextDataElement();
             while(currentElement != null){
-                Iso8583Element element = elements.get(currentElement);
-                sb.append(String.format("%s: %s\r\n", element.getId(), new String(element.getSendBuffer())));
-
+                appendElement(sb, elements.get(currentElement), masked);
                 currentElement = secondaryBitmap.getNextDataElement();
             }
         }
 
         return sb.toString();
     }
+
+    private void appendElement(StringBuilder sb, Iso8583Element element, boolean masked) {
+        sb.append(element.getId()).append(": ");
+
+        // special handling for DE 55
+        String prefix;
+        String value;
+        if(element.getId().equals(DataElementId.DE_055)) {
+            byte[] buffer = element.getBuffer();
+            prefix = StringUtils.padLeft(buffer.length, 3, '0');
+            value = StringUtils.hexFromBytes(buffer);
+        }
+        else {
+            String sendValue = new String(element.getSendBuffer());
+            int digits = element.getBuffer() == null ? 0 : element.getSendLength() - element.getBuffer().length;
+            prefix = sendValue.substring(0, digits);
+            value = sendValue.substring(digits);
+        }
+        sb.append(prefix);
+
+        if(!masked) {
+            sb.append(value);
+        }
+        else {
+            switch(factory.getMasking(element.getId())) {
+                case Account: {
+                    for(int i = 0; i < value.length(); i++) {
+                        sb.append(value.length() >= 13 && (i < 6 || i >= value.length() - 4) ? value.charAt(i) : 'X');
+                    }
+                } break;
+                case Full: {
+                    for(int i = 0; i < value.length(); i++) {
+                        sb.append('X');
+                    }
+                } break;
+                default:
+                    sb.append(LogMasker.getDefault().mask(value));
+            }
+        }
+        sb.append("\r\n");
+    }
 }
@@ -4,6 +4,7 @@ import com.global.api.entities.enums.Host;
 
 public class PriorMessageInformation {
     private String responseTime = "999";
+    private String connectTime = "999";
     private String cardType = "    ";
     private String functionCode = "000";
     private String processingCode = "000000";
@@ -18,6 +19,12 @@ public class PriorMessageInformation {
     public void setResponseTime(String responseTime) {
         this.responseTime = responseTime;
     }
+    public String getConnectTime() {
+        return connectTime;
+    }
+    public void setConnectTime(String connectTime) {
+        this.connectTime = connectTime;
+    }
     public String getCardType() {
         return cardType;
     }
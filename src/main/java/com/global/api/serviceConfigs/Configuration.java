@@ -8,6 +8,7 @@ import com.global.api.entities.exceptions.ConfigurationException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Executor;
 
 public abstract class Configuration {
     protected boolean enableLogging = false;
@@ -16,6 +17,7 @@ public abstract class Configuration {
     protected HashMap<Host, ArrayList<HostError>> simulatedHostErrors;
     protected int timeout = 30000;
     protected boolean validated;
+    protected Executor executor;
 
     public int getTimeout() {
         return timeout;
@@ -52,6 +54,13 @@ public abstract class Configuration {
         this.simulatedHostErrors = simulatedHostErrors;
     }
 
+    public Executor getExecutor() {
+        return executor;
+    }
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
     public void setValidated(boolean validated) {
         this.validated = validated;
     }
@@ -1,6 +1,8 @@
 package com.global.api.serviceConfigs;
 
 import com.global.api.ConfiguredServices;
+import com.global.api.gateways.events.EventOverflowPolicy;
+import com.global.api.gateways.events.GatewayEventDispatcher;
 import com.global.api.gateways.events.IGatewayEventHandler;
 import com.global.api.network.abstractions.IBatchProvider;
 import com.global.api.network.abstractions.IStanProvider;
@@ -9,12 +11,17 @@ import com.global.api.entities.exceptions.ConfigurationException;
 import com.global.api.gateways.VapsConnector;
 import com.global.api.utils.StringUtils;
 
+import java.util.concurrent.Executor;
+
 public class NetworkGatewayConfig extends Configuration {
     private AcceptorConfig acceptorConfig;
     private IBatchProvider batchProvider;
     private String companyId;
     private ConnectionType connectionType = ConnectionType.ISDN;
     private IGatewayEventHandler gatewayEventHandler;
+    private int eventQueueCapacity = GatewayEventDispatcher.DEFAULT_CAPACITY;
+    private EventOverflowPolicy eventOverflowPolicy = EventOverflowPolicy.DropOldest;
+    private Executor eventExecutor;
     private String merchantType;
     private MessageType messageType = MessageType.Heartland_POS_8583;
     private String nodeIdentification;
@@ -25,7 +32,16 @@ public class NetworkGatewayConfig extends Configuration {
     private IStanProvider stanProvider;
     private String terminalId;
     private String uniqueDeviceId;
-    private Boolean persistentConnection = false;
+    private boolean persistentConnection = false;
+    private int maxConnectionsPerHost = 2;
+    private int connectionIdleTimeout = 300000;
+    private int keepAliveInterval = 60000;
+    private int connectTimeout = 5000;
+    private int circuitBreakerThreshold = 3;
+    private int circuitBreakerTimeout = 30000;
+    private int batchResubmitWindow = 8;
+    private String metricsName;
+    private int traceCapacity = 0;
 
     public AcceptorConfig getAcceptorConfig() {
         return acceptorConfig;
@@ -57,6 +73,24 @@ public class NetworkGatewayConfig extends Configuration {
     public void setGatewayEventHandler(IGatewayEventHandler gatewayEventHandler) {
         this.gatewayEventHandler = gatewayEventHandler;
     }
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+    public EventOverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+    public void setEventOverflowPolicy(EventOverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+    }
+    public Executor getEventExecutor() {
+        return eventExecutor;
+    }
+    public void setEventExecutor(Executor eventExecutor) {
+        this.eventExecutor = eventExecutor;
+    }
     public String getMerchantType() {
         return merchantType;
     }
@@ -122,13 +156,78 @@ public class NetworkGatewayConfig extends Configuration {
     public void setUniqueDeviceId(String uniqueDeviceId) {
         this.uniqueDeviceId = uniqueDeviceId;
     }
-    public Boolean isPersistentConnection() {
+    public boolean isPersistentConnection() {
         return persistentConnection;
     }
-    public void setPersistentConnection(Boolean persistentConnection) {
+    public void setPersistentConnection(boolean persistentConnection) {
         this.persistentConnection = persistentConnection;
     }
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+    public int getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+    public void setConnectionIdleTimeout(int connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+    public int getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+    public void setKeepAliveInterval(int keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+    public int getCircuitBreakerTimeout() {
+        return circuitBreakerTimeout;
+    }
+    public void setCircuitBreakerTimeout(int circuitBreakerTimeout) {
+        this.circuitBreakerTimeout = circuitBreakerTimeout;
+    }
+    /**
+     * The name the gateway's metrics are published under, by default the company and terminal, so the
+     * same terminal keeps one set of metrics when it is configured again.
+     */
+    public String getMetricsName() {
+        if(!StringUtils.isNullOrEmpty(metricsName)) {
+            return metricsName;
+        }
+        return String.format("VAPS-%s-%s", companyId, terminalId);
+    }
+    public void setMetricsName(String metricsName) {
+        this.metricsName = metricsName;
+    }
+    public int getTraceCapacity() {
+        return traceCapacity;
+    }
+    /**
+     * Number of recent exchanges the gateway keeps with their raw buffers, 0 (the default) turns tracing off.
+     */
+    public void setTraceCapacity(int traceCapacity) {
+        this.traceCapacity = traceCapacity;
+    }
     
+    public int getBatchResubmitWindow() {
+        return batchResubmitWindow;
+    }
+    public void setBatchResubmitWindow(int batchResubmitWindow) {
+        this.batchResubmitWindow = batchResubmitWindow;
+    }
+
     public void configureContainer(ConfiguredServices services) {
         VapsConnector gateway = new VapsConnector();
         // connection fields
@@ -139,6 +238,16 @@ public class NetworkGatewayConfig extends Configuration {
         gateway.setTimeout(timeout);
         gateway.setEnableLogging(enableLogging);
         gateway.setSimulatedHostErrors(simulatedHostErrors);
+        gateway.setPersistentConnection(persistentConnection);
+        gateway.setMaxConnectionsPerHost(maxConnectionsPerHost);
+        gateway.setConnectionIdleTimeout(connectionIdleTimeout);
+        gateway.setKeepAliveInterval(keepAliveInterval);
+        gateway.setConnectTimeout(connectTimeout);
+        gateway.setCircuitBreakerThreshold(circuitBreakerThreshold);
+        gateway.setCircuitBreakerTimeout(circuitBreakerTimeout);
+        gateway.setBatchResubmitWindow(batchResubmitWindow);
+        gateway.setMetricsName(getMetricsName());
+        gateway.setTraceCapacity(traceCapacity);
 
         // other fields
         gateway.setCompanyId(companyId);
@@ -164,6 +273,9 @@ public class NetworkGatewayConfig extends Configuration {
         gateway.setBatchProvider(batchProvider);
 
         // event handler
+        gateway.setEventQueueCapacity(eventQueueCapacity);
+        gateway.setEventOverflowPolicy(eventOverflowPolicy);
+        gateway.setEventExecutor(eventExecutor);
         gateway.setGatewayEventHandler(gatewayEventHandler);
 
         services.setGatewayConnector(gateway);
@@ -198,6 +310,31 @@ public class NetworkGatewayConfig extends Configuration {
             throw new ConfigurationException("You must provide a terminal id.");
         }
 
+        // connection pool
+        if(persistentConnection && maxConnectionsPerHost < 1) {
+            throw new ConfigurationException("Max connections per host must be at least 1 for persistent connections.");
+        }
+
+        // connect timeout
+        if(connectTimeout < 0) {
+            throw new ConfigurationException("Connect timeout cannot be negative.");
+        }
+
+        // circuit breaker
+        if(circuitBreakerThreshold < 1) {
+            throw new ConfigurationException("Circuit breaker threshold must be at least 1.");
+        }
+
+        // batch recovery
+        if(batchResubmitWindow < 1) {
+            throw new ConfigurationException("Batch resubmit window must be at least 1.");
+        }
+
+        // event queue
+        if(gatewayEventHandler != null && eventQueueCapacity < 1) {
+            throw new ConfigurationException("Event queue capacity must be at least 1.");
+        }
+
         // node identification
         if(!StringUtils.isNullOrEmpty(nodeIdentification) && nodeIdentification.length() != 4) {
             throw new ConfigurationException("Node identification must only be 4 characters in length.");
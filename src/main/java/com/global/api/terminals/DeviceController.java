@@ -8,10 +8,14 @@ import com.global.api.terminals.abstractions.*;
 import com.global.api.terminals.builders.TerminalAuthBuilder;
 import com.global.api.terminals.builders.TerminalManageBuilder;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 public abstract class DeviceController implements IDisposable {
     protected ITerminalConfiguration settings;
     protected IDeviceCommInterface _interface;
     protected IRequestIdProvider requestIdProvider;
+    // requests to one terminal are sent one at a time, in the order they were made
+    private final ReentrantLock laneLock = new ReentrantLock(true);
 
     public ConnectionModes getConnectionModes() {
         if(settings != null)
@@ -30,9 +34,20 @@ public abstract class DeviceController implements IDisposable {
         this.requestIdProvider = settings.getRequestIdProvider();
     }
 
+    protected ReentrantLock getLaneLock() {
+        return laneLock;
+    }
+
     public byte[] send(IDeviceMessage message) throws ApiException {
-        if(_interface != null)
-            return _interface.send(message);
+        if(_interface != null) {
+            laneLock.lock();
+            try {
+                return _interface.send(message);
+            }
+            finally {
+                laneLock.unlock();
+            }
+        }
         return null;
     }
 
@@ -0,0 +1,277 @@
+package com.global.api.terminals;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.terminals.abstractions.*;
+import com.global.api.terminals.hpa.HpaController;
+import com.global.api.terminals.pax.PaxController;
+import com.global.api.utils.AsyncExecutor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives many terminals from one process. Each lane is a configured device controller; operations
+ * can be run against every lane at once with a bound on how many lanes are busy at the same time,
+ * while requests to any one terminal are still sent one after another.
+ *
+ * Only the controllers the manager creates from a terminal configuration are disposed with their lane;
+ * a controller taken from the services container or handed in by the caller is left to its owner.
+ */
+public class DeviceManager {
+    private final LinkedHashMap<String, DeviceController> lanes = new LinkedHashMap<String, DeviceController>();
+    private final HashSet<DeviceController> ownedControllers = new HashSet<DeviceController>();
+    private int maxConcurrency = 16;
+    private Executor executor;
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+    public Executor getExecutor() {
+        return executor;
+    }
+    /**
+     * @param executor the executor lanes are driven on, or null for the SDK default executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+    public synchronized List<String> getLaneNames() {
+        return new ArrayList<String>(lanes.keySet());
+    }
+    public synchronized int getLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Adds the device registered with the services container under the given config name.
+     */
+    public void addLane(String configName) throws ApiException {
+        addLane(configName, ServicesContainer.getInstance().getDeviceController(configName));
+    }
+    public void addLane(String laneName, ITerminalConfiguration config) throws ApiException {
+        addLane(laneName, createController(config), true);
+    }
+    public void addLane(String laneName, DeviceController controller) throws ConfigurationException {
+        addLane(laneName, controller, false);
+    }
+    public void removeLane(String laneName) {
+        DeviceController controller;
+        synchronized (this) {
+            controller = release(lanes.remove(laneName));
+        }
+        if(controller != null) {
+            controller.dispose();
+        }
+    }
+
+    public synchronized IDeviceInterface getDevice(String laneName) throws ApiException {
+        DeviceController controller = lanes.get(laneName);
+        if(controller == null) {
+            throw new ApiException(String.format("Lane %s has not been added.", laneName));
+        }
+        return controller.configureInterface();
+    }
+
+    /**
+     * Runs the operation against one lane, after any request already waiting on that terminal.
+     */
+    public <T> T execute(String laneName, IDeviceOperation<T> operation) throws ApiException {
+        DeviceController controller;
+        synchronized (this) {
+            controller = lanes.get(laneName);
+        }
+        if(controller == null) {
+            throw new ApiException(String.format("Lane %s has not been added.", laneName));
+        }
+        return execute(controller, operation);
+    }
+
+    /**
+     * Runs the operation against every lane and waits for all of them to finish.
+     */
+    public <T> DeviceOperationResults<T> executeAll(IDeviceOperation<T> operation) throws ApiException {
+        LinkedHashMap<String, DeviceController> snapshot = getSnapshot();
+        DeviceOperationResults<T> results = new DeviceOperationResults<T>();
+
+        // the calling thread drives lanes too, so waiting here cannot hold up a pool the lanes need
+        int workerCount = Math.min(maxConcurrency, snapshot.size());
+        try {
+            AsyncExecutor.runWithHelpers(executor, workerCount - 1, createWorker(snapshot, operation, results));
+        }
+        catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for the lanes to finish.", exc);
+        }
+        return results;
+    }
+
+    public <T> CompletableFuture<DeviceOperationResults<T>> executeAllAsync(final IDeviceOperation<T> operation) {
+        final LinkedHashMap<String, DeviceController> snapshot = getSnapshot();
+        final DeviceOperationResults<T> results = new DeviceOperationResults<T>();
+        final CompletableFuture<DeviceOperationResults<T>> future = new CompletableFuture<DeviceOperationResults<T>>();
+        if(snapshot.isEmpty()) {
+            future.complete(results);
+            return future;
+        }
+
+        final Runnable lanes = createWorker(snapshot, operation, results);
+        final int workerCount = Math.min(maxConcurrency, snapshot.size());
+        final AtomicInteger running = new AtomicInteger(workerCount);
+        Runnable worker = new Runnable() {
+            public void run() {
+                lanes.run();
+                if(running.decrementAndGet() == 0) {
+                    future.complete(results);
+                }
+            }
+        };
+
+        Executor target = executor != null ? executor : AsyncExecutor.getDefaultExecutor();
+        for(int i = 0; i < workerCount; i++) {
+            try {
+                target.execute(worker);
+            }
+            catch(RejectedExecutionException exc) {
+                future.completeExceptionally(exc);
+                break;
+            }
+        }
+        return future;
+    }
+
+    public DeviceOperationResults<IInitializeResponse> initializeAll() throws ApiException {
+        return executeAll(new IDeviceOperation<IInitializeResponse>() {
+            public IInitializeResponse execute(IDeviceInterface device) throws ApiException {
+                return device.initialize();
+            }
+        });
+    }
+
+    public DeviceOperationResults<IBatchCloseResponse> batchCloseAll() throws ApiException {
+        return executeAll(new IDeviceOperation<IBatchCloseResponse>() {
+            public IBatchCloseResponse execute(IDeviceInterface device) throws ApiException {
+                return device.batchClose();
+            }
+        });
+    }
+
+    public DeviceOperationResults<IEODResponse> endOfDayAll() throws ApiException {
+        return executeAll(new IDeviceOperation<IEODResponse>() {
+            public IEODResponse execute(IDeviceInterface device) throws ApiException {
+                return device.endOfDay();
+            }
+        });
+    }
+
+    public DeviceOperationResults<ISAFResponse> sendStoreAndForwardAll() throws ApiException {
+        return executeAll(new IDeviceOperation<ISAFResponse>() {
+            public ISAFResponse execute(IDeviceInterface device) throws ApiException {
+                return device.sendStoreAndForward();
+            }
+        });
+    }
+
+    public void dispose() {
+        ArrayList<DeviceController> controllers = new ArrayList<DeviceController>();
+        synchronized (this) {
+            for(DeviceController controller : lanes.values()) {
+                if(release(controller) != null) {
+                    controllers.add(controller);
+                }
+            }
+            lanes.clear();
+        }
+        for(DeviceController controller : controllers) {
+            controller.dispose();
+        }
+    }
+
+    private void addLane(String laneName, DeviceController controller, boolean owned) throws ConfigurationException {
+        if(controller == null) {
+            throw new ConfigurationException(String.format("No device is configured for lane %s.", laneName));
+        }
+
+        DeviceController replaced;
+        synchronized (this) {
+            replaced = lanes.put(laneName, controller);
+            if(owned) {
+                ownedControllers.add(controller);
+            }
+            replaced = release(replaced);
+        }
+        if(replaced != null) {
+            replaced.dispose();
+        }
+    }
+
+    // returns the controller if the manager created it and no lane still uses it
+    private DeviceController release(DeviceController controller) {
+        if(controller == null || lanes.containsValue(controller)) {
+            return null;
+        }
+        return ownedControllers.remove(controller) ? controller : null;
+    }
+
+    private synchronized LinkedHashMap<String, DeviceController> getSnapshot() {
+        return new LinkedHashMap<String, DeviceController>(lanes);
+    }
+
+    // each worker takes the next waiting lane until there are none left
+    private <T> Runnable createWorker(final LinkedHashMap<String, DeviceController> snapshot, final IDeviceOperation<T> operation, final DeviceOperationResults<T> results) {
+        final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<String>(snapshot.keySet());
+        return new Runnable() {
+            public void run() {
+                String laneName;
+                while((laneName = pending.poll()) != null) {
+                    try {
+                        results.addResult(laneName, execute(snapshot.get(laneName), operation));
+                    }
+                    catch(ApiException exc) {
+                        results.addError(laneName, exc);
+                    }
+                    catch(RuntimeException exc) {
+                        results.addError(laneName, new ApiException(exc.getMessage(), exc));
+                    }
+                }
+            }
+        };
+    }
+
+    private <T> T execute(DeviceController controller, IDeviceOperation<T> operation) throws ApiException {
+        // holds the terminal for the whole operation, some span several messages
+        controller.getLaneLock().lock();
+        try {
+            return operation.execute(controller.configureInterface());
+        }
+        finally {
+            controller.getLaneLock().unlock();
+        }
+    }
+
+    private static DeviceController createController(ITerminalConfiguration config) throws ConfigurationException {
+        if(config.getDeviceType() == null) {
+            throw new ConfigurationException("A device type is required.");
+        }
+
+        switch(config.getDeviceType()) {
+            case PAX_S300:
+                return new PaxController(config);
+            case HPA_ISC250:
+                return new HpaController(config);
+            default:
+                throw new ConfigurationException(String.format("Unsupported device type %s.", config.getDeviceType()));
+        }
+    }
+}
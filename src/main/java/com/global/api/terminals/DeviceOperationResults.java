@@ -0,0 +1,45 @@
+package com.global.api.terminals;
+
+import com.global.api.entities.exceptions.ApiException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of an operation fanned out across several lanes, keyed by lane name. Every lane
+ * either has a result or the exception which stopped it.
+ */
+public class DeviceOperationResults<T> {
+    private final TreeMap<String, T> results = new TreeMap<String, T>();
+    private final TreeMap<String, ApiException> errors = new TreeMap<String, ApiException>();
+
+    public synchronized Map<String, T> getResults() {
+        return Collections.unmodifiableMap(new TreeMap<String, T>(results));
+    }
+    public synchronized Map<String, ApiException> getErrors() {
+        return Collections.unmodifiableMap(new TreeMap<String, ApiException>(errors));
+    }
+    public synchronized T getResult(String laneName) {
+        return results.get(laneName);
+    }
+    public synchronized ApiException getError(String laneName) {
+        return errors.get(laneName);
+    }
+    public synchronized int getSuccessCount() {
+        return results.size();
+    }
+    public synchronized int getErrorCount() {
+        return errors.size();
+    }
+    public synchronized boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    synchronized void addResult(String laneName, T result) {
+        results.put(laneName, result);
+    }
+    synchronized void addError(String laneName, ApiException error) {
+        errors.put(laneName, error);
+    }
+}
@@ -0,0 +1,219 @@
+package com.global.api.terminals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Keeps idle device sockets open between messages so each transaction doesn't pay for a new TCP
+ * connection. Sockets are keyed by device address, checked before they are handed out again and
+ * closed once they have sat idle past the idle timeout. One pool is shared by every lane in the JVM.
+ */
+public class TerminalSocketPool {
+    private static TerminalSocketPool instance;
+
+    private int idleTimeout = 60000;
+    private int connectTimeout = 5000;
+    private final HashMap<String, LinkedList<IdleSocket>> idle = new HashMap<String, LinkedList<IdleSocket>>();
+    private Timer maintenanceTimer;
+
+    public static synchronized TerminalSocketPool getInstance() {
+        if(instance == null)
+            instance = new TerminalSocketPool();
+        return instance;
+    }
+
+    TerminalSocketPool() { }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+    /**
+     * @param idleTimeout milliseconds an unused socket is kept open, 0 to close sockets as soon as they are released
+     */
+    public synchronized void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for(LinkedList<IdleSocket> sockets : idle.values()) {
+            count += sockets.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns a warm socket to the device when one is available, otherwise opens a new one.
+     */
+    public Socket acquire(String ipAddress, int port) throws IOException {
+        String key = getKey(ipAddress, port);
+        while(true) {
+            IdleSocket candidate;
+            synchronized (this) {
+                LinkedList<IdleSocket> sockets = idle.get(key);
+                candidate = sockets == null ? null : sockets.pollLast();
+            }
+
+            if(candidate == null) {
+                break;
+            }
+            if(isUsable(candidate.socket)) {
+                return candidate.socket;
+            }
+            close(candidate.socket);
+        }
+
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(ipAddress, port), connectTimeout);
+        socket.setKeepAlive(true);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    /**
+     * Hands a socket back once a message exchange has completed cleanly.
+     */
+    public void release(String ipAddress, int port, Socket socket) {
+        if(socket == null || socket.isClosed()) {
+            return;
+        }
+
+        synchronized (this) {
+            if(idleTimeout > 0) {
+                String key = getKey(ipAddress, port);
+                if(!idle.containsKey(key)) {
+                    idle.put(key, new LinkedList<IdleSocket>());
+                }
+                idle.get(key).add(new IdleSocket(socket));
+                startMaintenance();
+                return;
+            }
+        }
+        close(socket);
+    }
+
+    /**
+     * Closes a socket whose state is unknown, e.g. after a timeout or a protocol error.
+     */
+    public void discard(Socket socket) {
+        close(socket);
+    }
+
+    public void clear() {
+        ArrayList<IdleSocket> sockets = new ArrayList<IdleSocket>();
+        synchronized (this) {
+            for(LinkedList<IdleSocket> hostSockets : idle.values()) {
+                sockets.addAll(hostSockets);
+            }
+            idle.clear();
+        }
+
+        for(IdleSocket socket : sockets) {
+            close(socket.socket);
+        }
+    }
+
+    private void startMaintenance() {
+        if(maintenanceTimer == null) {
+            maintenanceTimer = new Timer("TerminalSocketPool", true);
+            maintenanceTimer.schedule(new TimerTask() {
+                public void run() {
+                    evictIdle();
+                }
+            }, 1000, 1000);
+        }
+    }
+
+    private void evictIdle() {
+        ArrayList<IdleSocket> expired = new ArrayList<IdleSocket>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for(Iterator<Map.Entry<String, LinkedList<IdleSocket>>> entries = idle.entrySet().iterator(); entries.hasNext(); ) {
+                LinkedList<IdleSocket> sockets = entries.next().getValue();
+                for(Iterator<IdleSocket> iterator = sockets.iterator(); iterator.hasNext(); ) {
+                    IdleSocket socket = iterator.next();
+                    if(now - socket.releasedAt >= idleTimeout || socket.socket.isClosed()) {
+                        iterator.remove();
+                        expired.add(socket);
+                    }
+                }
+                if(sockets.isEmpty()) {
+                    entries.remove();
+                }
+            }
+        }
+
+        for(IdleSocket socket : expired) {
+            close(socket.socket);
+        }
+    }
+
+    // an idle socket should have nothing to read, end of stream means the device hung up
+    private boolean isUsable(Socket socket) {
+        if(socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+            return false;
+        }
+
+        try {
+            InputStream in = socket.getInputStream();
+            if(in.available() > 0) {
+                return false;
+            }
+
+            int timeout = socket.getSoTimeout();
+            socket.setSoTimeout(1);
+            try {
+                in.read();
+                return false;
+            }
+            catch(SocketTimeoutException exc) {
+                return true;
+            }
+            finally {
+                socket.setSoTimeout(timeout);
+            }
+        }
+        catch(IOException exc) {
+            return false;
+        }
+    }
+
+    private static void close(Socket socket) {
+        if(socket != null) {
+            try {
+                socket.close();
+            }
+            catch(IOException exc) {
+                // eat the close exception
+            }
+        }
+    }
+
+    private static String getKey(String ipAddress, int port) {
+        return String.format("%s:%s", ipAddress, port);
+    }
+
+    private static class IdleSocket {
+        private final Socket socket;
+        private final long releasedAt = System.currentTimeMillis();
+
+        IdleSocket(Socket socket) {
+            this.socket = socket;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.global.api.terminals.abstractions;
+
+import com.global.api.entities.exceptions.ApiException;
+
+/**
+ * A call made against one terminal when DeviceManager fans an operation out across its lanes.
+ */
+public interface IDeviceOperation<T> {
+    T execute(IDeviceInterface device) throws ApiException;
+}
@@ -5,6 +5,7 @@ import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.ConfigurationException;
 import com.global.api.entities.exceptions.UnsupportedTransactionException;
 import com.global.api.terminals.DeviceController;
+import com.global.api.terminals.DeviceMessage;
 import com.global.api.terminals.TerminalResponse;
 import com.global.api.terminals.TerminalUtilities;
 import com.global.api.terminals.abstractions.IDeviceInterface;
@@ -12,6 +13,7 @@ import com.global.api.terminals.abstractions.IDeviceMessage;
 import com.global.api.terminals.abstractions.IDisposable;
 import com.global.api.terminals.hpa.builders.HpaAdminBuilder;
 import com.global.api.terminals.messaging.IMessageSentInterface;
+import com.global.api.terminals.messaging.IUploadProgressInterface;
 import com.global.api.terminals.abstractions.ITerminalConfiguration;
 import com.global.api.terminals.builders.TerminalAuthBuilder;
 import com.global.api.terminals.builders.TerminalManageBuilder;
@@ -20,11 +22,18 @@ import com.global.api.terminals.hpa.responses.SipBaseResponse;
 import com.global.api.terminals.hpa.responses.SipDeviceResponse;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.MessageWriter;
 import com.global.api.utils.StringUtils;
 
 import java.lang.reflect.Constructor;
 
 public class HpaController extends DeviceController implements IDisposable {
+    private static final byte[] FILE_DATA_START = String.format("<SIP><Version>1.0</Version><ECRId>1004</ECRId><Request>%s</Request><FileData>", HpaMsgId.SEND_FILE.getValue()).getBytes();
+    private static final byte[] FILE_DATA_END = "</FileData><MultipleMessage>".getBytes();
+    private static final byte[] REQUEST_ID_START = "</MultipleMessage><RequestId>".getBytes();
+    private static final byte[] REQUEST_ID_END = "</RequestId></SIP>".getBytes();
+    private static final int FILE_DATA_OVERHEAD = 2 + FILE_DATA_START.length + FILE_DATA_END.length + 1 + REQUEST_ID_START.length + 11 + REQUEST_ID_END.length;
+
     private IDeviceInterface _device;
 
     private IMessageSentInterface onMessageSent;
@@ -70,9 +79,12 @@ public class HpaController extends DeviceController implements IDisposable {
         IDeviceMessage deviceMessage = TerminalUtilities.buildRequest(message, getFormat());
         deviceMessage.setKeepAlive(keepAlive);
         deviceMessage.setAwaitResponse(awaitResponse);
+        return sendMessage(clazz, deviceMessage, messageIds);
+    }
 
-        byte[] response = _interface.send(deviceMessage);
-        if(awaitResponse) {
+    private <T extends SipBaseResponse> T sendMessage(Class<T> clazz, IDeviceMessage deviceMessage, String... messageIds) throws ApiException {
+        byte[] response = send(deviceMessage);
+        if(deviceMessage.isAwaitResponse()) {
             try {
                 Constructor<T> instance = clazz.getConstructor(byte[].class, String[].class);
                 return instance.newInstance(response, messageIds);
@@ -85,12 +97,73 @@ public class HpaController extends DeviceController implements IDisposable {
     }
 
     <T extends SipBaseResponse> T sendAdminMessage(Class<T> clazz, HpaAdminBuilder builder) throws ApiException {
+        builder.set("RequestId", getAdminRequestId());
+        return sendMessage(clazz, builder.buildMessage(), builder.isKeepAlive(), builder.isAwaitResponse(), builder.getMessageIds());
+    }
+
+    private int getAdminRequestId() {
         int requestId = 1004;
         if(requestIdProvider != null) {
             requestId = requestIdProvider.getRequestId();
         }
-        builder.set("RequestId", requestId);
-        return sendMessage(clazz, builder.buildMessage(), builder.isKeepAlive(), builder.isAwaitResponse(), builder.getMessageIds());
+        return requestId;
+    }
+
+    // a file upload is several messages which must reach the terminal without anything in between
+    void lockLane() {
+        getLaneLock().lock();
+    }
+    void unlockLane() {
+        getLaneLock().unlock();
+    }
+
+    /**
+     * Uploads a file as a run of SendFile/FileData messages. The parts are framed
+     * straight into a byte buffer and up to {@code partsPerWrite} of them go out in a
+     * single write over the open connection; only the final part waits on the device.
+     */
+    <T extends SipBaseResponse> T sendFileParts(Class<T> clazz, HpaFileUpload fileUpload, int partLength, int partsPerWrite, IUploadProgressInterface onProgress) throws ApiException {
+        byte[] hexBuffer = new byte[Math.max(2, partLength)];
+        MessageWriter buffer = new MessageWriter(partsPerWrite * (hexBuffer.length + FILE_DATA_OVERHEAD));
+
+        try {
+            T response = null;
+            while(fileUpload.hasMoreParts()) {
+                buffer.clear();
+                for(int i = 0; i < partsPerWrite && fileUpload.hasMoreParts(); i++) {
+                    int length = fileUpload.readPart(hexBuffer);
+                    writeFileData(buffer, hexBuffer, length, !fileUpload.hasMoreParts());
+                }
+
+                IDeviceMessage deviceMessage = new DeviceMessage(buffer.toArray());
+                deviceMessage.setAwaitResponse(!fileUpload.hasMoreParts());
+                response = sendMessage(clazz, deviceMessage, HpaMsgId.SEND_FILE.getValue());
+
+                if(onProgress != null) {
+                    onProgress.progressChanged(fileUpload.getBytesRead(), fileUpload.getFileSize());
+                }
+            }
+            return response;
+        }
+        finally {
+            fileUpload.close();
+        }
+    }
+
+    // same layout HpaAdminBuilder produces, written without the intermediate strings
+    private void writeFileData(MessageWriter buffer, byte[] data, int length, boolean lastPart) {
+        byte[] requestId = String.valueOf(getAdminRequestId()).getBytes();
+        int messageLength = FILE_DATA_START.length + length + FILE_DATA_END.length + 1 + REQUEST_ID_START.length + requestId.length + REQUEST_ID_END.length;
+
+        buffer.add((byte)(messageLength >>> 8));
+        buffer.add((byte)messageLength);
+        buffer.addRange(FILE_DATA_START);
+        buffer.addRange(data, 0, length);
+        buffer.addRange(FILE_DATA_END);
+        buffer.add((byte)(lastPart ? '0' : '1'));
+        buffer.addRange(REQUEST_ID_START);
+        buffer.addRange(requestId);
+        buffer.addRange(REQUEST_ID_END);
     }
 
     public TerminalResponse processTransaction(TerminalAuthBuilder builder) throws ApiException {
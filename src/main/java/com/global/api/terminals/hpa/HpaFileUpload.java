@@ -1,20 +1,24 @@
 package com.global.api.terminals.hpa;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.InputStream;
 
-import com.global.api.utils.IOUtils;
-import com.global.api.utils.StringUtils;
-import org.apache.commons.codec.binary.Hex;
 import com.global.api.entities.enums.SendFileType;
 import com.global.api.entities.exceptions.ApiException;
 
 class HpaFileUpload {
-    private String hexData;
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes();
+
+    private File file;
     private String fileName;
     private int fileSize;
+    private int bytesRead;
+    private InputStream input;
+    private byte[] readBuffer;
 
     String getFileName() {
         return fileName;
@@ -22,10 +26,16 @@ class HpaFileUpload {
     int getFileSize() {
         return fileSize;
     }
+    int getBytesRead() {
+        return bytesRead;
+    }
+    boolean hasMoreParts() {
+        return bytesRead < fileSize;
+    }
 
     HpaFileUpload(SendFileType imageType, String filePath) throws ApiException {
         //File name
-        File file = new File(filePath);
+        file = new File(filePath);
         fileName = file.getName();
 
         switch(imageType) {
@@ -43,32 +53,59 @@ class HpaFileUpload {
                 throw new ApiException("Unknown Send file type");
             }
         }
-        
-        //File size
-        byte[] buffer;
-        try {
-            FileInputStream input = new FileInputStream(file);
-            buffer = new byte[input.available()];
-            int bytesRead = input.read(buffer, 0, buffer.length);
-        } catch (IOException e) {
+
+        //File size, the content itself is only read as each part is sent
+        if(!file.isFile() || file.length() == 0) {
             throw new ApiException("Buffer should not be empty.");
         }
-        hexData = Hex.encodeHexString(buffer).toUpperCase();
-        fileSize = buffer.length;
+        fileSize = (int)file.length();
     }
-    
-    LinkedList<String> getFileParts(int maxDataLength) {
-        if (StringUtils.isNullOrEmpty(hexData)) {
-            return null;
-        }
 
-        LinkedList<String> fileParts = new LinkedList<String>();
-        for (int i = 0; i < hexData.length(); i += maxDataLength) {
-            int remainingBytes = hexData.length() - i;
-            int endIndex = i + Math.min(maxDataLength, remainingBytes);
+    /**
+     * Reads the next part of the file and writes it as upper case hex into
+     * the given buffer. Returns the number of hex characters written, which
+     * never exceeds the length of the buffer.
+     */
+    int readPart(byte[] hexBuffer) throws ApiException {
+        try {
+            if(input == null) {
+                input = new BufferedInputStream(new FileInputStream(file));
+            }
+
+            int length = Math.min(hexBuffer.length / 2, fileSize - bytesRead);
+            if(readBuffer == null || readBuffer.length < length) {
+                readBuffer = new byte[length];
+            }
 
-            fileParts.add(hexData.substring(i, endIndex));
+            int offset = 0;
+            while(offset < length) {
+                int count = input.read(readBuffer, offset, length - offset);
+                if(count < 0) {
+                    throw new EOFException();
+                }
+                offset += count;
+            }
+            bytesRead += length;
+
+            for(int i = 0; i < length; i++) {
+                hexBuffer[i * 2] = HEX_DIGITS[(readBuffer[i] >> 4) & 0x0F];
+                hexBuffer[i * 2 + 1] = HEX_DIGITS[readBuffer[i] & 0x0F];
+            }
+            return length * 2;
+        }
+        catch(IOException e) {
+            close();
+            throw new ApiException("Failed to read the file.", e);
+        }
+    }
+
+    void close() {
+        if(input != null) {
+            try {
+                input.close();
+            }
+            catch(IOException e) { /* nothing to do */ }
+            input = null;
         }
-        return fileParts;
     }
 }
@@ -23,13 +23,13 @@ import com.global.api.terminals.hpa.responses.InitializeResponse;
 import com.global.api.terminals.hpa.responses.SAFResponse;
 import com.global.api.terminals.hpa.responses.SignatureResponse;
 import com.global.api.terminals.messaging.IMessageSentInterface;
+import com.global.api.terminals.messaging.IUploadProgressInterface;
 import com.global.api.terminals.pax.responses.SAFDeleteResponse;
 import com.global.api.terminals.pax.responses.SAFSummaryReport;
 import com.global.api.terminals.pax.responses.SAFUploadResponse;
 import com.global.api.utils.StringUtils;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
 
 public class HpaInterface implements IDeviceInterface {
     private HpaController _controller;
@@ -37,6 +37,10 @@ public class HpaInterface implements IDeviceInterface {
     public void setOnMessageSent(IMessageSentInterface onMessageSent) {
         this.onMessageSent = onMessageSent;
     }
+    private IUploadProgressInterface onUploadProgress;
+    public void setOnUploadProgress(IUploadProgressInterface onUploadProgress) {
+        this.onUploadProgress = onUploadProgress;
+    }
 
     HpaInterface(HpaController controller) {
         _controller = controller;
@@ -142,30 +146,25 @@ public class HpaInterface implements IDeviceInterface {
                 .set("FileSize", fileUpload.getFileSize())
                 .set("MultipleMessage", "1");
 
-        SipSendFileResponse response = _controller.sendAdminMessage(SipSendFileResponse.class, builder);
-        if(response.getDeviceResponseCode().equals("00")) {
-            LinkedList<String> fileParts = fileUpload.getFileParts(response.getMaxDataSize() / 5);
-            String lastElement = fileParts.getLast();
-
-            for(String filePart: fileParts) {
-                final String multipleMessage = filePart.equals(lastElement) ? "0" : "1";
-
-                SipSendFileResponse dataResponse = _controller.sendAdminMessage(SipSendFileResponse.class,
-                        new HpaAdminBuilder(HpaMsgId.SEND_FILE.getValue()) {{
-                            setKeepAlive(multipleMessage.equals("1"));
-                            setAwaitResponse(multipleMessage.equals("0"));
-                        }}
-                        .set("FileData", filePart)
-                        .set("MultipleMessage", multipleMessage)
-                    );
+        _controller.lockLane();
+        try {
+            SipSendFileResponse response = _controller.sendAdminMessage(SipSendFileResponse.class, builder);
+            if(response.getDeviceResponseCode().equals("00")) {
+                // each part carries a fifth of MaxDataSize, and a single write never holds more than MaxDataSize of file data
+                int partLength = Math.max(2, response.getMaxDataSize() / 5);
+                int partsPerWrite = Math.max(1, response.getMaxDataSize() / partLength);
 
+                SipSendFileResponse dataResponse = _controller.sendFileParts(SipSendFileResponse.class, fileUpload, partLength, partsPerWrite, onUploadProgress);
                 if (dataResponse != null) {
                     response = dataResponse;
                 }
+                return response;
             }
-            return response;
+            else throw new ApiException(String.format("Failed to upload file: %s", response.getDeviceResponseText()));
+        }
+        finally {
+            _controller.unlockLane();
         }
-        else throw new ApiException(String.format("Failed to upload file: %s", response.getDeviceResponseText()));
     }
 
     public IEODResponse endOfDay() throws ApiException {
@@ -9,13 +9,14 @@ import com.global.api.terminals.messaging.IMessageSentInterface;
 import com.global.api.utils.AutoResetEvent;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.MessageWriter;
 
+import java.io.BufferedInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
 
 public class HpaTcpInterface implements IDeviceCommInterface {
     private Socket client;
@@ -23,7 +24,9 @@ public class HpaTcpInterface implements IDeviceCommInterface {
     private InputStream in;
     private AutoResetEvent await;
     private ITerminalConfiguration settings;
-    private List<Byte> messageQueue;
+    private final Object queueLock = new Object();
+    private MessageWriter messageQueue;
+    private Thread receiveThread;
     private String lastConnectionError;
 
     private IMessageSentInterface onMessageSent;
@@ -39,104 +42,102 @@ public class HpaTcpInterface implements IDeviceCommInterface {
 
         onMessageReceived = new IMessageReceivedInterface() {
             public void messageReceived(byte[] message) {
-                if(messageQueue == null)
-                    messageQueue = new ArrayList<Byte>();
+                synchronized (queueLock) {
+                    if(messageQueue == null)
+                        messageQueue = new MessageWriter();
 
-                for(byte b: message)
-                    messageQueue.add(b);
+                    messageQueue.addRange(message);
 
-                try {
-                    Element msg = ElementTree.parse(message).get("SIP");
-                    int multiMessage = msg.getInt("MultipleMessage");
-                    if(multiMessage == 0)
-                        await.set();
-                    else messageQueue.add((byte)'\r'); // delimiter
-                }
-                catch(Exception e) {
-                    // this should never cause a failure
-                    messageQueue.add((byte)'\r'); // delimiter
+                    try {
+                        Element msg = ElementTree.parse(message).get("SIP");
+                        int multiMessage = msg.getInt("MultipleMessage");
+                        if(multiMessage == 0)
+                            await.set();
+                        else messageQueue.add((byte)'\r'); // delimiter
+                    }
+                    catch(Exception e) {
+                        // this should never cause a failure
+                        messageQueue.add((byte)'\r'); // delimiter
+                    }
                 }
             }
         };
     }
 
-    private void beginReceiveThread() {
-        Thread receiveThread = new Thread() {
+    // blocks on the socket so each message is handled as soon as it arrives, and ends once the socket is closed
+    private void beginReceiveThread(final Socket socket, final InputStream stream) {
+        receiveThread = new Thread(String.format("HpaTcpInterface-%s", settings.getIpAddress())) {
             public void run() {
-                while(true) {
-                    try {
-                        if(in.available() > 0) {
-                            do {
-                                int length = getLength();
-                                if (length > 0) {
-                                    byte[] buffer = new byte[8192];
-
-                                    boolean incomplete = true;
-                                    int offset = 0;
-                                    int tempLength = length;
-                                    do {
-                                        int bytesReceived = in.read(buffer, offset, tempLength);
-                                        if (bytesReceived != tempLength) {
-                                            offset += bytesReceived;
-                                            tempLength -= bytesReceived;
-                                            sleep(10);
-                                        } else incomplete = false;
-                                    }
-                                    while (incomplete);
-
-                                    byte[] readBuffer = new byte[length];
-                                    System.arraycopy(buffer, 0, readBuffer, 0, length);
-                                    onMessageReceived.messageReceived(readBuffer);
-                                }
-                                else break;
-                            }
-                            while(true);
+                try {
+                    while(!socket.isClosed()) {
+                        byte[] lengthBuffer = new byte[2];
+                        readFully(stream, lengthBuffer);
+
+                        int length = ((lengthBuffer[0] & 0xFF) << 8) | (lengthBuffer[1] & 0xFF);
+                        if(length > 0) {
+                            byte[] readBuffer = new byte[length];
+                            readFully(stream, readBuffer);
+                            onMessageReceived.messageReceived(readBuffer);
                         }
-                        sleep(300);
-                    } catch (Exception e) {
-                        // This never needs to fail
                     }
                 }
+                catch(IOException e) {
+                    // the socket was closed
+                }
             }
         };
+        receiveThread.setDaemon(true);
         receiveThread.start();
     }
 
+    private static void readFully(InputStream stream, byte[] buffer) throws IOException {
+        int offset = 0;
+        while(offset < buffer.length) {
+            int bytesReceived = stream.read(buffer, offset, buffer.length - offset);
+            if(bytesReceived < 0) {
+                throw new EOFException();
+            }
+            offset += bytesReceived;
+        }
+    }
+
     public void connect() {
         if(client == null) {
             try {
                 client = new Socket(settings.getIpAddress(), settings.getPort());
+                out = new DataOutputStream(client.getOutputStream());
+                in = new BufferedInputStream(client.getInputStream());
 
-                if(client.isConnected()) {
-                    out = new DataOutputStream(client.getOutputStream());
-                    in = client.getInputStream();
-
-                    beginReceiveThread();
-                }
+                beginReceiveThread(client, in);
             }
             catch(IOException e) {
                 lastConnectionError = e.getMessage();
+                client = null;
             }
         }
     }
 
     public void disconnect() {
+        // closing the socket wakes the receive thread so it can exit
         try {
-            if (!client.isClosed()) {
-                in.close();
-                out.close();
+            if(client != null) {
                 client.close();
             }
-            messageQueue = null;
         }
         catch(IOException e) {
             // Eating the close exception
         }
-        finally {
-            in = null;
-            out = null;
-            client = null;
+        if(receiveThread != null) {
+            receiveThread.interrupt();
         }
+
+        synchronized (queueLock) {
+            messageQueue = null;
+        }
+        in = null;
+        out = null;
+        client = null;
+        receiveThread = null;
     }
 
     public byte[] send(IDeviceMessage message) throws MessageException {
@@ -147,7 +148,9 @@ public class HpaTcpInterface implements IDeviceCommInterface {
         }
 
         String strMessage = message.toString();
-        messageQueue = new ArrayList<Byte>();
+        synchronized (queueLock) {
+            messageQueue = new MessageWriter();
+        }
         try{
             byte[] buffer = message.getSendBuffer();
 
@@ -157,11 +160,12 @@ public class HpaTcpInterface implements IDeviceCommInterface {
 
                 if(message.isAwaitResponse()) {
                     await.waitOne(settings.getTimeout());
-                    if(messageQueue.size() == 0) {
-                        throw new MessageException("Device did not response within the timeout");
+                    synchronized (queueLock) {
+                        if(messageQueue == null || messageQueue.length() == 0) {
+                            throw new MessageException("Device did not response within the timeout");
+                        }
+                        return messageQueue.toArray();
                     }
-
-                    return convertBytes(messageQueue.toArray(new Byte[messageQueue.size()]));
                 }
                 else return null;
             }
@@ -180,28 +184,4 @@ public class HpaTcpInterface implements IDeviceCommInterface {
             }
         }
     }
-
-    private int getLength() {
-        try {
-            byte[] lengthBuffer = new byte[2];
-            int byteCount = in.read(lengthBuffer, 0, 2);
-
-            if(byteCount != 2)
-                return 0;
-            return (short)(((lengthBuffer[0] & 0xFF) << 8) | (lengthBuffer[1] & 0xFF));
-        }
-        catch(IOException e) {
-            return 0;
-        }
-    }
-
-    private byte[] convertBytes(Byte[] buffer) {
-        byte[] returnBuffer = new byte[buffer.length];
-
-        int index = 0;
-        for(Byte b: buffer)
-            returnBuffer[index++] = b;
-
-        return returnBuffer;
-    }
 }
@@ -0,0 +1,5 @@
+package com.global.api.terminals.messaging;
+
+public interface IUploadProgressInterface {
+    void progressChanged(long bytesSent, long totalBytes);
+}
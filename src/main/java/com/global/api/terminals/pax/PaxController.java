@@ -248,7 +248,7 @@ public class PaxController extends DeviceController {
         }
 
         DeviceMessage message = TerminalUtilities.buildRequest(messageId, commands.toArray());
-        return _interface.send(message);
+        return send(message);
     }
 
     public CreditResponse doCredit(PaxTxnType transactionType, AmountRequest amounts, AccountRequest accounts, TraceRequest trace, AvsRequest avs, CashierSubGroup cashier, CommercialRequest commercial, EcomSubGroup ecom, ExtDataSubGroup extData) throws ApiException {
@@ -2,15 +2,19 @@ package com.global.api.terminals.pax.interfaces;
 
 import com.global.api.entities.enums.ControlCodes;
 import com.global.api.entities.exceptions.MessageException;
+import com.global.api.terminals.TerminalSocketPool;
 import com.global.api.terminals.TerminalUtilities;
 import com.global.api.terminals.abstractions.*;
 import com.global.api.terminals.messaging.IMessageSentInterface;
 import com.global.api.utils.EnumUtils;
+import com.global.api.utils.MessageWriter;
 
+import java.io.BufferedInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 
 public class PaxTcpInterface implements IDeviceCommInterface {
     private Socket client;
@@ -33,37 +37,41 @@ public class PaxTcpInterface implements IDeviceCommInterface {
     public void connect() {
         if(client == null) {
             try {
-                client = new Socket(settings.getIpAddress(), settings.getPort());
-                if(client.isConnected()) {
-                    out = new DataOutputStream(client.getOutputStream());
-                    in = client.getInputStream();
-                    client.setKeepAlive(true);
-                }
-                else throw new IOException("Client failed to connect");
+                client = TerminalSocketPool.getInstance().acquire(settings.getIpAddress(), settings.getPort());
+                out = new DataOutputStream(client.getOutputStream());
+                in = new BufferedInputStream(client.getInputStream());
             }
             catch(IOException exc) {
-                //TODO: Handle this exception
+                client = null;
             }
         }
     }
 
     public void disconnect() {
-        try {
-            if (!client.isClosed()) {
-                in.close();
-                out.close();
-                client.close();
-            }
-            client = null;
-        } catch(IOException e) {
-            // Eating the close exception
-        }
+        TerminalSocketPool.getInstance().discard(client);
+        clear();
+    }
+
+    // hand the socket back to the pool for the next message
+    private void release() {
+        TerminalSocketPool.getInstance().release(settings.getIpAddress(), settings.getPort(), client);
+        clear();
+    }
+
+    private void clear() {
+        client = null;
+        out = null;
+        in = null;
     }
 
     public byte[] send(IDeviceMessage message) throws MessageException {
         connect();
+        if(client == null) {
+            throw new MessageException("Could not connect to the device.");
+        }
 
         byte[] buffer = message.getSendBuffer();
+        boolean completed = false;
         try {
             if(onMessageSent != null)
                 onMessageSent.messageSent(message.toString());
@@ -78,6 +86,7 @@ public class PaxTcpInterface implements IDeviceCommInterface {
                         sendControlCode(ControlCodes.NAK);
                     else {
                         sendControlCode(ControlCodes.ACK);
+                        completed = true;
                         return rvalue;
                     }
                 }
@@ -88,7 +97,11 @@ public class PaxTcpInterface implements IDeviceCommInterface {
             throw new MessageException(exc.getMessage(), exc);
         }
         finally {
-            disconnect();
+            // only a socket which finished a clean exchange can be reused
+            if(completed) {
+                release();
+            }
+            else disconnect();
         }
     }
 
@@ -107,43 +120,56 @@ public class PaxTcpInterface implements IDeviceCommInterface {
 
     private byte[] getTerminalResponse() throws MessageException {
         try {
-            byte[] buffer = new byte[4096];
-            int bytesReceived = awaitResponse(in, buffer);
-
-            if(bytesReceived > 0) {
-                byte[] rec_buffer = new byte[bytesReceived];
-                System.arraycopy(buffer, 0, rec_buffer, 0, bytesReceived);
-
-                ControlCodes code = EnumUtils.parse(ControlCodes.class, rec_buffer[0]); // queue.readCode();
-                if (code.equals(ControlCodes.NAK))
-                    return null;
-                else if (code.equals(ControlCodes.EOT))
-                    throw new MessageException("Terminal returned EOT for the current message");
-                else if (code.equals(ControlCodes.ACK))
-                    return getTerminalResponse();
-                else if (code.equals(ControlCodes.STX)) {
-                    return rec_buffer;
-                } else throw new MessageException(String.format("Unknown message received: %s", code));
+            long deadline = System.currentTimeMillis() + settings.getTimeout();
+
+            ControlCodes code = EnumUtils.parse(ControlCodes.class, readByte(deadline));
+            while(code != null && code.equals(ControlCodes.ACK)) {
+                code = EnumUtils.parse(ControlCodes.class, readByte(deadline));
             }
 
-            return null;
+            if (code == null)
+                throw new MessageException("Unknown message received from the terminal.");
+            else if (code.equals(ControlCodes.NAK))
+                return null;
+            else if (code.equals(ControlCodes.EOT))
+                throw new MessageException("Terminal returned EOT for the current message");
+            else if (code.equals(ControlCodes.STX))
+                return readFrame(deadline);
+            else throw new MessageException(String.format("Unknown message received: %s", code));
         }
         catch(IOException exc) {
             return null;
         }
     }
 
-    private int awaitResponse(InputStream in, byte[] buffer) throws IOException {
-        long t = System.currentTimeMillis();
+    // reads the rest of the frame after the STX, up to and including the ETX and the LRC
+    private byte[] readFrame(long deadline) throws IOException {
+        MessageWriter frame = new MessageWriter();
+        frame.add(ControlCodes.STX);
+
+        byte current;
         do {
-            if(in.available() > 0) {
-                return in.read(buffer);
-            }
+            current = readByte(deadline);
+            frame.add(current);
+        }
+        while(current != ControlCodes.ETX.getByte());
+
+        frame.add(readByte(deadline));
+        return frame.toArray();
+    }
+
+    // blocks until a byte arrives, the read wakes as soon as there is data rather than polling for it
+    private byte readByte(long deadline) throws IOException {
+        long remaining = deadline - System.currentTimeMillis();
+        if(remaining <= 0) {
+            throw new SocketTimeoutException("Terminal did not respond in the given timeout");
+        }
 
-            if (System.currentTimeMillis() - t >= settings.getTimeout())
-                break;
+        client.setSoTimeout((int)Math.min(remaining, Integer.MAX_VALUE));
+        int value = in.read();
+        if(value < 0) {
+            throw new IOException("The connection was closed by the terminal.");
         }
-        while(true);
-        throw new IOException("Terminal did not respond in the given timeout");
+        return (byte)value;
     }
-}
\ No newline at end of file
+}
@@ -48,8 +48,8 @@ public class PaxBaseResponse extends TerminalResponse {
     public String toString(){
         StringBuilder sb = new StringBuilder();
         for(byte b : buffer){
-            if(EnumUtils.isDefined(ControlCodes.class, b)){
-                ControlCodes code = EnumUtils.parse(ControlCodes.class, b);
+            ControlCodes code = EnumUtils.parse(ControlCodes.class, b);
+            if(code != null){
                 sb.append(code.toString());
             }
             else sb.append((char)b);
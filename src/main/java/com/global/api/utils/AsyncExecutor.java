@@ -0,0 +1,173 @@
+package com.global.api.utils;
+
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs blocking SDK calls on an executor and exposes them as a CompletableFuture with an optional
+ * timeout. Cancelling or timing out the future interrupts the worker that is running the call.
+ *
+ * Any Executor may be supplied; on JDK 21 and later Executors.newVirtualThreadPerTaskExecutor()
+ * allows a very large number of in-flight calls without a matching number of platform threads.
+ */
+public class AsyncExecutor {
+    private static final int DEFAULT_POOL_SIZE = 64;
+
+    private static Executor defaultExecutor;
+    private static ScheduledExecutorService timeoutScheduler;
+
+    public static synchronized Executor getDefaultExecutor() {
+        if(defaultExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("GlobalPayments-Async"));
+            executor.allowCoreThreadTimeOut(true);
+            defaultExecutor = executor;
+        }
+        return defaultExecutor;
+    }
+    public static synchronized void setDefaultExecutor(Executor executor) {
+        defaultExecutor = executor;
+    }
+
+    private static synchronized ScheduledExecutorService getTimeoutScheduler() {
+        if(timeoutScheduler == null) {
+            timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("GlobalPayments-AsyncTimeout"));
+        }
+        return timeoutScheduler;
+    }
+
+    public static <T> CompletableFuture<T> submit(Callable<T> task) {
+        return submit(task, null, 0);
+    }
+
+    /**
+     * @param task the blocking call
+     * @param executor the executor to run it on, or null for the default executor
+     * @param timeout milliseconds before the future fails with a GatewayTimeoutException, 0 for no timeout
+     */
+    public static <T> CompletableFuture<T> submit(final Callable<T> task, Executor executor, int timeout) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final Object lock = new Object();
+        final Thread[] worker = new Thread[1];
+
+        try {
+            (executor != null ? executor : getDefaultExecutor()).execute(new Runnable() {
+                public void run() {
+                    synchronized (lock) {
+                        // cancelled or timed out before it started
+                        if(future.isDone()) {
+                            return;
+                        }
+                        worker[0] = Thread.currentThread();
+                    }
+
+                    try {
+                        future.complete(task.call());
+                    }
+                    catch(Throwable exc) {
+                        future.completeExceptionally(exc);
+                    }
+                    finally {
+                        synchronized (lock) {
+                            worker[0] = null;
+                            // don't leak an interrupt into the next task on a pooled thread
+                            Thread.interrupted();
+                        }
+                    }
+                }
+            });
+        }
+        catch(RejectedExecutionException exc) {
+            future.completeExceptionally(exc);
+            return future;
+        }
+
+        final ScheduledFuture<?> timer = timeout > 0 ? getTimeoutScheduler().schedule(new Runnable() {
+            public void run() {
+                future.completeExceptionally(new GatewayTimeoutException());
+            }
+        }, timeout, TimeUnit.MILLISECONDS) : null;
+
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T result, Throwable exc) {
+                if(timer != null) {
+                    timer.cancel(false);
+                }
+
+                // stop the call if the caller gave up on it
+                if(exc != null) {
+                    synchronized (lock) {
+                        if(worker[0] != null) {
+                            worker[0].interrupt();
+                        }
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs the worker on the calling thread and on up to helperCount threads from the executor, and returns once
+     * every copy which started has finished. Each copy should take work from a shared queue until it is empty.
+     * Helpers the executor has not started by the time the calling thread runs out of work are skipped, so a busy
+     * executor (or a call made from one of its own threads) slows the work down rather than stalling it.
+     */
+    public static void runWithHelpers(Executor executor, int helperCount, final Runnable worker) throws InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(Math.max(0, helperCount));
+        List<AtomicBoolean> claims = new ArrayList<AtomicBoolean>();
+
+        for(int i = 0; i < helperCount; i++) {
+            final AtomicBoolean claimed = new AtomicBoolean();
+            claims.add(claimed);
+            try {
+                (executor != null ? executor : getDefaultExecutor()).execute(new Runnable() {
+                    public void run() {
+                        if(claimed.compareAndSet(false, true)) {
+                            try {
+                                worker.run();
+                            }
+                            finally {
+                                finished.countDown();
+                            }
+                        }
+                    }
+                });
+            }
+            catch(RejectedExecutionException exc) {
+                claimed.set(true);
+                finished.countDown();
+            }
+        }
+        worker.run();
+
+        // nothing is left for the helpers which have not started
+        for(AtomicBoolean claimed : claims) {
+            if(claimed.compareAndSet(false, true)) {
+                finished.countDown();
+            }
+        }
+        finished.await();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final String prefix;
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, String.format("%s-%s", prefix, count.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
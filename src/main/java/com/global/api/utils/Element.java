@@ -5,28 +5,103 @@ import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * An element is either a view over a DOM node or a lightweight node that only
+ * records its tag, attributes and children. Elements built through
+ * {@link ElementTree#element(String)} and those read by {@link ElementTree#parse(String)}
+ * are lightweight; lookups on them go through an index built on first use.
+ */
 public class Element {
     private Document doc;
     private org.w3c.dom.Element element;
 
+    private String tagName;
+    private Element parent;
+    private List<String[]> attributes;
+    private List<Object> children;
+    private Map<String, Element> index;
+
     public Element(Document doc, org.w3c.dom.Element element) {
         this.doc = doc;
         this.element = element;
     }
 
+    Element(String tagName) {
+        this.tagName = tagName;
+        this.attributes = new ArrayList<String[]>(2);
+        this.children = new ArrayList<Object>(4);
+    }
+
+    private boolean isDetached() {
+        return element == null;
+    }
+
+    Element getParent() {
+        return parent;
+    }
+
+    // any lookup index above a changed element no longer holds
+    private void invalidate() {
+        for(Element current = this; current != null; current = current.parent) {
+            current.index = null;
+        }
+    }
+
+    Element createChild(String tagName) {
+        if(isDetached()) {
+            Element child = new Element(tagName);
+            child.parent = this;
+            children.add(child);
+            invalidate();
+            return child;
+        }
+
+        org.w3c.dom.Element child = doc.createElement(tagName);
+        element.appendChild(child);
+        return new Element(doc, child);
+    }
+
     public Element firstChild() {
+        if(isDetached()) {
+            for(Object child: children) {
+                if(child instanceof Element) {
+                    return (Element)child;
+                }
+            }
+            return null;
+        }
         return Element.fromNode(doc, this.element.getFirstChild());
     }
 
     public Element remove(String tagName) {
+        if(isDetached()) {
+            for(int i = 0; i < children.size(); i++) {
+                Object child = children.get(i);
+                if(child instanceof Element && ((Element)child).tag().equals(tagName)) {
+                    children.remove(i);
+                    ((Element)child).parent = null;
+                    invalidate();
+                    break;
+                }
+            }
+            return this;
+        }
+
         Element child = get(tagName);
         if(child != null) {
             element.removeChild(child.getElement());
@@ -35,9 +110,35 @@ public class Element {
     }
 
     public Element set(String name, String value){
+        if(isDetached()) {
+            if(value == null)
+                value = "";
+
+            // namespace declarations first, then sorted by name
+            int index = 0;
+            for(; index < attributes.size(); index++) {
+                int compare = compareAttributeNames(attributes.get(index)[0], name);
+                if(compare == 0) {
+                    attributes.get(index)[1] = value;
+                    return this;
+                }
+                if(compare > 0)
+                    break;
+            }
+            attributes.add(index, new String[] { name, value });
+            return this;
+        }
+
         this.element.setAttribute(name, value);
         return this;
     }
+    private static int compareAttributeNames(String first, String second) {
+        boolean firstIsNamespace = first.equals("xmlns") || first.startsWith("xmlns:");
+        boolean secondIsNamespace = second.equals("xmlns") || second.startsWith("xmlns:");
+        if(firstIsNamespace != secondIsNamespace)
+            return firstIsNamespace ? -1 : 1;
+        return first.compareTo(second);
+    }
     public Element set(String name, IStringConstant value) {
         return set(name, value.getValue());
     }
@@ -45,6 +146,10 @@ public class Element {
     public Element text(String text){
         if(text == null)
             text = "";
+        if(isDetached()) {
+            children.add(text);
+            return this;
+        }
         this.element.appendChild(doc.createTextNode(text));
         return this;
     }
@@ -53,30 +158,200 @@ public class Element {
     }
 
     public Element append(Element child) {
-        this.doc.adoptNode(child.getElement());
-        this.element.appendChild(child.getElement());
+        if(isDetached()) {
+            if(child.parent != null) {
+                child.parent.children.remove(child);
+                child.parent.invalidate();
+            }
+            child.parent = this;
+            children.add(child);
+            invalidate();
+            return this;
+        }
+
+        org.w3c.dom.Element node = child.getElement();
+        this.doc.adoptNode(node);
+        this.element.appendChild(node);
         return this;/**/
     }
 
     public String tag() {
+        if(isDetached())
+            return tagName;
         return this.element.getTagName();
     }
 
-    public org.w3c.dom.Element getElement() { return this.element; }
+    /**
+     * Returns the backing DOM node. Lightweight elements have none, so a
+     * detached copy is built on each call.
+     */
+    public org.w3c.dom.Element getElement() {
+        if(isDetached()) {
+            try {
+                Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+                return toNode(document);
+            }
+            catch(ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return this.element;
+    }
+
+    private org.w3c.dom.Element toNode(Document document) {
+        org.w3c.dom.Element node = document.createElement(tagName);
+        for(String[] attribute: attributes) {
+            node.setAttribute(attribute[0], attribute[1]);
+        }
+        for(Object child: children) {
+            if(child instanceof String) {
+                node.appendChild(document.createTextNode((String)child));
+            }
+            else {
+                Element childElement = (Element)child;
+                node.appendChild(childElement.isDetached() ? childElement.toNode(document) : document.importNode(childElement.element, true));
+            }
+        }
+        return node;
+    }
+
+    void writeTo(XmlWriter writer) {
+        if(isDetached()) {
+            writer.writeStartElement(tagName);
+            for(String[] attribute: attributes) {
+                writer.writeAttribute(attribute[0], attribute[1]);
+            }
+            for(Object child: children) {
+                if(child instanceof String) {
+                    writer.writeText((String)child);
+                }
+                else ((Element)child).writeTo(writer);
+            }
+            writer.writeEndElement();
+        }
+        else writeNode(writer, element);
+    }
+
+    private static void writeNode(XmlWriter writer, Node node) {
+        switch(node.getNodeType()) {
+            case Node.ELEMENT_NODE: {
+                writer.writeStartElement(node.getNodeName());
+                NamedNodeMap attributes = node.getAttributes();
+                for(int i = 0; i < attributes.getLength(); i++) {
+                    writer.writeAttribute(attributes.item(i).getNodeName(), attributes.item(i).getNodeValue());
+                }
+                for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    writeNode(writer, child);
+                }
+                writer.writeEndElement();
+            } break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE: {
+                writer.writeText(node.getNodeValue());
+            } break;
+            default: break;
+        }
+    }
+
+    // first descendant with the given tag, in document order
+    private Element find(String tagName) {
+        if(isDetached()) {
+            if(index == null) {
+                index = new HashMap<String, Element>();
+                buildIndex(index);
+            }
+            return index.get(tagName);
+        }
+
+        Node node = this.element.getElementsByTagName(tagName).item(0);
+        if(node != null) {
+            return Element.fromNode(doc, node);
+        } return null;
+    }
+
+    // a single pre-order walk that keeps the first element seen for each tag
+    private void buildIndex(Map<String, Element> index) {
+        for(Object child: children) {
+            if(child instanceof Element) {
+                Element childElement = (Element)child;
+                if(!index.containsKey(childElement.tag())) {
+                    index.put(childElement.tag(), childElement);
+                }
+
+                if(childElement.isDetached()) {
+                    childElement.buildIndex(index);
+                }
+                else {
+                    NodeList nodes = childElement.element.getElementsByTagName("*");
+                    for(int i = 0; i < nodes.getLength(); i++) {
+                        Element descendant = Element.fromNode(childElement.doc, nodes.item(i));
+                        if(!index.containsKey(descendant.tag())) {
+                            index.put(descendant.tag(), descendant);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void findAll(String tagName, List<Element> matches) {
+        for(Object child: children) {
+            if(child instanceof Element) {
+                Element childElement = (Element)child;
+                if(childElement.tag().equals(tagName)) {
+                    matches.add(childElement);
+                }
+                if(childElement.isDetached()) {
+                    childElement.findAll(tagName, matches);
+                }
+                else {
+                    for(Element match: childElement.getAll(tagName)) {
+                        matches.add(match);
+                    }
+                }
+            }
+        }
+    }
+
+    private String getTextContent() {
+        if(isDetached()) {
+            StringBuilder sb = new StringBuilder();
+            for(Object child: children) {
+                if(child instanceof String) {
+                    sb.append((String)child);
+                }
+                else sb.append(((Element)child).getTextContent());
+            }
+            return sb.toString();
+        }
+        return this.element.getTextContent();
+    }
 
     public static Element fromNode(Document doc, Node node) {
         return new Element(doc, (org.w3c.dom.Element)node);
     }
 
     public boolean has(String tagName) {
-        return this.element.getElementsByTagName(tagName).getLength() > 0;
+        return find(tagName) != null;
     }
 
     public Element get(String tagName) {
+        if(isDetached())
+            return find(tagName);
         return Element.fromNode(doc, this.element.getElementsByTagName(tagName).item(0));
     }
 
     public Element[] getAll() {
+        if(isDetached()) {
+            List<Element> elements = new ArrayList<Element>();
+            for(Object child: children) {
+                if(child instanceof Element) {
+                    elements.add((Element)child);
+                }
+            }
+            return elements.toArray(new Element[elements.size()]);
+        }
+
         NodeList nodes = this.element.getChildNodes();
 
         Element[] elements = new Element[nodes.getLength()];
@@ -86,6 +361,12 @@ public class Element {
         return elements;
     }
     public Element[] getAll(String tagName) {
+        if(isDetached()) {
+            List<Element> elements = new ArrayList<Element>();
+            findAll(tagName, elements);
+            return elements.toArray(new Element[elements.size()]);
+        }
+
         NodeList nodes = this.element.getElementsByTagName(tagName);
 
         Element[] elements = new Element[nodes.getLength()];
@@ -96,12 +377,20 @@ public class Element {
     }
 
     public String getAttributeString(String attributeName) {
+        if(isDetached()) {
+            for(String[] attribute: attributes) {
+                if(attribute[0].equals(attributeName)) {
+                    return attribute[1];
+                }
+            }
+            return "";
+        }
         return this.element.getAttribute(attributeName);
     }
 
     public String getString(String... tagNames) {
         for(String tagName: tagNames) {
-            org.w3c.dom.Element element = (org.w3c.dom.Element)this.element.getElementsByTagName(tagName).item(0);
+            Element element = find(tagName);
             if(element != null) {
                 return element.getTextContent();
             }
@@ -110,18 +399,18 @@ public class Element {
     }
 
     public Integer getInt(String tagName) {
-        org.w3c.dom.Element element = (org.w3c.dom.Element)this.element.getElementsByTagName(tagName).item(0);
+        Element element = find(tagName);
         if(element != null) {
             String value = element.getTextContent();
             if(StringUtils.isNullOrEmpty(value)) {
                 return null;
             }
-            return Integer.parseInt(element.getTextContent());
+            return Integer.parseInt(value);
         } return null;
     }
 
     public BigDecimal getDecimal(String tagName) {
-        org.w3c.dom.Element element = (org.w3c.dom.Element)this.element.getElementsByTagName(tagName).item(0);
+        Element element = find(tagName);
         if(element != null) {
             return new BigDecimal(element.getTextContent());
         } return null;
@@ -132,7 +421,7 @@ public class Element {
     }
     public Date getDate(SimpleDateFormat formatter, String... tagNames) {
         for(String tagName: tagNames) {
-            org.w3c.dom.Element element = (org.w3c.dom.Element)this.element.getElementsByTagName(tagName).item(0);
+            Element element = find(tagName);
             if(element != null) {
                 try {
                     return formatter.parse(element.getTextContent());
@@ -150,7 +439,7 @@ public class Element {
     }
     public DateTime getDateTime(DateTimeFormatter format, String... tagNames) {
         for(String tagName: tagNames) {
-            org.w3c.dom.Element element = (org.w3c.dom.Element)this.element.getElementsByTagName(tagName).item(0);
+            Element element = find(tagName);
             if(element != null) {
                 String value = element.getTextContent();
                 if(!StringUtils.isNullOrEmpty(value)) {
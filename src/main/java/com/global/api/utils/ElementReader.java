@@ -0,0 +1,143 @@
+package com.global.api.utils;
+
+import com.global.api.entities.exceptions.ApiException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Pulls elements out of an XML document one subtree at a time, so a large
+ * response can be consumed without holding the whole document in memory.
+ * Names keep their prefixes, as the DOM parser reported them.
+ */
+public class ElementReader {
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private XMLStreamReader reader;
+    private Object source;
+
+    public ElementReader(Reader source) throws ApiException {
+        try {
+            this.reader = inputFactory.createXMLStreamReader(source);
+            this.source = source;
+        } catch(XMLStreamException e) {
+            throw new ApiException(e.getMessage());
+        }
+    }
+
+    public ElementReader(InputStream source) throws ApiException {
+        try {
+            this.reader = inputFactory.createXMLStreamReader(source);
+            this.source = source;
+        } catch(XMLStreamException e) {
+            throw new ApiException(e.getMessage());
+        }
+    }
+
+    /**
+     * Moves to the start of the next element with one of the given names, or
+     * of any element when none are given. Returns false at the end of the document.
+     */
+    public boolean next(String... tagNames) throws ApiException {
+        try {
+            while(reader.hasNext()) {
+                if(reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if(tagNames.length == 0) {
+                        return true;
+                    }
+
+                    String tagName = getTagName();
+                    for(String name: tagNames) {
+                        if(name.equals(tagName)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } catch(XMLStreamException e) {
+            throw new ApiException(e.getMessage());
+        }
+    }
+
+    public String getTagName() {
+        return qualifiedName(reader.getPrefix(), reader.getLocalName());
+    }
+
+    /**
+     * Reads the element the reader is positioned on, along with everything
+     * below it, and leaves the reader just past its end tag.
+     */
+    public Element read() throws ApiException {
+        try {
+            Element root = null;
+            Element current = null;
+            do {
+                switch(reader.getEventType()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        String tagName = getTagName();
+                        current = (current == null) ? new Element(tagName) : current.createChild(tagName);
+                        for(int i = 0; i < reader.getAttributeCount(); i++) {
+                            current.set(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+                        }
+                        if(root == null) {
+                            root = current;
+                        }
+                    } break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE: {
+                        if(current != null) {
+                            current.text(reader.getText());
+                        }
+                    } break;
+                    case XMLStreamConstants.END_ELEMENT: {
+                        if(current == root) {
+                            return root;
+                        }
+                        current = current.getParent();
+                    } break;
+                    default: break;
+                }
+                reader.next();
+            }
+            while(true);
+        } catch(XMLStreamException e) {
+            throw new ApiException(e.getMessage());
+        } catch(IllegalStateException e) {
+            throw new ApiException("Unexpected end of document.");
+        }
+    }
+
+    public void close() {
+        try {
+            reader.close();
+            if(source instanceof InputStream) {
+                ((InputStream)source).close();
+            }
+            else ((Reader)source).close();
+        }
+        catch(XMLStreamException e) { /* nothing left to release */ }
+        catch(IOException e) { /* nothing left to release */ }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if(StringUtils.isNullOrEmpty(prefix))
+            return localName;
+        return prefix + ":" + localName;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -6,19 +6,8 @@ import com.global.api.entities.enums.IStringConstant;
 import com.global.api.entities.exceptions.ApiException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.math.BigDecimal;
 
 public class ElementTree {
@@ -28,24 +17,24 @@ public class ElementTree {
         this.doc = doc;
     }
 
-    public ElementTree(){
-        try {
-            this.doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-
-        } catch (ParserConfigurationException e) {
-            System.out.println(e.getMessage());
+    // requests are written into a per-thread buffer instead of running a Transformer per message
+    private static final ThreadLocal<XmlWriter> writers = new ThreadLocal<XmlWriter>() {
+        @Override
+        protected XmlWriter initialValue() {
+            return new XmlWriter();
         }
-    }
+    };
+
+    private Element root;
+
+    public ElementTree(){ }
 
     public Element element(String tagName) {
-        org.w3c.dom.Element element = doc.createElement(tagName);
-        return new Element(doc, element);
+        return new Element(tagName);
     }
 
     public Element subElement(Element parent, String tagName) {
-        org.w3c.dom.Element child = doc.createElement(tagName);
-        parent.getElement().appendChild(child);
-        return new Element(doc, child);
+        return parent.createChild(tagName);
     }
     public Element subElement(Element parent, String tagName, String value) {
         if(value == null || value.equals(""))
@@ -85,25 +74,21 @@ public class ElementTree {
     }
 
     public String toString(Element root) {
-        doc.appendChild(root.getElement());
-
-        try {
-            TransformerFactory tFact = TransformerFactory.newInstance();
-            Transformer trans = tFact.newTransformer();
-
-            StringWriter writer = new StringWriter();
-            StreamResult result = new StreamResult(writer);
-            DOMSource source = new DOMSource(doc);
-            trans.transform(source, result);
-            return writer.toString();
-        } catch (TransformerException e) {
-            return e.getMessage();
-        } finally {
-            doc.removeChild(root.getElement());
-        }
+        XmlWriter writer = writers.get().reset();
+        writer.writeDeclaration();
+        root.writeTo(writer);
+        return writer.toString();
     }
 
     public Element get(String tagName) {
+        if(root != null) {
+            if(root.tag().equals(tagName))
+                return root;
+            return root.get(tagName);
+        }
+        if(doc == null)
+            return null;
+
         Node node = doc.getElementsByTagName(tagName).item(0);
         if(node != null) {
             return Element.fromNode(doc, node);
@@ -111,26 +96,27 @@ public class ElementTree {
     }
 
     public static ElementTree parse(byte[] buffer) throws ApiException {
-        String xmlString = "";
-        for(byte b: buffer) {
-            xmlString += (char)b;
+        char[] xml = new char[buffer.length];
+        for(int i = 0; i < buffer.length; i++) {
+            xml[i] = (char)buffer[i];
         }
-        return parse(xmlString);
+        return parse(new String(xml));
     }
 
+    /**
+     * Reads the document in a single pass with a pull parser into lightweight
+     * elements.
+     */
     public static ElementTree parse(String xml) throws ApiException {
+        ElementReader reader = new ElementReader(new StringReader(xml));
         try {
-            InputSource is = new InputSource(new StringReader(xml));
-
             ElementTree rvalue = new ElementTree();
-            rvalue.setDocument(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is));
+            if(reader.next()) {
+                rvalue.root = reader.read();
+            }
             return rvalue;
-        } catch(ParserConfigurationException e) {
-            throw new ApiException(e.getMessage());
-        } catch(SAXException e) {
-            throw new ApiException(e.getMessage());
-        } catch(IOException e) {
-            throw new ApiException(e.getMessage());
+        } finally {
+            reader.close();
         }
     }
 }
\ No newline at end of file
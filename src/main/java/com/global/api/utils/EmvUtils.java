@@ -1,5 +1,7 @@
 package com.global.api.utils;
 
+import com.global.api.logging.RequestLogger;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -201,21 +203,22 @@ public class EmvUtils {
         }
 
         if(verbose) {
-            System.out.println("Accepted Tags:");
+            StringBuilder sb = new StringBuilder("Accepted Tags:\r\n");
             for(String tagName: rvalue.getAcceptedTags().keySet()) {
                 TlvData tag = rvalue.getTag(tagName);
                 boolean appendBinary = dataTypes.containsKey(tagName);
 
-                System.out.println(String.format("TAG: %s - %s", tagName, tag.getDescription()));
-                System.out.println(String.format("%s: %s%s\r\n",tag.getLength(), tag.getValue(), appendBinary ? String.format(" [%s]", tag.getBinaryValue()) : ""));
+                sb.append(String.format("TAG: %s - %s\r\n", tagName, tag.getDescription()));
+                sb.append(String.format("%s: %s%s\r\n\r\n",tag.getLength(), tag.getValue(), appendBinary ? String.format(" [%s]", tag.getBinaryValue()) : ""));
             }
 
-            System.out.println("Removed Tags:");
+            sb.append("Removed Tags:\r\n");
             for(String tagName: rvalue.getRemovedTags().keySet()) {
                 TlvData tag = rvalue.getRemovedTags().get(tagName);
-                System.out.println(String.format("TAG: %s - %s", tagName, tag.getDescription()));
-                System.out.println(String.format("%s: %s\r\n",tag.getLength(), tag.getValue()));
+                sb.append(String.format("TAG: %s - %s\r\n", tagName, tag.getDescription()));
+                sb.append(String.format("%s: %s\r\n\r\n",tag.getLength(), tag.getValue()));
             }
+            RequestLogger.getInstance().log(null, sb.toString());
         }
 
         return rvalue;
@@ -8,22 +8,19 @@ import com.global.api.entities.enums.Target;
 
 public class EnumUtils {
     public static <V extends Enum<V> & IByteConstant> boolean isDefined(Class<V> valueType, byte value){
-        return parse(valueType, value) != null;
+        return ReverseByteEnumMap.forType(valueType).contains(value);
     }
 
     public static <V extends Enum<V> & IByteConstant> V parse(Class<V> valueType, byte value) {
-        ReverseByteEnumMap<V> map = new ReverseByteEnumMap<V>(valueType);
-        return map.get(value);
+        return ReverseByteEnumMap.forType(valueType).get(value);
     }
 
     public static <V extends Enum<V> & IStringConstant> V parse(Class<V> valueType, String value) {
-        ReverseStringEnumMap<V> map = new ReverseStringEnumMap<V>(valueType);
-        return map.get(value);
+        return ReverseStringEnumMap.forType(valueType).get(value);
     }
 
     public static <V extends Enum<V> & INumericConstant> V parse(Class<V> valueType, int value) {
-        ReverseIntEnumMap<V> map = new ReverseIntEnumMap<V>(valueType);
-        return map.get(value);
+        return ReverseIntEnumMap.forType(valueType).get(value);
     }
     public static String getMapping(IMappedConstant value, Target target) {
         return value.getValue(target);
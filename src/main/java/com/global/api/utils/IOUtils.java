@@ -7,9 +7,10 @@ public class IOUtils {
     public static String readFully(InputStream stream) throws IOException {
         StringBuilder sb = new StringBuilder();
         Reader reader = new BufferedReader(new InputStreamReader(stream, Charset.forName("UTF-8")));
-        int c;
-        while((c = reader.read()) != -1)
-            sb.append((char)c);
+        char[] buffer = new char[4096];
+        int count;
+        while((count = reader.read(buffer)) != -1)
+            sb.append(buffer, 0, count);
         return sb.toString();
     }
 }
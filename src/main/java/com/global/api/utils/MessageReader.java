@@ -4,11 +4,15 @@ import com.global.api.entities.enums.ControlCodes;
 import com.global.api.entities.enums.IByteConstant;
 
 public class MessageReader {
+    private static final ReverseByteEnumMap<ControlCodes> controlCodes = ReverseByteEnumMap.forType(ControlCodes.class);
+
     byte[] buffer;
     int position = 0;
     long length = 0;
 
     public long getLength() { return length; }
+    public int getPosition() { return position; }
+    public byte[] getBuffer() { return buffer; }
 
     public MessageReader(byte[] bytes){
         buffer = bytes;
@@ -28,8 +32,7 @@ public class MessageReader {
     }
 
     public <T extends Enum<T> & IByteConstant> T readEnum(Class<T> enumType){
-        ReverseByteEnumMap<T> map = new ReverseByteEnumMap<T>(enumType);
-        return map.get(buffer[position++]);
+        return ReverseByteEnumMap.forType(enumType).get(buffer[position++]);
     }
 
     public byte readByte() {
@@ -39,45 +42,47 @@ public class MessageReader {
     public byte[] readBytes(int length){
         byte[] rvalue = new byte[length];
 
-        try {
-            for (int i = 0; i < length; i++)
-                rvalue[i] = buffer[position++];
-        }
-        catch(ArrayIndexOutOfBoundsException e) {
-            // eat this exception and return what we have
-        }
+        // a short buffer returns what we have
+        int available = Math.min(length, buffer.length - position);
+        if(available > 0)
+            System.arraycopy(buffer, position, rvalue, 0, available);
+        position += length;
 
         return rvalue;
     }
 
+    public void skip(int length) {
+        position = (int)Math.min(position + (long)length, this.length);
+    }
+
     public char readChar(){
         return (char)buffer[position++];
     }
 
     public String readString(int length){
-        String rvalue = "";
-
+        char[] chars = new char[length];
         for(int i = 0; i < length; i++)
-            rvalue += (char)buffer[position++];
+            chars[i] = (char)buffer[position++];
 
-        return rvalue;
+        return new String(chars);
     }
 
     public String readToCode(ControlCodes code) {
         return readToCode(code, true);
     }
     public String readToCode(ControlCodes code, boolean removeCode){
-        String rvalue = "";
+        StringBuilder rvalue = new StringBuilder();
 
         try {
             byte value;
             while((value = peek()) != code.getByte()) {
-                if(EnumUtils.isDefined(ControlCodes.class, value)) {
-                    ControlCodes byteCode = EnumUtils.parse(ControlCodes.class, buffer[position++]);
+                ControlCodes byteCode = controlCodes.get(value);
+                if(byteCode != null) {
+                    position++;
                     if(byteCode == ControlCodes.ETX)
                         break;
-                    else rvalue += byteCode.toString();
-                } else rvalue += (char)buffer[position++];
+                    else rvalue.append(byteCode.toString());
+                } else rvalue.append((char)buffer[position++]);
             }
         } catch (ArrayIndexOutOfBoundsException e) {
             removeCode = false;
@@ -87,7 +92,7 @@ public class MessageReader {
         if(removeCode)
             readByte();
 
-        return rvalue;
+        return rvalue.toString();
     }
 
     public void purge(){
@@ -3,54 +3,79 @@ package com.global.api.utils;
 import com.global.api.entities.enums.IByteConstant;
 import com.global.api.entities.enums.IStringConstant;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class MessageWriter {
-    List<Byte> buffer;
+    private byte[] buffer;
+    private int count;
 
     public MessageWriter() {
-        buffer = new ArrayList<Byte>();
+        buffer = new byte[64];
+    }
+
+    public MessageWriter(int capacity) {
+        buffer = new byte[Math.max(1, capacity)];
     }
 
     public MessageWriter(byte[] bytes){
-        buffer = new ArrayList<Byte>();
-        for(byte b: bytes)
-            buffer.add(b);
+        buffer = Arrays.copyOf(bytes, Math.max(64, bytes.length));
+        count = bytes.length;
+    }
+
+    public void add(byte b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = b;
     }
 
-    public void add(Byte b) { buffer.add(b); }
+    public void add(Byte b) { add(b.byteValue()); }
 
     public void add(IByteConstant constant){
-        buffer.add(constant.getByte());
+        add(constant.getByte());
     }
 
     public void add(IStringConstant constant) {
-        for(byte b: constant.getBytes())
-            buffer.add(b);
+        addRange(constant.getBytes());
     }
 
     public void addRange(Byte[] bytes) {
-        for(byte b: bytes)
-            buffer.add(b);
+        ensureCapacity(count + bytes.length);
+        for(Byte b: bytes)
+            buffer[count++] = b;
     }
 
     public void addRange(byte[] bytes){
-        for(byte b: bytes)
-            buffer.add(b);
+        ensureCapacity(count + bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    public void addRange(byte[] bytes, int offset, int length) {
+        ensureCapacity(count + length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    public void clear() {
+        count = 0;
     }
 
     public void pop(){
-        buffer.remove(buffer.size() - 1);
+        if(count == 0)
+            throw new IndexOutOfBoundsException();
+        count--;
     }
 
-    public byte[] toArray(){
-        byte[] b = new byte[buffer.size()];
+    public int length() {
+        return count;
+    }
 
-        Object[] b2 = buffer.toArray();
-        for(int i = 0; i < buffer.size(); i++)
-            b[i] = (Byte)b2[i];
+    public byte[] toArray(){
+        return Arrays.copyOf(buffer, count);
+    }
 
-        return b;
+    private void ensureCapacity(int capacity) {
+        if(capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
     }
 }
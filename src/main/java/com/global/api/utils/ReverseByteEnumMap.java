@@ -2,24 +2,41 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.IByteConstant;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Maps a byte back to its enum constant through a 256 entry table. The
+ * table for each enum is built once and shared; get it through forType.
+ */
 public class ReverseByteEnumMap<V extends Enum<V> & IByteConstant> {
-    private Map<Byte, V> map = new HashMap<Byte, V>();
+    private static final ClassValue<ReverseByteEnumMap<?>> maps = new ClassValue<ReverseByteEnumMap<?>>() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected ReverseByteEnumMap<?> computeValue(Class<?> type) {
+            return new ReverseByteEnumMap(type);
+        }
+    };
+
+    private final Object[] values = new Object[256];
 
     ReverseByteEnumMap(Class<V> valueType) {
         for(V v: valueType.getEnumConstants()) {
-            map.put(v.getByte(), v);
+            values[v.getByte() & 0xFF] = v;
         }
     }
 
+    @SuppressWarnings("unchecked")
     public V get(byte value) {
-        return map.get(value);
+        return (V)values[value & 0xFF];
+    }
+
+    public boolean contains(byte value) {
+        return values[value & 0xFF] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <TResult extends Enum<TResult> & IByteConstant> ReverseByteEnumMap<TResult> forType(Class<TResult> clazz) {
+        return (ReverseByteEnumMap<TResult>)maps.get(clazz);
     }
 
     public static <TResult extends Enum<TResult> & IByteConstant> TResult parse(byte value, Class<TResult> clazz) {
-        ReverseByteEnumMap<TResult> mapper = new ReverseByteEnumMap<TResult>(clazz);
-        return mapper.get(value);
+        return forType(clazz).get(value);
     }
-}
\ No newline at end of file
+}
@@ -2,19 +2,55 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.INumericConstant;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+/**
+ * Maps a numeric value back to its enum constant with a binary search over
+ * the sorted values, so lookups don't box the key. The map for each enum is
+ * built once and shared; get it through forType.
+ */
 public class ReverseIntEnumMap<V extends Enum<V> & INumericConstant> {
-    private Map<Integer, V> map = new HashMap<Integer, V>();
+    private static final ClassValue<ReverseIntEnumMap<?>> maps = new ClassValue<ReverseIntEnumMap<?>>() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected ReverseIntEnumMap<?> computeValue(Class<?> type) {
+            return new ReverseIntEnumMap(type);
+        }
+    };
+
+    private int[] keys;
+    private Object[] values;
 
     public ReverseIntEnumMap(Class<V> valueType) {
-        for(V v: valueType.getEnumConstants()) {
-            map.put(v.getValue(), v);
+        V[] constants = valueType.getEnumConstants();
+
+        int[] sorted = new int[constants.length];
+        for(int i = 0; i < constants.length; i++) {
+            sorted[i] = constants[i].getValue();
+        }
+        Arrays.sort(sorted);
+
+        int count = 0;
+        for(int i = 0; i < sorted.length; i++) {
+            if(count == 0 || sorted[count - 1] != sorted[i])
+                sorted[count++] = sorted[i];
+        }
+        keys = Arrays.copyOf(sorted, count);
+        values = new Object[count];
+
+        // a repeated value maps to the last constant declared with it
+        for(V v: constants) {
+            values[Arrays.binarySearch(keys, v.getValue())] = v;
         }
     }
 
+    @SuppressWarnings("unchecked")
     public V get(int value) {
-        return map.get(value);
+        int index = Arrays.binarySearch(keys, value);
+        return index < 0 ? null : (V)values[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <TResult extends Enum<TResult> & INumericConstant> ReverseIntEnumMap<TResult> forType(Class<TResult> clazz) {
+        return (ReverseIntEnumMap<TResult>)maps.get(clazz);
     }
-}
\ No newline at end of file
+}
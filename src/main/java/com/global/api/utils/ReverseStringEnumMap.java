@@ -2,24 +2,92 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.IStringConstant;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Maps a string back to its enum constant. The table is sized so each value
+ * hashes to a slot of its own where that can be done in a small table, and
+ * falls back to probing the next slots otherwise. The map for each enum is
+ * built once and shared; get it through forType.
+ */
 public class ReverseStringEnumMap<V extends Enum<V> & IStringConstant> {
-    private Map<String, V> map = new HashMap<String, V>();
+    private static final int MAX_GROWTH = 16;
+
+    private static final ClassValue<ReverseStringEnumMap<?>> maps = new ClassValue<ReverseStringEnumMap<?>>() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected ReverseStringEnumMap<?> computeValue(Class<?> type) {
+            return new ReverseStringEnumMap(type);
+        }
+    };
+
+    private String[] keys;
+    private Object[] values;
+    private int mask;
+    private V nullValue;
 
     public ReverseStringEnumMap(Class<V> valueType) {
+        // a repeated value maps to the last constant declared with it
+        Map<String, V> constants = new LinkedHashMap<String, V>();
         for(V v: valueType.getEnumConstants()) {
-            map.put(v.getValue(), v);
+            if(v.getValue() == null)
+                nullValue = v;
+            else constants.put(v.getValue(), v);
+        }
+
+        int size = 2;
+        while(size < constants.size() * 2)
+            size <<= 1;
+        while(size < Math.max(constants.size(), 1) * MAX_GROWTH && !collisionFree(constants, size - 1))
+            size <<= 1;
+
+        keys = new String[size];
+        values = new Object[size];
+        mask = size - 1;
+        for(Map.Entry<String, V> entry: constants.entrySet()) {
+            int index = slot(entry.getKey(), mask);
+            while(keys[index] != null)
+                index = (index + 1) & mask;
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue();
         }
     }
 
+    @SuppressWarnings("unchecked")
     public V get(String value) {
-        return map.get(value);
+        if(value == null)
+            return nullValue;
+
+        String key;
+        for(int index = slot(value, mask); (key = keys[index]) != null; index = (index + 1) & mask) {
+            if(key.equals(value))
+                return (V)values[index];
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <TResult extends Enum<TResult> & IStringConstant> ReverseStringEnumMap<TResult> forType(Class<TResult> clazz) {
+        return (ReverseStringEnumMap<TResult>)maps.get(clazz);
     }
 
     public static <TResult extends Enum<TResult> & IStringConstant> TResult parse(String value, Class<TResult> clazz) {
-        ReverseStringEnumMap<TResult> mapper = new ReverseStringEnumMap<TResult>(clazz);
-        return mapper.get(value);
+        return forType(clazz).get(value);
+    }
+
+    private static int slot(String value, int mask) {
+        int hash = value.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean collisionFree(Map<String, ?> constants, int mask) {
+        boolean[] used = new boolean[mask + 1];
+        for(String key: constants.keySet()) {
+            int index = slot(key, mask);
+            if(used[index])
+                return false;
+            used[index] = true;
+        }
+        return true;
     }
-}
\ No newline at end of file
+}
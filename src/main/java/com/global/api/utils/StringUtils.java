@@ -2,12 +2,11 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.ControlCodes;
 import com.global.api.entities.enums.IStringConstant;
+import com.global.api.logging.LogMasker;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.NumberFormat;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class StringUtils {
     public static boolean isNullOrEmpty(String value) {
@@ -191,28 +190,6 @@ public class StringUtils {
     }
 
 	public static String mask(String value) {
-		String masked = null;
-		Pattern regex = Pattern.compile("\\b(?:4[ -]*(?:\\d[ -]*){11}(?:(?:\\d[ -]*){3})?\\d|"
-				+ "(?:5[ -]*[1-5](?:[ -]*\\d){2}|(?:2[ -]*){3}[1-9]|(?:2[ -]*){2}[3-9][ -]*"
-				+ "\\d|2[ -]*[3-6](?:[ -]*\\d){2}|2[ -]*7[ -]*[01][ -]*\\d|2[ -]*7[ -]*2[ -]*0)(?:[ -]*"
-				+ "\\d){12}|3[ -]*[47](?:[ -]*\\d){13}|3[ -]*(?:0[ -]*[0-5]|[68][ -]*\\d)(?:[ -]*"
-				+ "\\d){11}|6[ -]*(?:0[ -]*1[ -]*1|5[ -]*\\d[ -]*\\d)(?:[ -]*"
-				+ "\\d){12}|(?:2[ -]*1[ -]*3[ -]*1|1[ -]*8[ -]*0[ -]*0|3[ -]*5(?:[ -]*"
-				+ "\\d){3})(?:[ -]*\\d){11})\\b");
-
-		Matcher regexMatcher = regex.matcher(value);
-		if (regexMatcher.find()) {
-			String card = regexMatcher.group();
-			String strippedCard = card.replaceAll("[ -]+", "");
-			String subSectionOfCard = strippedCard.substring(6, strippedCard.length() - 4);
-			String prefix = strippedCard.substring(0, 6);
-			String middle = padLeft("X", subSectionOfCard.length(), 'X');
-			String suffix = strippedCard.substring(strippedCard.length() - 4, strippedCard.length());
-			String maskedCard = prefix + middle + suffix;
-			masked = value.replace(card, maskedCard);
-		} else {
-			masked = value;
-		}
-		return masked;
+		return LogMasker.getPanMasker().mask(value);
 	}
 }
@@ -0,0 +1,122 @@
+package com.global.api.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only XML writer that appends straight into a reusable character
+ * buffer. The output matches what the JDK transformer produces for the same
+ * tree: an XML declaration, no indentation and empty elements collapsed to
+ * {@code <tag/>}.
+ */
+public class XmlWriter {
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private StringBuilder buffer;
+    private List<String> openElements;
+    private boolean startTagOpen;
+
+    public XmlWriter() {
+        this(1024);
+    }
+
+    public XmlWriter(int capacity) {
+        buffer = new StringBuilder(capacity);
+        openElements = new ArrayList<String>();
+    }
+
+    public XmlWriter reset() {
+        if(buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(1024);
+        }
+        else buffer.setLength(0);
+        openElements.clear();
+        startTagOpen = false;
+        return this;
+    }
+
+    public XmlWriter writeDeclaration() {
+        buffer.append(DECLARATION);
+        return this;
+    }
+
+    public XmlWriter writeStartElement(String tagName) {
+        closeStartTag();
+        buffer.append('<').append(tagName);
+        openElements.add(tagName);
+        startTagOpen = true;
+        return this;
+    }
+
+    public XmlWriter writeAttribute(String name, String value) {
+        if(!startTagOpen) {
+            throw new IllegalStateException("Attributes must directly follow the start of an element.");
+        }
+        buffer.append(' ').append(name).append("=\"");
+        escape(value, true);
+        buffer.append('"');
+        return this;
+    }
+
+    public XmlWriter writeText(String text) {
+        closeStartTag();
+        escape(text, false);
+        return this;
+    }
+
+    public XmlWriter writeEndElement() {
+        String tagName = openElements.remove(openElements.size() - 1);
+        if(startTagOpen) {
+            buffer.append("/>");
+            startTagOpen = false;
+        }
+        else buffer.append("</").append(tagName).append('>');
+        return this;
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    private void closeStartTag() {
+        if(startTagOpen) {
+            buffer.append('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void escape(String value, boolean attribute) {
+        if(value == null) {
+            return;
+        }
+
+        int start = 0;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            String replacement;
+            switch(c) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = attribute ? "&quot;" : null; break;
+                case '\n': replacement = attribute ? "&#10;" : null; break;
+                case '\t': replacement = attribute ? "&#9;" : null; break;
+                case '\r': replacement = "&#13;"; break;
+                default: replacement = c < 0x20 ? "&#" + (int)c + ";" : null;
+            }
+
+            if(replacement != null) {
+                buffer.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        buffer.append(value, start, value.length());
+    }
+}
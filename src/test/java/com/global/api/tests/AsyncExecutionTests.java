@@ -0,0 +1,168 @@
+package com.global.api.tests;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.gateways.IPaymentGateway;
+import com.global.api.network.NetworkMessageHeader;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.serviceConfigs.Configuration;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class AsyncExecutionTests {
+    private CreditCardData card;
+
+    public AsyncExecutionTests() {
+        card = new CreditCardData();
+        card.setNumber("4111111111111111");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+    }
+
+    @Test
+    public void executeAsyncCompletes() throws Exception {
+        configure("async", 0, null);
+
+        CompletableFuture<Transaction> future = card.charge(new BigDecimal("10"))
+                .withCurrency("USD")
+                .executeAsync("async");
+
+        Transaction response = future.get(5, TimeUnit.SECONDS);
+        assertNotNull(response);
+        assertEquals("00", response.getResponseCode());
+    }
+
+    @Test
+    public void executeAsyncUsesConfiguredExecutor() throws Exception {
+        final String[] threadName = new String[1];
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "custom-executor");
+            }
+        });
+        try {
+            configure("asyncExecutor", 0, executor);
+            StubGateway gateway = (StubGateway)ServicesContainer.getInstance().getGateway("asyncExecutor");
+
+            card.charge(new BigDecimal("10")).withCurrency("USD").executeAsync("asyncExecutor").get(5, TimeUnit.SECONDS);
+            assertEquals("custom-executor", gateway.lastThread);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void executeAsyncValidationFailure() throws Exception {
+        configure("asyncInvalid", 0, null);
+
+        CompletableFuture<Transaction> future = card.charge(new BigDecimal("10")).executeAsync("asyncInvalid");
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected a builder exception");
+        }
+        catch(ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof ApiException);
+        }
+    }
+
+    @Test
+    public void executeAsyncTimeout() throws Exception {
+        configure("asyncTimeout", 5000, null);
+        StubGateway gateway = (StubGateway)ServicesContainer.getInstance().getGateway("asyncTimeout");
+
+        CompletableFuture<Transaction> future = card.charge(new BigDecimal("10"))
+                .withCurrency("USD")
+                .executeAsync("asyncTimeout", 100);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        }
+        catch(ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof GatewayTimeoutException);
+        }
+
+        // the in-flight request is interrupted
+        assertTrue(gateway.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executeAsyncCancel() throws Exception {
+        configure("asyncCancel", 5000, null);
+        StubGateway gateway = (StubGateway)ServicesContainer.getInstance().getGateway("asyncCancel");
+
+        CompletableFuture<Transaction> future = card.charge(new BigDecimal("10"))
+                .withCurrency("USD")
+                .executeAsync("asyncCancel");
+        assertTrue(gateway.started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        assertTrue(gateway.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private void configure(String configName, final int delay, Executor executor) throws ConfigurationException {
+        Configuration config = new Configuration() {
+            public void configureContainer(ConfiguredServices services) {
+                services.setGatewayConnector(new StubGateway(delay));
+            }
+        };
+        config.setExecutor(executor);
+        ServicesContainer.configureService(config, configName);
+    }
+
+    private static class StubGateway implements IPaymentGateway {
+        private final int delay;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private volatile String lastThread;
+
+        StubGateway(int delay) {
+            this.delay = delay;
+        }
+
+        public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
+            lastThread = Thread.currentThread().getName();
+            started.countDown();
+            if(delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                }
+                catch(InterruptedException exc) {
+                    interrupted.countDown();
+                    throw new ApiException("Interrupted", exc);
+                }
+            }
+
+            Transaction response = new Transaction();
+            response.setResponseCode("00");
+            return response;
+        }
+        public Transaction manageTransaction(ManagementBuilder builder) throws ApiException {
+            return null;
+        }
+        public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
+            return null;
+        }
+        public String serializeRequest(AuthorizationBuilder builder) throws ApiException {
+            return null;
+        }
+        public NetworkMessageHeader sendKeepAlive() throws ApiException {
+            return null;
+        }
+        public boolean supportsHostedPayments() {
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.global.api.tests;
 
 import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.BuilderException;
 import com.global.api.paymentMethods.CreditCardData;
@@ -14,6 +15,8 @@ import org.junit.Test;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import static org.junit.Assert.*;
+
 public class BuilderValidationTests {
     CreditCardData card;
     
@@ -118,4 +121,21 @@ public class BuilderValidationTests {
                 .withTransactionId("1234567890")
                 .execute();
     }
+
+    @Test
+    public void rulesSharedAcrossBuilders() throws ApiException {
+        AuthorizationBuilder first = card.charge(new BigDecimal(14)).withCurrency("USD");
+        AuthorizationBuilder second = card.authorize(new BigDecimal(14)).withCurrency("USD");
+        assertSame(first.getValidations(), second.getValidations());
+
+        // a complete builder passes, and the shared rules still apply to the next one
+        first.getValidations().validate(first);
+        try {
+            card.charge().getValidations().validate(card.charge());
+            fail("Expected the missing amount to be reported");
+        }
+        catch(BuilderException exc) {
+            assertEquals("amount cannot be null for this transaction type.", exc.getMessage());
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package com.global.api.tests;
+
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.utils.Element;
+import com.global.api.utils.ElementReader;
+import com.global.api.utils.ElementTree;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ElementTreeTests {
+    private static final String TRACK = "<E1050711%B4012000000000016^VI TEST CREDIT^2512?|&\"quoted\"\r\n\ttab";
+
+    @Test
+    public void matchesTransformerOutput() throws Exception {
+        ElementTree et = new ElementTree();
+        Element envelope = et.element("soap:Envelope")
+                .set("xmlns:soap", "http://schemas.xmlsoap.org/soap/envelope/")
+                .set("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance")
+                .set("xmlns:xsd", "http://www.w3.org/2001/XMLSchema");
+        Element body = et.subElement(envelope, "soap:Body");
+        Element cardData = et.element("CardData");
+        et.subElement(cardData, "TrackData", TRACK).set("method", "swipe \"a\" & <b>\r\n\t");
+        et.subElement(cardData, "TokenRequest", "N");
+        et.subElement(cardData, "Empty");
+        body.append(cardData);
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        org.w3c.dom.Element domEnvelope = doc.createElement("soap:Envelope");
+        domEnvelope.setAttribute("xmlns:soap", "http://schemas.xmlsoap.org/soap/envelope/");
+        domEnvelope.setAttribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
+        domEnvelope.setAttribute("xmlns:xsd", "http://www.w3.org/2001/XMLSchema");
+        org.w3c.dom.Element domBody = doc.createElement("soap:Body");
+        org.w3c.dom.Element domCardData = doc.createElement("CardData");
+        org.w3c.dom.Element domTrack = doc.createElement("TrackData");
+        domTrack.setAttribute("method", "swipe \"a\" & <b>\r\n\t");
+        domTrack.appendChild(doc.createTextNode(TRACK));
+        org.w3c.dom.Element domToken = doc.createElement("TokenRequest");
+        domToken.appendChild(doc.createTextNode("N"));
+        domCardData.appendChild(domTrack);
+        domCardData.appendChild(domToken);
+        domCardData.appendChild(doc.createElement("Empty"));
+        domBody.appendChild(domCardData);
+        domEnvelope.appendChild(domBody);
+        doc.appendChild(domEnvelope);
+
+        StringWriter expected = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(expected));
+
+        assertEquals(expected.toString(), et.toString(envelope));
+    }
+
+    @Test
+    public void namespaceDeclarationsWrittenFirst() {
+        ElementTree et = new ElementTree();
+        Element request = et.element("PosRequest")
+                .set("clientType", "java")
+                .set("Version", "1.0")
+                .set("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance")
+                .set("xmlns", "http://Hps.Exchange.PosGateway");
+
+        String xml = et.toString(request);
+        assertTrue(xml, xml.contains("<PosRequest xmlns=\"http://Hps.Exchange.PosGateway\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" Version=\"1.0\" clientType=\"java\""));
+    }
+
+    @Test
+    public void builtTreeCanBeQueried() {
+        ElementTree et = new ElementTree();
+        Element root = et.element("Block1");
+        et.subElement(root, "AllowDup", "Y");
+        Element card = et.subElement(root, "CardData");
+        et.subElement(card, "CardNbr", "4111111111111111");
+        et.subElement(root, "Amt", "15");
+
+        assertTrue(root.has("CardNbr"));
+        assertEquals("4111111111111111", root.getString("CardNbr"));
+        assertEquals(Integer.valueOf(15), root.getInt("Amt"));
+
+        root.remove("AllowDup");
+        assertFalse(root.has("AllowDup"));
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><Block1><CardData><CardNbr>4111111111111111</CardNbr></CardData><Amt>15</Amt></Block1>", et.toString(root));
+    }
+
+    @Test
+    public void parsedResponseLookups() throws Exception {
+        String response = "<?xml version=\"1.0\" encoding=\"utf-8\"?><soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                + "<PosResponse rootUrl=\"https://cert.api2.heartlandportico.com\" xmlns=\"http://Hps.Exchange.PosGateway\"><Ver1.0>"
+                + "<Header><GatewayTxnId>1234</GatewayTxnId><GatewayRspCode>0</GatewayRspCode><GatewayRspMsg>Success &amp; done</GatewayRspMsg></Header>"
+                + "<Transaction><ReportActivity><Details><GatewayTxnId>1</GatewayTxnId><Amt>1.50</Amt></Details>"
+                + "<Details><GatewayTxnId>2</GatewayTxnId><Amt><![CDATA[2.50]]></Amt></Details></ReportActivity></Transaction>"
+                + "</Ver1.0></PosResponse></soap:Body></soap:Envelope>";
+
+        ElementTree tree = ElementTree.parse(response.getBytes());
+        assertEquals("soap:Envelope", tree.get("soap:Envelope").tag());
+
+        Element root = tree.get("PosResponse");
+        assertEquals("https://cert.api2.heartlandportico.com", root.getAttributeString("rootUrl"));
+        assertEquals("1234", root.getString("GatewayTxnId"));
+        assertEquals(Integer.valueOf(0), root.getInt("GatewayRspCode"));
+        assertEquals("Success & done", root.getString("GatewayRspMsg"));
+        assertFalse(root.has("CardData"));
+        assertNull(root.getString("CardData"));
+
+        Element[] details = root.get("ReportActivity").getAll("Details");
+        assertEquals(2, details.length);
+        assertEquals("2", details[1].getString("GatewayTxnId"));
+        assertEquals("2.50", details[1].getDecimal("Amt").toString());
+    }
+
+    @Test(expected = ApiException.class)
+    public void malformedResponseRejected() throws Exception {
+        ElementTree.parse("<PosResponse><Header></PosResponse>");
+    }
+
+    @Test
+    public void readerReturnsRowsOneAtATime() throws Exception {
+        String response = "<PosResponse><Ver1.0><Header><GatewayRspCode>0</GatewayRspCode></Header><Transaction><FindTransactions>"
+                + "<Transactions><GatewayTxnId>1</GatewayTxnId></Transactions>"
+                + "<Transactions><GatewayTxnId>2</GatewayTxnId></Transactions>"
+                + "</FindTransactions></Transaction></Ver1.0></PosResponse>";
+
+        ElementReader reader = new ElementReader(new ByteArrayInputStream(response.getBytes()));
+        assertTrue(reader.next("Header"));
+        assertEquals(Integer.valueOf(0), reader.read().getInt("GatewayRspCode"));
+
+        List<String> ids = new ArrayList<String>();
+        while(reader.next("Transactions")) {
+            Element row = reader.read();
+            assertEquals("Transactions", row.tag());
+            ids.add(row.getString("GatewayTxnId"));
+        }
+        reader.close();
+
+        assertEquals(2, ids.size());
+        assertEquals("2", ids.get(1));
+    }
+}
@@ -0,0 +1,54 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.entities.enums.PayGroupFrequency;
+import com.global.api.network.enums.DE48_CardType;
+import com.global.api.network.enums.ProductCode;
+import com.global.api.utils.EnumUtils;
+import com.global.api.utils.MessageReader;
+import com.global.api.utils.ReverseByteEnumMap;
+import com.global.api.utils.ReverseStringEnumMap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EnumLookupTests {
+    @Test
+    public void byteLookups() {
+        for(ControlCodes code: ControlCodes.values()) {
+            assertEquals(code, EnumUtils.parse(ControlCodes.class, code.getByte()));
+            assertTrue(EnumUtils.isDefined(ControlCodes.class, code.getByte()));
+        }
+        assertNull(EnumUtils.parse(ControlCodes.class, (byte)'A'));
+        assertFalse(EnumUtils.isDefined(ControlCodes.class, (byte)0xFF));
+        assertSame(ReverseByteEnumMap.forType(ControlCodes.class), ReverseByteEnumMap.forType(ControlCodes.class));
+    }
+
+    @Test
+    public void stringLookups() {
+        for(ProductCode code: ProductCode.values()) {
+            assertEquals(code.getValue(), EnumUtils.parse(ProductCode.class, code.getValue()).getValue());
+        }
+        for(DE48_CardType type: DE48_CardType.values()) {
+            assertEquals(type.getValue(), ReverseStringEnumMap.parse(type.getValue(), DE48_CardType.class).getValue());
+        }
+        assertNull(ReverseStringEnumMap.parse("not a card type", DE48_CardType.class));
+        assertNull(ReverseStringEnumMap.parse(null, DE48_CardType.class));
+    }
+
+    @Test
+    public void numericLookups() {
+        for(PayGroupFrequency frequency: PayGroupFrequency.values()) {
+            assertEquals(frequency.getValue(), EnumUtils.parse(PayGroupFrequency.class, frequency.getValue()).getValue());
+        }
+        assertNull(EnumUtils.parse(PayGroupFrequency.class, -1));
+    }
+
+    @Test
+    public void readToCodeTranslatesControlCodes() {
+        byte[] buffer = new byte[] { 'A', ControlCodes.US.getByte(), 'B', ControlCodes.FS.getByte(), 'C' };
+        MessageReader reader = new MessageReader(buffer);
+        assertEquals("A[US]B", reader.readToCode(ControlCodes.FS));
+        assertEquals('C', reader.readChar());
+    }
+}
@@ -0,0 +1,177 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.HttpConnectionMetrics;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.serviceConfigs.GatewayConfig;
+import com.global.api.utils.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HttpConnectionTests {
+    private static final String PASSWORD = "changeit";
+
+    @Test
+    public void gatewaysReuseKeptAliveConnection() throws Exception {
+        KeyStore keyStore = createKeyStore();
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD.toCharArray());
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagers.getKeyManagers(), null, null);
+
+        // a local https host counting the client ports it was reached from
+        final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+        HttpsServer server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                IOUtils.readFully(exchange.getRequestBody());
+
+                byte[] body = "<PosResponse><GatewayRspCode>-2</GatewayRspCode><GatewayRspMsg>Declined</GatewayRspMsg></PosResponse>".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        SSLSocketFactoryEx.setSharedInstance(new SSLSocketFactoryEx(null, trustManagers.getTrustManagers(), null));
+        try {
+            HttpConnectionMetrics metrics = HttpConnectionMetrics.getInstance();
+            long connections = metrics.getConnectionCount();
+            long reused = metrics.getReusedConnectionCount();
+
+            // two gateways configured against the same host
+            for(String configName : new String[] { "first", "second" }) {
+                GatewayConfig config = new GatewayConfig();
+                config.setSecretApiKey("skapi_cert_MTeSAQAfG1UA9qQDrzl-kz4toXvARyieptFwSKP24w");
+                config.setServiceUrl("https://localhost:" + server.getAddress().getPort());
+                config.setTimeout(5000);
+                ServicesContainer.configureService(config, configName);
+
+                try {
+                    createCard().charge(new BigDecimal("10")).withCurrency("USD").execute(configName);
+                }
+                catch(GatewayException exc) {
+                    // the host turns every request down
+                }
+            }
+
+            assertEquals(1, clientPorts.size());
+            assertEquals(connections + 1, metrics.getConnectionCount());
+            assertEquals(reused + 1, metrics.getReusedConnectionCount());
+        }
+        finally {
+            SSLSocketFactoryEx.setSharedInstance(null);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void readFullyAcrossBlocks() throws Exception {
+        // multi-byte characters straddle the 4096 char blocks
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            expected.append(i % 2 == 0 ? 'a' : 'é');
+        }
+
+        String actual = IOUtils.readFully(new ByteArrayInputStream(expected.toString().getBytes("UTF-8")));
+        assertEquals(expected.toString(), actual);
+    }
+
+    @Test
+    public void failedRequestsCounted() throws Exception {
+        // a port nothing is listening on
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        int port = server.getLocalPort();
+        server.close();
+
+        GatewayConfig config = new GatewayConfig();
+        config.setSecretApiKey("skapi_cert_MTeSAQAfG1UA9qQDrzl-kz4toXvARyieptFwSKP24w");
+        config.setServiceUrl("https://localhost:" + port);
+        config.setTimeout(2000);
+        ServicesContainer.configureService(config, "unreachable");
+
+        CreditCardData card = createCard();
+
+        HttpConnectionMetrics metrics = HttpConnectionMetrics.getInstance();
+        long requests = metrics.getRequestCount();
+        long failures = metrics.getFailedRequestCount();
+        try {
+            card.charge(new BigDecimal("10")).withCurrency("USD").execute("unreachable");
+            fail("Expected a gateway exception");
+        }
+        catch(GatewayException exc) {
+            // expected
+        }
+        catch(ApiException exc) {
+            fail(exc.getMessage());
+        }
+
+        assertEquals(requests + 1, metrics.getRequestCount());
+        assertEquals(failures + 1, metrics.getFailedRequestCount());
+    }
+
+    private static CreditCardData createCard() {
+        CreditCardData card = new CreditCardData();
+        card.setNumber("4111111111111111");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+        return card;
+    }
+
+    // a self-signed localhost certificate made with the running JDK's keytool
+    private static KeyStore createKeyStore() throws Exception {
+        File file = new File(Files.createTempDirectory("https").toFile(), "localhost.p12");
+        file.deleteOnExit();
+
+        Process keytool = new ProcessBuilder(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool",
+                "-genkeypair", "-alias", "localhost", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost",
+                "-storetype", "PKCS12", "-keystore", file.getPath(), "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .redirectErrorStream(true)
+                .start();
+        IOUtils.readFully(keytool.getInputStream());
+        assertEquals(0, keytool.waitFor());
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        FileInputStream in = new FileInputStream(file);
+        try {
+            keyStore.load(in, PASSWORD.toCharArray());
+        }
+        finally {
+            in.close();
+        }
+        return keyStore;
+    }
+}
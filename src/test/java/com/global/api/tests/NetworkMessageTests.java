@@ -12,6 +12,8 @@ import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertEquals;
@@ -112,6 +114,48 @@ public class NetworkMessageTests {
         assertEquals("3030058020c00002", pbmp.toHexString());
     }
 
+    @Test
+    public void networkMessage_writeTo_test() {
+        NetworkMessage doc = new NetworkMessage();
+        doc.setMessageTypeIndicator("1200");
+        doc.set(DataElementId.DE_003, "000000");
+        doc.set(DataElementId.DE_011, "000153");
+        doc.set(DataElementId.DE_035, "4005551122334450=2012101");
+        doc.set(DataElementId.DE_072, "0001");
+
+        byte[] message = doc.buildMessage();
+        assertEquals(doc.getMessageLength(), message.length);
+        assertArrayEquals(byteFromHex("31323030a02000002000000001000000000000003030303030303030303135333234343030353535313132323333343435303d3230313231303130303430303031"), message);
+
+        // encodes in place behind anything already in the buffer
+        ByteBuffer buffer = ByteBuffer.allocate(message.length + 4);
+        buffer.putInt(0x01020304);
+        doc.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertArrayEquals(message, Arrays.copyOfRange(buffer.array(), 4, buffer.capacity()));
+    }
+
+    @Test
+    public void networkMessage_lazyParse_test() {
+        NetworkMessage original = new NetworkMessage();
+        original.set(DataElementId.DE_003, "000800");
+        original.set(DataElementId.DE_035, "4005551122334450=2012101");
+        original.set(DataElementId.DE_072, "0001");
+
+        byte[] buffer = original.buildMessage();
+        NetworkMessage doc = NetworkMessage.parse(buffer, Iso8583MessageType.CompleteMessage);
+        assertEquals("4005551122334450=2012101", doc.getString(DataElementId.DE_035));
+        assertEquals("0001", doc.getString(DataElementId.DE_072));
+
+        // decoded elements are cached
+        DE3_ProcessingCode processingCode = doc.getDataElement(DataElementId.DE_003, DE3_ProcessingCode.class);
+        assertNotNull(processingCode);
+        assertSame(processingCode, doc.getDataElement(DataElementId.DE_003, DE3_ProcessingCode.class));
+
+        // re-encoding the parsed message gives back the original
+        assertArrayEquals(buffer, doc.buildMessage());
+    }
+
     @Test
     public void networkMessage_parse_test() {
         String bexString = "b230450028e11824000000000000000030303038303030303030303030303130383930343137313334333530303030313533313830343137303934333439353534314c31303130314231303134433230303234343030353535313132323333343435303d3230313231303130303030303130313135383030303434202020203030303733323635333939303820203535372d454c4556454e5c3132353220464f52455354204156455c53544154454e2049534c414e445c313033303220202020204e59205553413038305824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030492728e8cb6dc5833136413530343031303032363830303434323037313030303033393030313030303132303030303030303030303130383930303031303030303230353932303030313138303431373039343335304442202030303038303030354e323031313031494944303430303031";
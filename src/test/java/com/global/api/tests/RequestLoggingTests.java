@@ -0,0 +1,81 @@
+package com.global.api.tests;
+
+import com.global.api.logging.ILogSink;
+import com.global.api.logging.LogMasker;
+import com.global.api.logging.RequestLogger;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RequestLoggingTests {
+    private LogMasker masker = LogMasker.getDefault();
+
+    @Test
+    public void masksEveryCardNumber() {
+        String result = masker.mask("<CardNbr>4111111111111111</CardNbr><Amt>1500</Amt><Other>5425 2300 0000 4415</Other>");
+        assertEquals("<CardNbr>411111XXXXXX1111</CardNbr><Amt>1500</Amt><Other>542523XXXXXX4415</Other>", result);
+    }
+
+    @Test
+    public void masksTrackData() {
+        String result = masker.mask("<TrackData method=\"swipe\">%B4012000000000016^VI TEST CREDIT^251200000000000000000000?;4012000000000016=25120000000000000000?</TrackData>");
+        assertEquals("<TrackData method=\"swipe\">%B401200XXXXXX0016^VI TEST CREDIT^XXXXXXXXXXXXXXXXXXXXXXXX?;401200XXXXXX0016=XXXXXXXXXXXXXXXXXXXX?</TrackData>", result);
+    }
+
+    @Test
+    public void masksSecurityCodesAndPinBlocks() {
+        assertEquals("<CVV2>XXX</CVV2><ReaderPresent>N</ReaderPresent>", masker.mask("<CVV2>123</CVV2><ReaderPresent>N</ReaderPresent>"));
+        assertEquals("<cvn><number>XXX</number><presind>1</presind></cvn>", masker.mask("<cvn><number>123</number><presind>1</presind></cvn>"));
+        assertEquals("{\"cvv\":\"XXXX\",\"cvvResult\":\"M\"}", masker.mask("{\"cvv\":\"1234\",\"cvvResult\":\"M\"}"));
+        assertEquals("<PinBlock>XXXXXXXXXXXXXXXX</PinBlock>", masker.mask("<PinBlock>32539F50C245A6A9</PinBlock>"));
+    }
+
+    @Test
+    public void prefixedElementsMaskedByWholeName() {
+        assertEquals("<hps:CVV2>XXX</hps:CVV2><hps:CardHolderZip>12345</hps:CardHolderZip>",
+                masker.mask("<hps:CVV2>123</hps:CVV2><hps:CardHolderZip>12345</hps:CardHolderZip>"));
+
+        String value = "</hps:CVV2><hps:CardHolderZip>12345";
+        assertSame(value, masker.mask(value));
+    }
+
+    @Test
+    public void masksCardDataElements() {
+        String breakdown = "MTI: 1200\r\nDE_004: 000000001000\r\nDE_035: 4005551122334450=2012101\r\nDE_052: 1A2B3C4D5E6F7A8B\r\nDE_055: 0109F2608ABCDEF\r\n";
+        assertEquals("MTI: 1200\r\nDE_004: 000000001000\r\nDE_035: XXXXXXXXXXXXXXXXXXXXXXXX\r\nDE_052: XXXXXXXXXXXXXXXX\r\nDE_055: XXXXXXXXXXXXXXX\r\n", masker.mask(breakdown));
+    }
+
+    @Test
+    public void leavesOtherTextAlone() {
+        String value = "<Amt>15</Amt><GatewayTxnId>1234567890123</GatewayTxnId><CVVRsltCode>M</CVVRsltCode>";
+        assertSame(value, masker.mask(value));
+    }
+
+    @Test
+    public void linesWrittenMaskedInOrder() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+        RequestLogger logger = RequestLogger.getInstance();
+        ILogSink previous = logger.getSink();
+        logger.setSink(new ILogSink() {
+            public void write(String message) {
+                lines.add(message);
+            }
+        });
+        try {
+            logger.log("Request: ", "<CardNbr>4111111111111111</CardNbr>");
+            logger.log("Response: ", "<GatewayRspCode>0</GatewayRspCode>");
+            assertTrue(logger.flush(5000));
+        }
+        finally {
+            logger.setSink(previous);
+        }
+
+        assertEquals(2, lines.size());
+        assertEquals("Request: <CardNbr>411111XXXXXX1111</CardNbr>", lines.get(0));
+        assertEquals("Response: <GatewayRspCode>0</GatewayRspCode>", lines.get(1));
+    }
+}
@@ -0,0 +1,92 @@
+package com.global.api.tests.benchmarks;
+
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.elements.DE22_PosDataCode;
+import com.global.api.network.elements.DE3_ProcessingCode;
+import com.global.api.network.elements.DE48_MessageControl;
+import com.global.api.network.elements.DE48_Name;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import com.global.api.terminals.TerminalUtilities;
+import com.global.api.utils.MessageReader;
+import com.global.api.utils.MessageWriter;
+import com.global.api.utils.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.profile.GCProfiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enum lookups made while parsing the NetworkMessageTests fixtures. The gc
+ * profiler reports gc.alloc.rate.norm, the bytes allocated per operation.
+ *
+ * Run with: mvn clean test-compile exec:java -Pbenchmarks -Dexec.classpathScope=test -Dexec.mainClass=com.global.api.tests.benchmarks.EnumLookupBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumLookupBenchmark {
+    private static final String AUTH_RESPONSE = "b230450028e11824000000000000000030303038303030303030303030303130383931303130303233303437303030313533313831303130303233303437353534314c31303130314231303134433230303234343030353535313132323333343435303d3230313231303130303030303130313135383030303434202020203030303131323634393833202020203535372d454c4556454e5c3132353220464f52455354204156455c53544154454e2049534c414e445c313033303220202020204e59205553413038305824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030492728e8cb6dc5833136413530343031303032363830303434323037313030303033393030313030303132303030303030303030303130383930303031303030303230353932303030313138303431373039343335304442202030303038303030354e323031313031494944303430303031";
+
+    private byte[] authResponse;
+    private byte[] processingCode;
+    private byte[] posDataCode;
+    private byte[] name;
+    private byte[] paxResponse;
+
+    @Setup
+    public void setup() {
+        authResponse = StringUtils.bytesFromHex(AUTH_RESPONSE);
+        processingCode = "200065".getBytes();
+        posDataCode = "B10101210041".getBytes();
+        name = "01Jane\\\\Doe".getBytes();
+
+        MessageWriter mw = new MessageWriter();
+        mw.add(ControlCodes.STX);
+        mw.addRange(TerminalUtilities.getElementString("0", ControlCodes.FS, "A01", ControlCodes.FS, "1.35", ControlCodes.FS, "000000", ControlCodes.FS, "OK", ControlCodes.FS, "53000000001").getBytes());
+        mw.add(ControlCodes.ETX);
+        paxResponse = mw.toArray();
+    }
+
+    @Benchmark
+    public DE48_MessageControl messageControl() {
+        NetworkMessage message = NetworkMessage.parse(authResponse, Iso8583MessageType.CompleteMessage);
+        return message.getDataElement(DataElementId.DE_048, DE48_MessageControl.class);
+    }
+
+    @Benchmark
+    public DE3_ProcessingCode processingCode() {
+        return new DE3_ProcessingCode().fromByteArray(processingCode);
+    }
+
+    @Benchmark
+    public DE22_PosDataCode posDataCode() {
+        return new DE22_PosDataCode().fromByteArray(posDataCode);
+    }
+
+    @Benchmark
+    public DE48_Name name() {
+        return new DE48_Name().fromByteArray(name);
+    }
+
+    @Benchmark
+    public String readToCode() {
+        MessageReader reader = new MessageReader(paxResponse);
+        reader.readCode();
+        return reader.readToCode(ControlCodes.ETX);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EnumLookupBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
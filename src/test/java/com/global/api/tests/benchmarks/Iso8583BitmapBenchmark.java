@@ -0,0 +1,78 @@
+package com.global.api.tests.benchmarks;
+
+import com.global.api.network.Iso8583Bitmap;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with: mvn clean test-compile exec:java -Pbenchmarks -Dexec.classpathScope=test -Dexec.mainClass=com.global.api.tests.benchmarks.Iso8583BitmapBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Iso8583BitmapBenchmark {
+    private byte[] primary;
+    private byte[] secondary;
+    private NetworkMessage message;
+
+    @Setup
+    public void setup() {
+        primary = new byte[] { (byte)0xF2, 0x3E, 0x44, 0x01, 0x28, (byte)0xE0, (byte)0x90, 0x00 };
+        secondary = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00 };
+
+        message = new NetworkMessage(Iso8583MessageType.CompleteMessage);
+        message.set(DataElementId.DE_003, "000000");
+        message.set(DataElementId.DE_004, "000000001000");
+        message.set(DataElementId.DE_011, "000001");
+        message.set(DataElementId.DE_012, "181018120000");
+        message.set(DataElementId.DE_024, "100");
+        message.set(DataElementId.DE_041, "00000001");
+        message.set(DataElementId.DE_043, "TEST MERCHANT");
+        message.set(DataElementId.DE_049, "840");
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        Iso8583Bitmap bitmap = new Iso8583Bitmap(primary);
+        Iso8583Bitmap secondaryBitmap = new Iso8583Bitmap(secondary, 64);
+
+        DataElementId element = bitmap.getNextDataElement();
+        while(element != null) {
+            blackhole.consume(element);
+            element = bitmap.getNextDataElement();
+        }
+
+        element = secondaryBitmap.getNextDataElement();
+        while(element != null) {
+            blackhole.consume(element);
+            element = secondaryBitmap.getNextDataElement();
+        }
+    }
+
+    @Benchmark
+    public String toHexString() {
+        return new Iso8583Bitmap(primary).toHexString();
+    }
+
+    @Benchmark
+    public byte[] buildMessage() {
+        return message.buildMessage();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Iso8583BitmapBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.global.api.tests.benchmarks;
+
+import com.global.api.entities.payroll.Employee;
+import com.global.api.entities.payroll.PayrollEncoder;
+import com.global.api.entities.payroll.PayrollRequest;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import org.apache.commons.codec.binary.Base64;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with: mvn clean test-compile exec:java -Pbenchmarks -Dexec.classpathScope=test -Dexec.mainClass=com.global.api.tests.benchmarks.PayrollEncoderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayrollEncoderBenchmark {
+    private PayrollEncoder encoder;
+    private Employee employee;
+    private NetworkMessage dataCollect;
+    private String token;
+
+    @Setup
+    public void setup() {
+        encoder = new PayrollEncoder("username", "apikey");
+
+        employee = new Employee();
+        employee.setClientCode("65K1");
+        employee.setHireDate(DateTime.parse("2018-10-18"));
+        employee.setFirstName("John");
+        employee.setLastName("Doe");
+        employee.setSsn("123456789");
+        employee.setAddress1("1 Heartland Way");
+        employee.setCity("Jeffersonville");
+        employee.setStateCode("IN");
+        employee.setZipCode("47130");
+        employee.setBirthDay(DateTime.parse("1980-01-01"));
+        employee.setHourlyRate(new BigDecimal("15.00"));
+        employee.setPerPaySalary(new BigDecimal("0"));
+
+        dataCollect = new NetworkMessage(Iso8583MessageType.CompleteMessage);
+        dataCollect.setMessageTypeIndicator("1220");
+        dataCollect.set(DataElementId.DE_003, "000000");
+        dataCollect.set(DataElementId.DE_004, "000000001000");
+        dataCollect.set(DataElementId.DE_011, "000001");
+        dataCollect.set(DataElementId.DE_012, "181018120000");
+        dataCollect.set(DataElementId.DE_024, "201");
+        dataCollect.set(DataElementId.DE_035, "4005551122334450=2012101");
+        dataCollect.set(DataElementId.DE_041, "00000001");
+
+        token = encodeToken();
+    }
+
+    /**
+     * The request body built ahead of PayrollConnector.sendEncryptedRequest, one encode per sensitive field.
+     */
+    @Benchmark
+    public PayrollRequest payrollAddEmployee() {
+        return employee.addEmployeeRequest().buildRequest(encoder, Employee.class);
+    }
+
+    /**
+     * The data collect token VapsConnector encodes for each transaction and decodes again on batch close resends.
+     */
+    @Benchmark
+    public String vapsEncodeToken() {
+        return encodeToken();
+    }
+
+    @Benchmark
+    public String vapsDecodeToken() {
+        return encoder.decode(token);
+    }
+
+    private String encodeToken() {
+        return encoder.encode(new String(Base64.encodeBase64(dataCollect.buildMessage())));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PayrollEncoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
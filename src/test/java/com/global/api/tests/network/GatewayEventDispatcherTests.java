@@ -0,0 +1,165 @@
+package com.global.api.tests.network;
+
+import com.global.api.gateways.events.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GatewayEventDispatcherTests {
+    @Test
+    public void eventsDeliveredInOrder() throws Exception {
+        final List<IGatewayEvent> received = new ArrayList<IGatewayEvent>();
+        final CountDownLatch latch = new CountDownLatch(100);
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                received.add(event);
+                latch.countDown();
+            }
+        });
+
+        List<IGatewayEvent> raised = new ArrayList<IGatewayEvent>();
+        for(int i = 0; i < 100; i++) {
+            IGatewayEvent event = new DisconnectEvent("Test" + i);
+            raised.add(event);
+            dispatcher.dispatch(event);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(raised, received);
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void batchHandlerReceivesQueuedEvents() throws Exception {
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        ManualExecutor executor = new ManualExecutor();
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher(new IBatchGatewayEventHandler() {
+            public void eventsRaised(List<IGatewayEvent> events) {
+                batchSizes.add(events.size());
+            }
+            public void eventRaised(IGatewayEvent event) {
+                fail("Events should be delivered as a batch.");
+            }
+        }, 10, EventOverflowPolicy.DropOldest, executor);
+
+        for(int i = 0; i < 5; i++) {
+            dispatcher.dispatch(new DisconnectEvent("Test"));
+        }
+        executor.runAll();
+
+        assertEquals(1, batchSizes.size());
+        assertEquals(5, (int)batchSizes.get(0));
+    }
+
+    @Test
+    public void dropOldestKeepsLatestEvents() {
+        final List<IGatewayEvent> received = new ArrayList<IGatewayEvent>();
+        ManualExecutor executor = new ManualExecutor();
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                received.add(event);
+            }
+        }, 2, EventOverflowPolicy.DropOldest, executor);
+
+        IGatewayEvent second = new DisconnectEvent("Second");
+        IGatewayEvent third = new DisconnectEvent("Third");
+        dispatcher.dispatch(new DisconnectEvent("First"));
+        dispatcher.dispatch(second);
+        dispatcher.dispatch(third);
+        executor.runAll();
+
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(2, received.size());
+        assertSame(second, received.get(0));
+        assertSame(third, received.get(1));
+    }
+
+    @Test
+    public void dropNewestKeepsEarliestEvents() {
+        final List<IGatewayEvent> received = new ArrayList<IGatewayEvent>();
+        ManualExecutor executor = new ManualExecutor();
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                received.add(event);
+            }
+        }, 2, EventOverflowPolicy.DropNewest, executor);
+
+        IGatewayEvent first = new DisconnectEvent("First");
+        IGatewayEvent second = new DisconnectEvent("Second");
+        dispatcher.dispatch(first);
+        dispatcher.dispatch(second);
+        dispatcher.dispatch(new DisconnectEvent("Third"));
+        executor.runAll();
+
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(2, received.size());
+        assertSame(first, received.get(0));
+        assertSame(second, received.get(1));
+    }
+
+    @Test
+    public void blockDeliversOnRaisingThreadWhenExecutorIsBusy() {
+        final List<IGatewayEvent> received = new ArrayList<IGatewayEvent>();
+        // nothing runs the scheduled drain until the end, like a pool whose threads are all raising events
+        ManualExecutor executor = new ManualExecutor();
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                received.add(event);
+            }
+        }, 2, EventOverflowPolicy.Block, executor);
+
+        List<IGatewayEvent> raised = new ArrayList<IGatewayEvent>();
+        for(int i = 0; i < 5; i++) {
+            IGatewayEvent event = new DisconnectEvent("Test" + i);
+            raised.add(event);
+            dispatcher.dispatch(event);
+        }
+        assertTrue(received.size() >= 3);
+
+        executor.runAll();
+        assertEquals(raised, received);
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void failingHandlerDoesNotStopDelivery() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                latch.countDown();
+                throw new IllegalStateException();
+            }
+        });
+
+        for(int i = 0; i < 3; i++) {
+            dispatcher.dispatch(new DisconnectEvent("Test"));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while(!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.gateways.events.*;
+import com.global.api.gateways.metrics.GatewayMetrics;
+import com.global.api.gateways.metrics.GatewayMetricsRegistry;
+import com.global.api.gateways.metrics.IMetricsExporter;
+import com.global.api.gateways.metrics.LatencyHistogram;
+import com.global.api.serviceConfigs.NetworkGatewayConfig;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+public class GatewayMetricsTests {
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+
+        // buckets are accurate to within about 6%
+        assertEquals(500, histogram.getValueAtPercentile(50), 32);
+        assertEquals(990, histogram.getValueAtPercentile(99), 64);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void histogramSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-1);
+
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void countersFromEvents() {
+        GatewayMetrics metrics = new GatewayMetrics("Test");
+
+        DateTime started = DateTime.now().minusMillis(40);
+        metrics.eventRaised(new ConnectionCompleteEvent("Test", started, started.plusMillis(25)));
+        metrics.eventRaised(new SslHandshakeEvent("Test", null, 12));
+        metrics.eventRaised(new SslHandshakeEvent("Test", new Exception("failed")));
+        metrics.eventRaised(new RequestSentEvent("Test"));
+        metrics.eventRaised(new ResponseReceivedEvent("Test", DateTime.now().minusMillis(100)));
+        metrics.eventRaised(new RequestSentEvent("Test"));
+        metrics.eventRaised(new TimeoutEvent("Test", GatewayEventType.TimeoutFailOver));
+        metrics.eventRaised(new TimeoutEvent("Test", GatewayEventType.Timeout));
+        metrics.eventRaised(new FailOverEvent("Test", started, started.plusMillis(5)));
+
+        assertEquals(2, metrics.getRequestCount());
+        assertEquals(1, metrics.getResponseCount());
+        assertTrue(metrics.getMaxResponseTime() >= 100);
+        assertEquals(1, metrics.getConnectionCount());
+        assertEquals(25, metrics.getConnectTime99th());
+        assertEquals(12, metrics.getHandshakeTime99th());
+        assertEquals(1, metrics.getHandshakeFailureCount());
+        assertEquals(1, metrics.getFailOverCount());
+        assertEquals(1, metrics.getTimeoutCount());
+        assertEquals(1, metrics.getConnectionFailureCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getRequestCount());
+        assertEquals(0, metrics.getResponseCount());
+    }
+
+    @Test
+    public void responsesByMessage() {
+        GatewayMetrics metrics = new GatewayMetrics("Test");
+        metrics.recordResponse(Host.Primary, "1110", "000", 120);
+        metrics.recordResponse(Host.Primary, "1110", "000", 80);
+        metrics.recordResponse(Host.Secondary, "1110", "100", 300);
+
+        assertEquals(2, metrics.getMessageResponseTimes().size());
+        assertEquals(2, metrics.getMessageResponseTimes().get("primary/1110/000").getCount());
+        assertEquals(300, metrics.getMessageResponseTimes().get("secondary/1110/100").getMax());
+    }
+
+    @Test
+    public void registryPublishesAndExports() throws Exception {
+        GatewayMetricsRegistry registry = GatewayMetricsRegistry.getInstance();
+        GatewayMetrics metrics = registry.getMetrics("RegistryTest");
+        assertSame(metrics, registry.getMetrics("RegistryTest"));
+
+        ObjectName objectName = new ObjectName("com.global.api:type=GatewayMetrics,name=" + ObjectName.quote("RegistryTest"));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+
+        final int[] exported = new int[1];
+        IMetricsExporter exporter = new IMetricsExporter() {
+            public void export(Collection<GatewayMetrics> metrics) {
+                for(GatewayMetrics item : metrics) {
+                    if(item.getConnectorName().equals("RegistryTest")) {
+                        exported[0]++;
+                    }
+                }
+            }
+        };
+        registry.addExporter(exporter);
+        registry.export();
+        registry.removeExporter(exporter);
+        assertEquals(1, exported[0]);
+
+        registry.remove("RegistryTest");
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+    @Test
+    public void closedGatewaysUnpublishTheirMetrics() throws Exception {
+        ObjectName objectName = new ObjectName("com.global.api:type=GatewayMetrics,name=" + ObjectName.quote("CloseTest"));
+
+        // two gateways configured for the same terminal share the metrics
+        NetworkGateway first = new NetworkGateway();
+        first.setMetricsName("CloseTest");
+        NetworkGateway second = new NetworkGateway();
+        second.setMetricsName("CloseTest");
+        assertSame(first.getMetrics(), second.getMetrics());
+
+        first.close();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+
+        second.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+    @Test
+    public void configSuppliesStableMetricsName() {
+        NetworkGatewayConfig config = new NetworkGatewayConfig();
+        config.setCompanyId("0044");
+        config.setTerminalId("0000912197711");
+        assertEquals("VAPS-0044-0000912197711", config.getMetricsName());
+
+        config.setMetricsName("Store12");
+        assertEquals("Store12", config.getMetricsName());
+    }
+}
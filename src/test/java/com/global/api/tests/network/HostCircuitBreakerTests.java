@@ -0,0 +1,159 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.enums.CircuitState;
+import com.global.api.entities.enums.Host;
+import com.global.api.gateways.HostCircuitBreaker;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.gateways.events.FailOverEvent;
+import com.global.api.gateways.events.IGatewayEvent;
+import com.global.api.gateways.events.IGatewayEventHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class HostCircuitBreakerTests {
+    private static final List<Host> HOSTS = Arrays.asList(Host.Primary, Host.Secondary);
+
+    private NetworkGateway gateway;
+    private List<FailOverEvent> stateChanges;
+    private ManualExecutor probes;
+
+    @Before
+    public void setup() {
+        stateChanges = new ArrayList<FailOverEvent>();
+        probes = new ManualExecutor();
+
+        gateway = new NetworkGateway();
+        // nothing listens here so probes fail
+        gateway.setPrimaryEndpoint("localhost");
+        gateway.setPrimaryPort(1);
+        gateway.setSecondaryEndpoint("localhost");
+        gateway.setSecondaryPort(1);
+        gateway.setConnectTimeout(500);
+        gateway.setEventExecutor(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        gateway.setGatewayEventHandler(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                if(event instanceof FailOverEvent && ((FailOverEvent)event).getCircuitState() != null) {
+                    stateChanges.add((FailOverEvent)event);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(gateway, 3, 60000, probes);
+
+        breaker.recordFailure(Host.Primary);
+        breaker.recordFailure(Host.Primary);
+        assertEquals(CircuitState.Closed, breaker.getState(Host.Primary));
+        assertEquals(Arrays.asList(Host.Primary, Host.Secondary), breaker.selectHosts(HOSTS));
+
+        breaker.recordFailure(Host.Primary);
+        assertEquals(CircuitState.Open, breaker.getState(Host.Primary));
+        assertEquals(Arrays.asList(Host.Secondary, Host.Primary), breaker.selectHosts(HOSTS));
+
+        assertEquals(1, stateChanges.size());
+        assertEquals(Host.Primary, stateChanges.get(0).getHost());
+        assertEquals(CircuitState.Open, stateChanges.get(0).getCircuitState());
+    }
+
+    @Test
+    public void successResetsFailures() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(gateway, 2, 60000, probes);
+
+        breaker.recordFailure(Host.Primary);
+        breaker.recordSuccess(Host.Primary);
+        breaker.recordFailure(Host.Primary);
+        assertEquals(CircuitState.Closed, breaker.getState(Host.Primary));
+        assertTrue(stateChanges.isEmpty());
+    }
+
+    @Test
+    public void halfOpenProbeFailureReopens() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(gateway, 1, 0, probes);
+
+        breaker.recordFailure(Host.Primary);
+        assertEquals(CircuitState.Open, breaker.getState(Host.Primary));
+
+        // the open period is over, the host is probed but not used for live traffic yet
+        assertEquals(Arrays.asList(Host.Secondary, Host.Primary), breaker.selectHosts(HOSTS));
+        assertEquals(CircuitState.HalfOpen, breaker.getState(Host.Primary));
+        assertEquals(1, probes.tasks.size());
+
+        probes.runAll();
+        assertEquals(CircuitState.Open, breaker.getState(Host.Primary));
+
+        assertEquals(3, stateChanges.size());
+        assertEquals(CircuitState.Open, stateChanges.get(0).getCircuitState());
+        assertEquals(CircuitState.HalfOpen, stateChanges.get(1).getCircuitState());
+        assertEquals(CircuitState.Open, stateChanges.get(2).getCircuitState());
+    }
+
+    @Test
+    public void halfOpenClosesOnSuccess() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(gateway, 1, 0, probes);
+
+        breaker.recordFailure(Host.Primary);
+        breaker.selectHosts(HOSTS);
+        assertEquals(CircuitState.HalfOpen, breaker.getState(Host.Primary));
+
+        breaker.recordSuccess(Host.Primary);
+        assertEquals(CircuitState.Closed, breaker.getState(Host.Primary));
+        assertEquals(Arrays.asList(Host.Primary, Host.Secondary), breaker.selectHosts(HOSTS));
+    }
+
+    @Test
+    public void prefersMuchFasterHost() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(gateway, 3, 60000, probes);
+
+        breaker.recordResponseTime(Host.Primary, 300);
+        breaker.recordResponseTime(Host.Secondary, 200);
+        assertEquals(Arrays.asList(Host.Primary, Host.Secondary), breaker.selectHosts(HOSTS));
+
+        breaker.recordResponseTime(Host.Primary, 2000);
+        assertTrue(breaker.getAverageResponseTime(Host.Primary) > 400);
+        assertEquals(Arrays.asList(Host.Secondary, Host.Primary), breaker.selectHosts(HOSTS));
+    }
+
+    @Test
+    public void slowHostTriedAgainOnceItsAverageIsStale() throws InterruptedException {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(gateway, 3, 60000, probes);
+        breaker.setLatencyRefreshInterval(100);
+
+        breaker.recordResponseTime(Host.Primary, 2000);
+        breaker.recordResponseTime(Host.Secondary, 200);
+        assertEquals(Arrays.asList(Host.Secondary, Host.Primary), breaker.selectHosts(HOSTS));
+
+        Thread.sleep(150);
+        assertEquals(Arrays.asList(Host.Primary, Host.Secondary), breaker.selectHosts(HOSTS));
+
+        // the primary has recovered, so it keeps the traffic
+        breaker.recordResponseTime(Host.Primary, 100);
+        assertEquals(Arrays.asList(Host.Primary, Host.Secondary), breaker.selectHosts(HOSTS));
+    }
+
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while(!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.gateways.NetworkConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NetworkConnectionTests {
+    private ServerSocket server;
+    private NetworkConnection connection;
+
+    @Before
+    public void setup() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if(connection != null) {
+            connection.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void responsesRoutedByOriginCorrelation() throws Exception {
+        // host answers the two requests in reverse order
+        startHost(2, true);
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        final byte[][] responses = new byte[2][];
+        Thread first = new Thread() {
+            public void run() {
+                try {
+                    responses[0] = connection.send(buildFrame((byte)1, "FIRST"), 5000);
+                }
+                catch(Exception exc) { /* asserted below */ }
+            }
+        };
+        first.start();
+        Thread.sleep(100);
+
+        responses[1] = connection.send(buildFrame((byte)2, "SECOND"), 5000);
+        first.join();
+
+        assertNotNull(responses[0]);
+        assertNotNull(responses[1]);
+        assertEquals("FIRST", new String(responses[0], 30, responses[0].length - 30));
+        assertEquals("SECOND", new String(responses[1], 30, responses[1].length - 30));
+        assertEquals(0, connection.getPendingCount());
+    }
+
+    @Test
+    public void timeoutReturnsNull() throws Exception {
+        // host never answers
+        startHost(0, false);
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        assertNull(connection.send(buildFrame((byte)1, "FIRST"), 200));
+        assertFalse(connection.isClosed());
+    }
+
+    @Test
+    public void lateResponseNotHandedToAnotherCaller() throws Exception {
+        // host answers the first request only once the second has arrived
+        new Thread() {
+            public void run() {
+                try {
+                    Socket client = server.accept();
+                    DataInputStream in = new DataInputStream(client.getInputStream());
+                    DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                    byte[] first = new byte[in.readUnsignedShort() - 2];
+                    in.readFully(first);
+                    in.readFully(new byte[in.readUnsignedShort() - 2]);
+
+                    out.writeShort(first.length + 2);
+                    out.write(first);
+                    out.flush();
+                    Thread.sleep(10000);
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        assertNull(connection.send(buildFrame((byte)1, "FIRST"), 200));
+        assertNull(connection.send(buildFrame((byte)2, "SECOND"), 500));
+        assertFalse(connection.isClosed());
+    }
+
+    @Test
+    public void uncorrelatedResponseGoesToOnlyCaller() throws Exception {
+        // host which does not echo the origin correlation
+        new Thread() {
+            public void run() {
+                try {
+                    Socket client = server.accept();
+                    DataInputStream in = new DataInputStream(client.getInputStream());
+                    DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                    byte[] frame = new byte[in.readUnsignedShort() - 2];
+                    in.readFully(frame);
+                    frame[28] = 0;
+
+                    out.writeShort(frame.length + 2);
+                    out.write(frame);
+                    out.flush();
+                    Thread.sleep(10000);
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        byte[] response = connection.send(buildFrame((byte)1, "FIRST"), 5000);
+        assertNotNull(response);
+        assertEquals("FIRST", new String(response, 30, response.length - 30));
+    }
+
+    @Test
+    public void closedByHostReleasesCallers() throws Exception {
+        server.close();
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        new Thread() {
+            public void run() {
+                try {
+                    Socket client = server.accept();
+                    new DataInputStream(client.getInputStream()).readUnsignedShort();
+                    client.close();
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        long started = System.currentTimeMillis();
+        assertNull(connection.send(buildFrame((byte)1, "FIRST"), 5000));
+        assertTrue(System.currentTimeMillis() - started < 5000);
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    public void largeResponseReadWhole() throws Exception {
+        // host echoes the request back in small pieces
+        new Thread() {
+            public void run() {
+                try {
+                    Socket client = server.accept();
+                    DataInputStream in = new DataInputStream(client.getInputStream());
+                    DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                    byte[] frame = new byte[in.readUnsignedShort() - 2];
+                    in.readFully(frame);
+
+                    out.writeShort(frame.length + 2);
+                    for(int offset = 0; offset < frame.length; offset += 1000) {
+                        out.write(frame, offset, Math.min(1000, frame.length - offset));
+                        out.flush();
+                        Thread.sleep(20);
+                    }
+                    Thread.sleep(10000);
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        StringBuilder body = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            body.append((char)('A' + i % 26));
+        }
+
+        byte[] response = connection.send(buildFrame((byte)1, body.toString()), 5000);
+        assertNotNull(response);
+        assertEquals(30 + body.length(), response.length);
+        assertEquals(body.toString(), new String(response, 30, response.length - 30));
+    }
+
+    @Test
+    public void invalidLengthClosesConnection() throws Exception {
+        new Thread() {
+            public void run() {
+                try {
+                    Socket client = server.accept();
+                    DataInputStream in = new DataInputStream(client.getInputStream());
+                    DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                    byte[] frame = new byte[in.readUnsignedShort() - 2];
+                    in.readFully(frame);
+
+                    // the length includes itself, so anything under 2 cannot be a frame
+                    out.writeShort(1);
+                    out.flush();
+                    Thread.sleep(10000);
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+        connection = new NetworkConnection(Host.Primary, new Socket(server.getInetAddress(), server.getLocalPort()));
+
+        long started = System.currentTimeMillis();
+        assertNull(connection.send(buildFrame((byte)1, "FIRST"), 5000));
+        assertTrue(System.currentTimeMillis() - started < 5000);
+        assertTrue(connection.isClosed());
+    }
+
+    private void startHost(final int messageCount, final boolean reverse) {
+        new Thread() {
+            public void run() {
+                try {
+                    Socket client = server.accept();
+                    DataInputStream in = new DataInputStream(client.getInputStream());
+                    DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                    List<byte[]> received = new ArrayList<byte[]>();
+                    for(int i = 0; i < messageCount; i++) {
+                        byte[] frame = new byte[in.readUnsignedShort() - 2];
+                        in.readFully(frame);
+                        received.add(frame);
+                    }
+
+                    for(int i = 0; i < received.size(); i++) {
+                        byte[] frame = received.get(reverse ? received.size() - 1 - i : i);
+                        out.writeShort(frame.length + 2);
+                        out.write(frame);
+                    }
+                    out.flush();
+                    Thread.sleep(10000);
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+    }
+
+    private static byte[] buildFrame(byte correlation, String body) {
+        byte[] frame = new byte[32 + body.length()];
+        frame[0] = (byte)((frame.length >> 8) & 0xFF);
+        frame[1] = (byte)(frame.length & 0xFF);
+        frame[30] = correlation; // last byte of EH.14
+        System.arraycopy(body.getBytes(), 0, frame, 32, body.length());
+        return frame;
+    }
+}
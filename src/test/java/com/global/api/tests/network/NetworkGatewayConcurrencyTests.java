@@ -0,0 +1,123 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.exceptions.GatewayComsException;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.gateways.events.GatewayEventType;
+import com.global.api.gateways.events.IGatewayEvent;
+import com.global.api.gateways.events.IGatewayEventHandler;
+import com.global.api.terminals.DeviceMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NetworkGatewayConcurrencyTests {
+    private static final int SENDERS = 6;
+
+    private ServerSocket server;
+
+    @Before
+    public void setup() throws Exception {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        // the host takes a moment to drop each connection, so an unguarded sender would overlap with the next
+        new Thread() {
+            public void run() {
+                try {
+                    while(!server.isClosed()) {
+                        final Socket client = server.accept();
+                        new Thread() {
+                            public void run() {
+                                try {
+                                    Thread.sleep(50);
+                                    client.close();
+                                }
+                                catch(Exception exc) { /* test host */ }
+                            }
+                        }.start();
+                    }
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void directSendsDoNotShareTheConnection() throws Exception {
+        final NetworkGateway gateway = new NetworkGateway();
+        gateway.setPrimaryEndpoint("localhost");
+        gateway.setPrimaryPort(server.getLocalPort());
+        gateway.setSecondaryEndpoint("localhost");
+        gateway.setSecondaryPort(server.getLocalPort());
+        gateway.setConnectTimeout(1000);
+        gateway.setTimeout(1000);
+        gateway.setCircuitBreakerThreshold(100);
+        gateway.setEventExecutor(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        final List<String> connectingThreads = Collections.synchronizedList(new ArrayList<String>());
+        gateway.setGatewayEventHandler(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                if(event.getEventType().equals(GatewayEventType.Connection)) {
+                    connectingThreads.add(Thread.currentThread().getName());
+                }
+            }
+        });
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        List<Thread> senders = new ArrayList<Thread>();
+        for(int i = 0; i < SENDERS; i++) {
+            Thread sender = new Thread("sender-" + i) {
+                public void run() {
+                    try {
+                        start.await();
+                        gateway.send(new DeviceMessage(new byte[34]));
+                    }
+                    catch(GatewayComsException exc) {
+                        failures.incrementAndGet();
+                    }
+                    catch(Exception exc) { /* counted as missing below */ }
+                }
+            };
+            sender.start();
+            senders.add(sender);
+        }
+
+        start.countDown();
+        for(Thread sender : senders) {
+            sender.join(30000);
+        }
+        assertEquals(SENDERS, failures.get());
+
+        // each send makes all of its connection attempts before the next one starts
+        int runs = 0;
+        String previous = null;
+        for(String name : connectingThreads) {
+            if(!name.equals(previous)) {
+                runs++;
+            }
+            previous = name;
+        }
+        assertEquals(SENDERS, runs);
+    }
+}
@@ -0,0 +1,185 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.enums.CircuitState;
+import com.global.api.entities.enums.Host;
+import com.global.api.entities.exceptions.GatewayComsException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.gateways.events.GatewayEventType;
+import com.global.api.gateways.events.IGatewayEvent;
+import com.global.api.gateways.events.IGatewayEventHandler;
+import com.global.api.terminals.DeviceMessage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class NetworkGatewayResponseTests {
+    private enum Answer { Echo, EchoInPieces, Silent, BadLength }
+
+    private final List<ServerSocket> servers = new ArrayList<ServerSocket>();
+    private final List<GatewayEventType> events = Collections.synchronizedList(new ArrayList<GatewayEventType>());
+
+    @After
+    public void teardown() throws Exception {
+        for(ServerSocket server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void splitFrameReadWhole() throws Exception {
+        NetworkGateway gateway = createGateway(startHost(Answer.EchoInPieces), startHost(Answer.EchoInPieces));
+
+        byte[] request = buildFrame(5000);
+        byte[] response = gateway.send(new DeviceMessage(request));
+        assertEquals(request.length - 2, response.length);
+        assertEquals(request[request.length - 1], response[response.length - 1]);
+        assertFalse(events.contains(GatewayEventType.TimeoutFailOver));
+    }
+
+    @Test
+    public void timeoutFailsOverToSecondary() throws Exception {
+        NetworkGateway gateway = createGateway(startHost(Answer.Silent), startHost(Answer.Echo));
+
+        byte[] response = gateway.send(new DeviceMessage(buildFrame(10)));
+        assertNotNull(response);
+        assertTrue(events.contains(GatewayEventType.TimeoutFailOver));
+        assertEquals(CircuitState.Open, gateway.getCircuitBreaker().getState(Host.Primary));
+        assertEquals(CircuitState.Closed, gateway.getCircuitBreaker().getState(Host.Secondary));
+    }
+
+    @Test(expected = GatewayTimeoutException.class)
+    public void timeoutOnBothHosts() throws Exception {
+        NetworkGateway gateway = createGateway(startHost(Answer.Silent), startHost(Answer.Silent));
+        try {
+            gateway.send(new DeviceMessage(buildFrame(10)));
+        }
+        finally {
+            assertTrue(events.contains(GatewayEventType.TimeoutFailOver));
+            assertTrue(events.contains(GatewayEventType.Timeout));
+        }
+    }
+
+    @Test
+    public void silentHostOpensAcrossSends() throws Exception {
+        NetworkGateway gateway = createGateway(startHost(Answer.Silent), startHost(Answer.Silent));
+        gateway.setCircuitBreakerThreshold(3);
+        gateway.setTimeout(200);
+
+        // each send connects again, which must not reset the failures
+        for(int i = 0; i < 3; i++) {
+            try {
+                gateway.send(new DeviceMessage(buildFrame(10)));
+                fail("Expected a timeout");
+            }
+            catch(GatewayTimeoutException exc) {
+                // expected
+            }
+        }
+        assertEquals(CircuitState.Open, gateway.getCircuitBreaker().getState(Host.Primary));
+    }
+
+    @Test
+    public void badLengthPrefixIsNotATimeout() throws Exception {
+        NetworkGateway gateway = createGateway(startHost(Answer.BadLength), startHost(Answer.BadLength));
+
+        long started = System.currentTimeMillis();
+        try {
+            gateway.send(new DeviceMessage(buildFrame(10)));
+            fail("Expected a coms exception");
+        }
+        catch(GatewayTimeoutException exc) {
+            fail("A bad frame is not a timeout");
+        }
+        catch(GatewayComsException exc) {
+            // expected
+        }
+        assertTrue(System.currentTimeMillis() - started < 1000);
+        assertEquals(CircuitState.Open, gateway.getCircuitBreaker().getState(Host.Primary));
+    }
+
+    private NetworkGateway createGateway(int primaryPort, int secondaryPort) {
+        NetworkGateway gateway = new NetworkGateway() {
+            // the hosts are plain sockets
+            @Override
+            protected Socket createSocket() {
+                return new Socket();
+            }
+        };
+        gateway.setPrimaryEndpoint("localhost");
+        gateway.setPrimaryPort(primaryPort);
+        gateway.setSecondaryEndpoint("localhost");
+        gateway.setSecondaryPort(secondaryPort);
+        gateway.setConnectTimeout(1000);
+        gateway.setTimeout(500);
+        gateway.setCircuitBreakerThreshold(1);
+        gateway.setEventExecutor(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        gateway.setGatewayEventHandler(new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                events.add(event.getEventType());
+            }
+        });
+        return gateway;
+    }
+
+    private int startHost(final Answer answer) throws Exception {
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        servers.add(server);
+
+        new Thread() {
+            public void run() {
+                try {
+                    while(!server.isClosed()) {
+                        Socket client = server.accept();
+                        DataInputStream in = new DataInputStream(client.getInputStream());
+                        DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                        byte[] frame = new byte[in.readUnsignedShort() - 2];
+                        in.readFully(frame);
+
+                        if(answer.equals(Answer.BadLength)) {
+                            out.writeShort(1);
+                        }
+                        else if(!answer.equals(Answer.Silent)) {
+                            out.writeShort(frame.length + 2);
+                            int piece = answer.equals(Answer.EchoInPieces) ? 1000 : frame.length;
+                            for(int offset = 0; offset < frame.length; offset += piece) {
+                                out.write(frame, offset, Math.min(piece, frame.length - offset));
+                                out.flush();
+                                Thread.sleep(answer.equals(Answer.EchoInPieces) ? 50 : 0);
+                            }
+                        }
+                        out.flush();
+                    }
+                }
+                catch(Exception exc) { /* test host */ }
+            }
+        }.start();
+        return server.getLocalPort();
+    }
+
+    private static byte[] buildFrame(int bodyLength) {
+        byte[] frame = new byte[32 + bodyLength];
+        frame[0] = (byte)((frame.length >> 8) & 0xFF);
+        frame[1] = (byte)(frame.length & 0xFF);
+        for(int i = 32; i < frame.length; i++) {
+            frame[i] = (byte)('A' + i % 26);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,116 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.gateways.trace.INetworkTraceFormatter;
+import com.global.api.gateways.trace.NetworkTrace;
+import com.global.api.gateways.trace.NetworkTraceEntry;
+import com.global.api.gateways.trace.TraceOutcome;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.enums.DataElementId;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NetworkTraceTests {
+    private final AtomicInteger formatted = new AtomicInteger();
+    private final INetworkTraceFormatter formatter = new INetworkTraceFormatter() {
+        public String formatRequest(byte[] buffer) {
+            formatted.incrementAndGet();
+            return new String(buffer);
+        }
+        public String formatResponse(byte[] buffer) {
+            formatted.incrementAndGet();
+            return new String(buffer);
+        }
+    };
+
+    @Test
+    public void ringKeepsMostRecent() {
+        NetworkTrace trace = new NetworkTrace(3, formatter);
+        for(int i = 1; i <= 5; i++) {
+            trace.record(i, Host.Primary, ("request " + i).getBytes(), ("response " + i).getBytes(), 10L, 0L, TraceOutcome.Response);
+        }
+
+        List<NetworkTraceEntry> entries = trace.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals(3, entries.get(0).getSequence());
+        assertEquals(5, entries.get(2).getSequence());
+        assertEquals("request 5", trace.getLast().getRequestBreakdown());
+
+        trace.clear();
+        assertTrue(trace.getEntries().isEmpty());
+        assertNull(trace.getLast());
+    }
+
+    @Test
+    public void breakdownRenderedOnlyWhenRead() {
+        NetworkTrace trace = new NetworkTrace(2, formatter);
+        NetworkTraceEntry entry = trace.record(0, Host.Secondary, "request".getBytes(), null, null, 5L, TraceOutcome.Timeout);
+        assertEquals(0, formatted.get());
+
+        String rendered = entry.toString();
+        assertEquals(1, formatted.get());
+        assertTrue(rendered.contains("Timeout"));
+        assertTrue(rendered.contains("Request Breakdown:\r\nrequest"));
+        assertFalse(rendered.contains("Response Breakdown"));
+        assertNull(entry.getResponseBreakdown());
+    }
+
+    @Test
+    public void clearReleasesBuffers() throws InterruptedException {
+        NetworkTrace trace = new NetworkTrace(2, formatter);
+        byte[] request = "4012002000060016".getBytes();
+        WeakReference<byte[]> held = new WeakReference<byte[]>(request);
+        trace.record(0, Host.Primary, request, null, 10L, 0L, TraceOutcome.Response);
+        request = null;
+
+        trace.clear();
+        for(int i = 0; i < 10 && held.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(held.get());
+
+        // recording carries on in the same ring
+        trace.record(1, Host.Primary, "request".getBytes(), null, 10L, 0L, TraceOutcome.Response);
+        assertEquals(1, trace.getEntries().size());
+    }
+
+    @Test
+    public void gatewayTraceOffByDefault() {
+        NetworkGateway gateway = new NetworkGateway();
+        assertNull(gateway.getTrace());
+
+        gateway.setTraceCapacity(NetworkTrace.DEFAULT_CAPACITY);
+        assertEquals(NetworkTrace.DEFAULT_CAPACITY, gateway.getTrace().getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacityRejected() {
+        new NetworkTrace(0, formatter);
+    }
+
+    @Test
+    public void cardDataMaskedByElement() {
+        NetworkMessage message = new NetworkMessage();
+        message.setMessageTypeIndicator("1200");
+        message.set(DataElementId.DE_002, "4012002000060016");
+        message.set(DataElementId.DE_004, "000000001000");
+        message.set(DataElementId.DE_035, "4012002000060016=25121011803939600000");
+        message.set(DataElementId.DE_062, "PAN 4012002000060016");
+
+        String masked = message.toMaskedString();
+        assertTrue(masked.contains("DE_002: 16401200XXXXXX0016\r\n"));
+        assertTrue(masked.contains("DE_004: 000000001000\r\n"));
+        assertTrue(masked.contains("DE_035: 37XXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXX\r\n"));
+        assertTrue(masked.contains("DE_062: 020PAN 401200XXXXXX0016\r\n"));
+
+        // the plain breakdown is unchanged
+        assertTrue(message.toString().contains("DE_002: 164012002000060016\r\n"));
+    }
+}
@@ -90,6 +90,22 @@ public class NetworkValidationTests {
         ServicesContainer.configureService(config);
     }
 
+    @Test(expected = ConfigurationException.class)
+    public void config_BatchResubmitWindow_Zero() throws ApiException {
+        AcceptorConfig acceptorConfig = new AcceptorConfig();
+        // acceptor required fields
+
+        NetworkGatewayConfig config = new NetworkGatewayConfig();
+        config.setPrimaryEndpoint("test.txns-c.secureexchange.net");
+        config.setPrimaryPort(12345);
+        config.setAcceptorConfig(acceptorConfig);
+        config.setCompanyId("0044");
+        config.setTerminalId("0001126198308");
+        config.setBatchResubmitWindow(0);
+
+        ServicesContainer.configureService(config);
+    }
+
     @Test(expected = ConfigurationException.class)
     public void config_AcceptorConfig_HardwareLevel_OverLength() throws ApiException {
         AcceptorConfig acceptorConfig = new AcceptorConfig();
@@ -0,0 +1,323 @@
+package com.global.api.tests.network.vaps;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.entities.BatchResubmitFailure;
+import com.global.api.entities.BatchSummary;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.enums.Host;
+import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.GatewayComsException;
+import com.global.api.gateways.NetworkConnection;
+import com.global.api.gateways.VapsConnector;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.abstractions.IBatchProvider;
+import com.global.api.network.abstractions.IStanProvider;
+import com.global.api.network.entities.PriorMessageInformation;
+import com.global.api.network.enums.*;
+import com.global.api.serviceConfigs.AcceptorConfig;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.services.BatchService;
+import com.global.api.terminals.abstractions.IDeviceMessage;
+import com.global.api.utils.IRequestEncoder;
+import com.global.api.utils.StringUtils;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static org.junit.Assert.*;
+
+public class VapsBatchResubmitTests {
+    private static final int WINDOW = 3;
+    private static final String UNANSWERED_AMOUNT = "000000000999";
+    private static final String GARBAGE_TOKEN = "%%%%";
+
+    private ServerSocket server;
+    private FakeHost host;
+    private TestBatchProvider batchProvider;
+
+    @Before
+    public void setup() throws Exception {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        host = new FakeHost(server);
+        host.start();
+
+        batchProvider = new TestBatchProvider();
+
+        final ResubmittingConnector connector = new ResubmittingConnector(server.getLocalPort());
+        connector.setPrimaryEndpoint("localhost");
+        connector.setPrimaryPort(server.getLocalPort());
+        connector.setCompanyId("0044");
+        connector.setTerminalId("0000912197711");
+        connector.setUniqueDeviceId("0001");
+        connector.setMerchantType("5541");
+        connector.setNodeIdentification("VLK2");
+        connector.setMessageType(MessageType.Heartland_POS_8583);
+        connector.setProtocolType(ProtocolType.TCP_IP);
+        connector.setConnectionType(ConnectionType.ISDN);
+        connector.setProcessingFlag(NetworkProcessingFlag.NonPersistentConnection);
+        connector.setAcceptorConfig(new AcceptorConfig());
+        connector.setTimeout(1000);
+        connector.setBatchProvider(batchProvider);
+        connector.setBatchResubmitWindow(WINDOW);
+        connector.setStanProvider(new IStanProvider() {
+            public int generateStan() {
+                return 1;
+            }
+        });
+
+        ServicesContainer.configureService(new Configuration() {
+            public void configureContainer(ConfiguredServices services) {
+                services.setGatewayConnector(connector);
+            }
+        }, "resubmit");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void outOfBalanceBatchIsResentInOrder() throws ApiException {
+        // data collects for $1 through $8
+        for(int i = 1; i <= 8; i++) {
+            batchProvider.encodedRequests.add(buildToken(i, StringUtils.padLeft(i * 100, 12, '0')));
+        }
+        String unanswered = buildToken(9, UNANSWERED_AMOUNT);
+        batchProvider.encodedRequests.add(2, GARBAGE_TOKEN);
+        batchProvider.encodedRequests.add(5, unanswered);
+
+        BatchSummary summary = BatchService.closeBatch("resubmit");
+        assertEquals("580", summary.getResponseCode());
+
+        // the host answers each window in reverse, the responses still come back in batch order
+        LinkedList<Transaction> resent = summary.getResentTransactions();
+        assertEquals(8, resent.size());
+        for(int i = 0; i < resent.size(); i++) {
+            assertEquals("000", resent.get(i).getResponseCode());
+            assertEquals(i + 1, resent.get(i).getAuthorizedAmount().intValue());
+        }
+
+        LinkedList<BatchResubmitFailure> failures = summary.getResubmitFailures();
+        assertEquals(2, failures.size());
+        assertEquals("1221", failures.get(0).getMessageTypeIndicator());
+        assertEquals(GARBAGE_TOKEN, failures.get(0).getTransactionToken());
+        assertNotNull(failures.get(0).getException());
+        assertEquals("1221", failures.get(1).getMessageTypeIndicator());
+        assertEquals(unanswered, failures.get(1).getTransactionToken());
+
+        assertTrue(host.maxInFlight > 0);
+        assertTrue("in flight: " + host.maxInFlight, host.maxInFlight <= WINDOW);
+
+        // the batch close follows the data collects and is not recovered a second time
+        assertNotNull(summary.getResentBatchClose());
+        assertEquals("500", summary.getResentBatchClose().getResponseCode());
+        assertEquals("1521", host.lastMessageTypeIndicator);
+        assertTrue(batchProvider.closed);
+    }
+
+    private String buildToken(int stan, String amount) {
+        NetworkMessage dataCollect = new NetworkMessage(Iso8583MessageType.CompleteMessage);
+        dataCollect.setMessageTypeIndicator("1220");
+        dataCollect.set(DataElementId.DE_003, "000000");
+        dataCollect.set(DataElementId.DE_004, amount);
+        dataCollect.set(DataElementId.DE_011, StringUtils.padLeft(stan, 6, '0'));
+        dataCollect.set(DataElementId.DE_012, "181018120000");
+        dataCollect.set(DataElementId.DE_024, "201");
+        dataCollect.set(DataElementId.DE_041, "00000001");
+        return new String(Base64.encodeBase64(dataCollect.buildMessage()));
+    }
+
+    // a response frame (without the length) answering the request frame (also without the length)
+    private static byte[] buildResponse(byte[] request, String messageTypeIndicator, String responseCode) {
+        NetworkMessage original = NetworkMessage.parse(Arrays.copyOfRange(request, 34, request.length), Iso8583MessageType.CompleteMessage);
+
+        NetworkMessage message = new NetworkMessage(Iso8583MessageType.CompleteMessage);
+        message.setMessageTypeIndicator(messageTypeIndicator);
+        if(original.has(DataElementId.DE_004)) {
+            message.set(DataElementId.DE_004, original.getString(DataElementId.DE_004));
+        }
+        message.set(DataElementId.DE_011, original.getString(DataElementId.DE_011));
+        message.set(DataElementId.DE_039, responseCode);
+        byte[] body = message.buildMessage();
+
+        byte[] response = Arrays.copyOf(request, 30 + body.length);
+        System.arraycopy(body, 0, response, 30, body.length);
+        return response;
+    }
+
+    private static String getMessageTypeIndicator(byte[] request) {
+        return new String(request, 30, 4);
+    }
+
+    private static String getAmount(byte[] request) {
+        NetworkMessage message = NetworkMessage.parse(Arrays.copyOfRange(request, 34, request.length), Iso8583MessageType.CompleteMessage);
+        return message.getString(DataElementId.DE_004);
+    }
+
+    /**
+     * Answers the 1520 itself with a 580 and sends the recovery over plain sockets to the fake host.
+     */
+    private static class ResubmittingConnector extends VapsConnector {
+        private final int port;
+
+        ResubmittingConnector(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public byte[] send(IDeviceMessage message) {
+            byte[] frame = message.getSendBuffer();
+            return buildResponse(Arrays.copyOfRange(frame, 2, frame.length), "1530", "580");
+        }
+
+        @Override
+        protected NetworkConnection openDedicatedConnection() throws GatewayComsException {
+            try {
+                return new NetworkConnection(Host.Primary, new Socket(InetAddress.getLoopbackAddress(), port));
+            }
+            catch(IOException exc) {
+                throw new GatewayComsException(exc);
+            }
+        }
+    }
+
+    /**
+     * Holds the data collects until the terminal stops sending, then answers them newest first.
+     */
+    private static class FakeHost extends Thread {
+        private final ServerSocket server;
+        private final LinkedList<byte[]> pending = new LinkedList<byte[]>();
+        private volatile long lastArrival;
+        private volatile int maxInFlight;
+        private volatile String lastMessageTypeIndicator;
+
+        FakeHost(ServerSocket server) {
+            this.server = server;
+            setDaemon(true);
+        }
+
+        public void run() {
+            try {
+                while(!server.isClosed()) {
+                    Socket client = server.accept();
+                    final DataInputStream in = new DataInputStream(client.getInputStream());
+                    final DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+                    Thread responder = new Thread() {
+                        public void run() {
+                            try {
+                                while(true) {
+                                    Thread.sleep(20);
+                                    synchronized (pending) {
+                                        if(pending.isEmpty() || System.currentTimeMillis() - lastArrival < 100) {
+                                            continue;
+                                        }
+                                        while(!pending.isEmpty()) {
+                                            answer(pending.removeLast(), out);
+                                        }
+                                    }
+                                }
+                            }
+                            catch(Exception exc) { /* test host */ }
+                        }
+                    };
+                    responder.setDaemon(true);
+                    responder.start();
+
+                    try {
+                        while(true) {
+                            byte[] request = new byte[in.readUnsignedShort() - 2];
+                            in.readFully(request);
+
+                            synchronized (pending) {
+                                lastMessageTypeIndicator = getMessageTypeIndicator(request);
+                                lastArrival = System.currentTimeMillis();
+                                if(!UNANSWERED_AMOUNT.equals(getAmount(request))) {
+                                    pending.add(request);
+                                }
+                                maxInFlight = Math.max(maxInFlight, pending.size());
+                            }
+                        }
+                    }
+                    catch(IOException exc) {
+                        responder.interrupt();
+                    }
+                }
+            }
+            catch(Exception exc) { /* test host */ }
+        }
+
+        private void answer(byte[] request, DataOutputStream out) throws IOException {
+            byte[] response;
+            if(getMessageTypeIndicator(request).equals("1521")) {
+                response = buildResponse(request, "1530", "500");
+            }
+            else response = buildResponse(request, "1230", "000");
+
+            out.writeShort(response.length + 2);
+            out.write(response);
+            out.flush();
+        }
+    }
+
+    private static class TestBatchProvider implements IBatchProvider {
+        private final LinkedList<String> encodedRequests = new LinkedList<String>();
+        private PriorMessageInformation priorMessageInformation;
+        private volatile boolean closed;
+
+        public int getBatchNumber() {
+            return 1;
+        }
+        public int getSequenceNumber() {
+            return 1;
+        }
+        public int getTransactionCount() {
+            return encodedRequests.size();
+        }
+        public BigDecimal getTotalCredits() {
+            return new BigDecimal(0);
+        }
+        public BigDecimal getTotalDebits() {
+            return new BigDecimal(0);
+        }
+        public IRequestEncoder getRequestEncoder() {
+            return new IRequestEncoder() {
+                public String encode(Object value) {
+                    return value.toString();
+                }
+                public String decode(Object value) {
+                    return value.toString();
+                }
+            };
+        }
+        public LinkedList<String> getEncodedRequests() {
+            return encodedRequests;
+        }
+        public PriorMessageInformation getPriorMessageData() {
+            return priorMessageInformation;
+        }
+        public void setPriorMessageData(PriorMessageInformation value) {
+            this.priorMessageInformation = value;
+        }
+
+        public void reportDataCollect(TransactionType transactionType, PaymentMethodType paymentMethodType, BigDecimal amount, String encodedRequest) { }
+        public void closeBatch(boolean inBalance) {
+            closed = true;
+        }
+    }
+}
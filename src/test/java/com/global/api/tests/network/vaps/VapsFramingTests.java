@@ -0,0 +1,98 @@
+package com.global.api.tests.network.vaps;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.gateways.VapsConnector;
+import com.global.api.network.abstractions.IStanProvider;
+import com.global.api.network.enums.ConnectionType;
+import com.global.api.network.enums.MessageType;
+import com.global.api.network.enums.NetworkProcessingFlag;
+import com.global.api.network.enums.ProtocolType;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.serviceConfigs.AcceptorConfig;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.terminals.abstractions.IDeviceMessage;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class VapsFramingTests {
+    private CapturingConnector connector;
+
+    public VapsFramingTests() throws ApiException {
+        connector = new CapturingConnector();
+        connector.setPrimaryEndpoint("localhost");
+        connector.setPrimaryPort(15031);
+        connector.setCompanyId("0044");
+        connector.setTerminalId("0000912197711");
+        connector.setUniqueDeviceId("0001");
+        connector.setMerchantType("5541");
+        connector.setNodeIdentification("VLK2");
+        connector.setMessageType(MessageType.Heartland_POS_8583);
+        connector.setProtocolType(ProtocolType.TCP_IP);
+        connector.setConnectionType(ConnectionType.ISDN);
+        connector.setProcessingFlag(NetworkProcessingFlag.NonPersistentConnection);
+        connector.setAcceptorConfig(new AcceptorConfig());
+        connector.setStanProvider(new IStanProvider() {
+            public int generateStan() {
+                return 1;
+            }
+        });
+
+        ServicesContainer.configureService(new Configuration() {
+            public void configureContainer(ConfiguredServices services) {
+                services.setGatewayConnector(connector);
+            }
+        }, "framing");
+    }
+
+    @Test
+    public void keepAlive_LengthMatchesFrame() throws ApiException {
+        connector.sendKeepAlive();
+        assertFramed(connector.frames.get(0));
+    }
+
+    @Test
+    public void authorization_LengthMatchesFrame() throws ApiException {
+        CreditCardData card = new CreditCardData();
+        card.setNumber("4012002000060016");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+
+        card.authorize(new BigDecimal(10))
+                .withCurrency("USD")
+                .execute("framing");
+
+        assertFalse(connector.frames.isEmpty());
+        for(byte[] frame : connector.frames) {
+            assertFramed(frame);
+        }
+    }
+
+    // EH.1 holds the total length of the frame, itself included
+    private void assertFramed(byte[] frame) {
+        int messageLength = ((frame[0] & 0xFF) << 8) | (frame[1] & 0xFF);
+        assertEquals(frame.length, messageLength);
+        assertEquals(1, frame[31]); // EH.15: Version
+    }
+
+    private static class CapturingConnector extends VapsConnector {
+        private final ArrayList<byte[]> frames = new ArrayList<byte[]>();
+
+        // answers with the request header and no message, which is enough for the connector to finish
+        @Override
+        public byte[] send(IDeviceMessage message) {
+            byte[] frame = message.getSendBuffer();
+            frames.add(frame);
+
+            byte[] response = Arrays.copyOfRange(frame, 2, 32);
+            response[4] = MessageType.NoMessage.getByte();
+            return response;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.global.api.tests.services;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.builders.TransactionReportBuilder;
+import com.global.api.builders.TransactionReportIterator;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.TransactionSummaryList;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.exceptions.UncheckedApiException;
+import com.global.api.gateways.IPaymentGateway;
+import com.global.api.gateways.IReportStreamingGateway;
+import com.global.api.gateways.ITransactionSummaryReader;
+import com.global.api.network.NetworkMessageHeader;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.services.ReportingService;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReportStreamingTests {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private FakeReportGateway gateway;
+
+    @Before
+    public void setup() throws Exception {
+        gateway = new FakeReportGateway();
+        ServicesContainer.configureService(new Configuration() {
+            public void configureContainer(ConfiguredServices services) throws ConfigurationException {
+                services.setGatewayConnector(gateway);
+            }
+        }, "streaming");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        ServicesContainer.configureService(null, "streaming");
+    }
+
+    @Test
+    public void rangeRequestedInSlices() throws Exception {
+        Date start = new Date(0);
+        Date end = new Date(3 * DAY - 1);
+
+        TransactionReportIterator iterator = ReportingService.findTransactions()
+                .withStartDate(start)
+                .withEndDate(end)
+                .iterate("streaming");
+
+        List<String> ids = new ArrayList<String>();
+        while(iterator.hasNext()) {
+            ids.add(iterator.next().getTransactionId());
+        }
+
+        assertEquals(6, ids.size());
+        assertEquals(3, gateway.windows.size());
+        assertEquals(0, gateway.windows.get(0)[0]);
+        for(int i = 1; i < gateway.windows.size(); i++) {
+            // each slice starts right after the one before it
+            assertEquals(gateway.windows.get(i - 1)[1] + 1, gateway.windows.get(i)[0]);
+        }
+        assertEquals(end.getTime(), gateway.windows.get(2)[1]);
+        assertEquals(0, gateway.openReaders.get());
+    }
+
+    @Test
+    public void slicesOnlyRequestedAsRowsAreConsumed() throws Exception {
+        TransactionReportIterator iterator = ReportingService.findTransactions()
+                .withStartDate(new Date(0))
+                .withEndDate(new Date(10 * DAY))
+                .withSliceDuration(DAY)
+                .iterate("streaming");
+
+        iterator.next();
+        assertEquals(1, gateway.windows.size());
+
+        iterator.close();
+        assertFalse(iterator.hasNext());
+        assertEquals(0, gateway.openReaders.get());
+    }
+
+    @Test
+    public void streamClosesOpenResponse() throws Exception {
+        long count = ReportingService.findTransactions()
+                .withStartDate(new Date(0))
+                .withEndDate(new Date(2 * DAY - 1))
+                .stream("streaming")
+                .count();
+
+        assertEquals(4, count);
+        assertEquals(0, gateway.openReaders.get());
+    }
+
+    @Test
+    public void gatewayErrorSurfaces() throws Exception {
+        gateway.failOnWindow = 1;
+        TransactionReportIterator iterator = ReportingService.findTransactions()
+                .withStartDate(new Date(0))
+                .withEndDate(new Date(3 * DAY - 1))
+                .iterate("streaming");
+
+        iterator.next();
+        iterator.next();
+        try {
+            iterator.next();
+            fail("Expected the failed slice to be reported");
+        }
+        catch(UncheckedApiException exc) {
+            assertTrue(exc.getCause() instanceof GatewayException);
+        }
+        assertEquals(0, gateway.openReaders.get());
+    }
+
+    @Test(expected = ApiException.class)
+    public void datesRequired() throws Exception {
+        ReportingService.findTransactions().iterate("streaming");
+    }
+
+    @Test
+    public void parallelSlicesMergedInDateOrder() throws Exception {
+        gateway.sharedFirstRow = true;
+        gateway.delay = 50;
+
+        TransactionSummaryList response = ReportingService.findTransactions()
+                .withStartDate(new Date(0))
+                .withEndDate(new Date(8 * DAY - 1))
+                .withParallelSlices(8)
+                .withMaxConcurrency(3)
+                .execute("streaming");
+
+        assertEquals(8, gateway.windows.size());
+        assertEquals(3, gateway.maxInFlight.get());
+
+        // the row every slice repeats is kept once
+        assertEquals(9, response.size());
+        for(int i = 1; i < response.size(); i++) {
+            assertFalse(response.get(i).getTransactionDate().isBefore(response.get(i - 1).getTransactionDate()));
+        }
+    }
+
+    @Test
+    public void parallelReportRunFromItsOwnExecutor() throws Exception {
+        // the only pool thread is busy running the report, so the calling thread has to read the slices
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Configuration config = new Configuration() {
+                public void configureContainer(ConfiguredServices services) throws ConfigurationException {
+                    services.setGatewayConnector(gateway);
+                }
+            };
+            config.setExecutor(executor);
+            ServicesContainer.configureService(config, "streamingBusy");
+
+            Future<TransactionSummaryList> future = executor.submit(new Callable<TransactionSummaryList>() {
+                public TransactionSummaryList call() throws Exception {
+                    return ReportingService.findTransactions()
+                            .withStartDate(new Date(0))
+                            .withEndDate(new Date(4 * DAY - 1))
+                            .withParallelSlices(4)
+                            .withMaxConcurrency(2)
+                            .execute("streamingBusy");
+                }
+            });
+
+            assertEquals(8, future.get(5, TimeUnit.SECONDS).size());
+            assertEquals(4, gateway.windows.size());
+        }
+        finally {
+            ServicesContainer.configureService(null, "streamingBusy");
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = GatewayException.class)
+    public void parallelSliceFailureReported() throws Exception {
+        gateway.failOnWindow = 2;
+        ReportingService.findTransactions()
+                .withStartDate(new Date(0))
+                .withEndDate(new Date(4 * DAY - 1))
+                .withParallelSlices(4)
+                .execute("streaming");
+    }
+
+    // hands back two rows for every window it is asked for
+    private static class FakeReportGateway implements IPaymentGateway, IReportStreamingGateway {
+        private List<long[]> windows = Collections.synchronizedList(new ArrayList<long[]>());
+        private AtomicInteger openReaders = new AtomicInteger();
+        private AtomicInteger maxInFlight = new AtomicInteger();
+        private volatile int failOnWindow = -1;
+        private volatile boolean sharedFirstRow;
+        private volatile long delay;
+
+        public ITransactionSummaryReader openTransactionReader(TransactionReportBuilder<?> builder, Date startDate, Date endDate) throws ApiException {
+            final long windowStart = startDate.getTime();
+            final int window;
+            synchronized (windows) {
+                window = windows.size();
+                windows.add(new long[] { startDate.getTime(), endDate.getTime() });
+            }
+            if(window == failOnWindow) {
+                throw new GatewayException("Unexpected Gateway Response: 1 - failed");
+            }
+
+            int inFlight = openReaders.incrementAndGet();
+            while(maxInFlight.get() < inFlight) {
+                maxInFlight.compareAndSet(maxInFlight.get(), inFlight);
+            }
+            try {
+                Thread.sleep(delay);
+            }
+            catch(InterruptedException exc) { /* carry on */ }
+
+            return new ITransactionSummaryReader() {
+                private int rows;
+                private boolean closed;
+
+                public TransactionSummary read() {
+                    if(rows == 2) {
+                        close();
+                        return null;
+                    }
+
+                    TransactionSummary summary = new TransactionSummary();
+                    summary.setTransactionId(sharedFirstRow && rows == 0 ? "shared" : String.format("%s-%s", window, rows));
+                    summary.setTransactionDate(new DateTime(windowStart + rows * 1000L));
+                    rows++;
+                    return summary;
+                }
+
+                public void close() {
+                    if(!closed) {
+                        closed = true;
+                        openReaders.decrementAndGet();
+                    }
+                }
+            };
+        }
+
+        public Transaction processAuthorization(AuthorizationBuilder builder) { return null; }
+        public Transaction manageTransaction(ManagementBuilder builder) { return null; }
+        public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) { return null; }
+        public String serializeRequest(AuthorizationBuilder builder) { return null; }
+        public NetworkMessageHeader sendKeepAlive() { return null; }
+        public boolean supportsHostedPayments() { return false; }
+    }
+}
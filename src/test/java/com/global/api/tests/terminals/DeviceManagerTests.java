@@ -0,0 +1,313 @@
+package com.global.api.tests.terminals;
+
+import com.global.api.entities.enums.ConnectionModes;
+import com.global.api.entities.enums.DeviceType;
+import com.global.api.entities.enums.PaxTxnType;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.DeviceController;
+import com.global.api.terminals.DeviceManager;
+import com.global.api.terminals.DeviceOperationResults;
+import com.global.api.terminals.TerminalResponse;
+import com.global.api.terminals.abstractions.IDeviceCommInterface;
+import com.global.api.terminals.abstractions.IDeviceInterface;
+import com.global.api.terminals.abstractions.IDeviceMessage;
+import com.global.api.terminals.abstractions.IDeviceOperation;
+import com.global.api.terminals.builders.TerminalAuthBuilder;
+import com.global.api.terminals.builders.TerminalManageBuilder;
+import com.global.api.terminals.hpa.HpaController;
+import com.global.api.terminals.messaging.IMessageSentInterface;
+import com.global.api.terminals.pax.PaxController;
+import com.global.api.terminals.pax.subgroups.*;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeviceManagerTests {
+    @Test
+    public void fanOutBoundedConcurrency() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+
+        DeviceManager manager = new DeviceManager();
+        manager.setMaxConcurrency(4);
+        for(int i = 0; i < 20; i++) {
+            manager.addLane("lane" + i, new FakeController());
+        }
+
+        DeviceOperationResults<String> results = manager.executeAll(new IDeviceOperation<String>() {
+            public String execute(IDeviceInterface device) throws ApiException {
+                int current = active.incrementAndGet();
+                synchronized (peak) {
+                    peak.set(Math.max(peak.get(), current));
+                }
+                try {
+                    Thread.sleep(20);
+                }
+                catch(InterruptedException exc) { /* keep going */ }
+                active.decrementAndGet();
+                return "OK";
+            }
+        });
+
+        assertTrue(results.isSuccessful());
+        assertEquals(20, results.getSuccessCount());
+        assertEquals("OK", results.getResult("lane7"));
+        assertTrue(peak.get() <= 4);
+        assertTrue(peak.get() > 1);
+    }
+
+    @Test
+    public void failuresCollectedPerLane() throws Exception {
+        DeviceManager manager = new DeviceManager();
+        manager.addLane("good", new FakeController());
+        manager.addLane("bad", new FakeController());
+
+        final IDeviceInterface bad = manager.getDevice("bad");
+        DeviceOperationResults<String> results = manager.executeAll(new IDeviceOperation<String>() {
+            public String execute(IDeviceInterface device) throws ApiException {
+                if(device == bad) {
+                    throw new ApiException("Terminal offline");
+                }
+                return "OK";
+            }
+        });
+
+        assertFalse(results.isSuccessful());
+        assertEquals(1, results.getSuccessCount());
+        assertEquals("OK", results.getResult("good"));
+        assertEquals("Terminal offline", results.getError("bad").getMessage());
+    }
+
+    @Test
+    public void requestsToOneLaneAreSerialized() throws Exception {
+        final DeviceManager manager = new DeviceManager();
+        manager.addLane("lane", new FakeController());
+
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final IDeviceOperation<String> operation = new IDeviceOperation<String>() {
+            public String execute(IDeviceInterface device) {
+                peak.set(Math.max(peak.get(), active.incrementAndGet()));
+                try {
+                    Thread.sleep(20);
+                }
+                catch(InterruptedException exc) { /* keep going */ }
+                active.decrementAndGet();
+                return "OK";
+            }
+        };
+
+        Thread[] callers = new Thread[5];
+        for(int i = 0; i < callers.length; i++) {
+            callers[i] = new Thread() {
+                public void run() {
+                    try {
+                        manager.execute("lane", operation);
+                    }
+                    catch(ApiException exc) { /* asserted below */ }
+                }
+            };
+            callers[i].start();
+        }
+        for(Thread caller : callers) {
+            caller.join();
+        }
+
+        assertEquals(1, peak.get());
+    }
+
+    @Test
+    public void executeAllFromItsOwnExecutor() throws Exception {
+        // the only pool thread is running executeAll, so the calling thread has to drive the lanes
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final DeviceManager manager = new DeviceManager();
+            manager.setExecutor(executor);
+            for(int i = 0; i < 4; i++) {
+                manager.addLane("lane" + i, new FakeController());
+            }
+
+            Future<DeviceOperationResults<String>> future = executor.submit(new Callable<DeviceOperationResults<String>>() {
+                public DeviceOperationResults<String> call() throws Exception {
+                    return manager.executeAll(new IDeviceOperation<String>() {
+                        public String execute(IDeviceInterface device) {
+                            return "OK";
+                        }
+                    });
+                }
+            });
+            assertEquals(4, future.get(5, TimeUnit.SECONDS).getSuccessCount());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void controllersNotCreatedByTheManagerStayOpen() throws Exception {
+        FakeController removed = new FakeController();
+        FakeController kept = new FakeController();
+
+        DeviceManager manager = new DeviceManager();
+        manager.addLane("removed", removed);
+        manager.addLane("kept", kept);
+
+        manager.removeLane("removed");
+        manager.dispose();
+
+        assertFalse(removed.disposed);
+        assertFalse(kept.disposed);
+        assertEquals(0, manager.getLaneCount());
+    }
+
+    @Test
+    public void deviceMessagesWaitForTheLane() throws Exception {
+        final PaxController pax = new PaxController(getTcpConfig(DeviceType.PAX_S300)) {{
+            _interface = new RecordingInterface();
+        }};
+        final HpaController hpa = new HpaController(getTcpConfig(DeviceType.HPA_ISC250)) {{
+            _interface = new RecordingInterface();
+        }};
+
+        DeviceManager manager = new DeviceManager();
+        manager.addLane("pax", pax);
+        manager.addLane("hpa", hpa);
+
+        assertWaitsForLane(manager, "pax", new Callable<Object>() {
+            public Object call() throws Exception {
+                return pax.doCredit(PaxTxnType.SALE_REDEEM, new AmountRequest(), new AccountRequest(), new TraceRequest(), new AvsRequest(),
+                        new CashierSubGroup(), new CommercialRequest(), new EcomSubGroup(), new ExtDataSubGroup());
+            }
+        });
+        assertWaitsForLane(manager, "hpa", new Callable<Object>() {
+            public Object call() throws Exception {
+                return hpa.configureInterface().initialize();
+            }
+        });
+    }
+
+    @Test
+    public void noLanes() throws Exception {
+        DeviceOperationResults<?> results = new DeviceManager().batchCloseAll();
+        assertTrue(results.isSuccessful());
+        assertEquals(0, results.getSuccessCount());
+    }
+
+    // holds the lane from another thread, then checks the message was only sent once it was let go
+    private void assertWaitsForLane(final DeviceManager manager, final String laneName, Callable<Object> send) throws Exception {
+        final CountDownLatch holding = new CountDownLatch(1);
+        Thread holder = new Thread() {
+            public void run() {
+                try {
+                    manager.execute(laneName, new IDeviceOperation<Object>() {
+                        public Object execute(IDeviceInterface device) throws ApiException {
+                            laneBusy.set(true);
+                            holding.countDown();
+                            try {
+                                Thread.sleep(200);
+                            }
+                            catch(InterruptedException exc) { /* let go early */ }
+                            laneBusy.set(false);
+                            return null;
+                        }
+                    });
+                }
+                catch(ApiException exc) { /* asserted below */ }
+            }
+        };
+        holder.start();
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        sentWhileBusy.set(false);
+        try {
+            send.call();
+            fail("The recording interface fails every send.");
+        }
+        catch(ApiException exc) {
+            assertEquals("Terminal offline", exc.getMessage());
+        }
+        holder.join();
+        assertFalse(sentWhileBusy.get());
+    }
+
+    private static ConnectionConfig getTcpConfig(DeviceType deviceType) {
+        ConnectionConfig config = new ConnectionConfig();
+        config.setDeviceType(deviceType);
+        config.setConnectionMode(ConnectionModes.TCP_IP);
+        config.setIpAddress("localhost");
+        config.setPort(1);
+        return config;
+    }
+
+    private static final AtomicBoolean laneBusy = new AtomicBoolean();
+    private static final AtomicBoolean sentWhileBusy = new AtomicBoolean();
+
+    private static class RecordingInterface implements IDeviceCommInterface {
+        public void connect() { }
+        public void disconnect() { }
+        public byte[] send(IDeviceMessage message) throws ApiException {
+            if(laneBusy.get()) {
+                sentWhileBusy.set(true);
+            }
+            throw new ApiException("Terminal offline");
+        }
+        public void setMessageSentHandler(IMessageSentInterface messageInterface) { }
+    }
+
+    private static class FakeController extends DeviceController {
+        private boolean disposed;
+
+        private final IDeviceInterface device = (IDeviceInterface)Proxy.newProxyInstance(
+                IDeviceInterface.class.getClassLoader(),
+                new Class<?>[] { IDeviceInterface.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if(method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        }
+                        if(method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+
+        FakeController() throws ConfigurationException {
+            super(getConfig());
+        }
+
+        private static ConnectionConfig getConfig() {
+            ConnectionConfig config = new ConnectionConfig();
+            config.setDeviceType(DeviceType.PAX_S300);
+            config.setConnectionMode(ConnectionModes.SERIAL);
+            return config;
+        }
+
+        public IDeviceInterface configureInterface() {
+            return device;
+        }
+        public TerminalResponse processTransaction(TerminalAuthBuilder builder) {
+            return null;
+        }
+        public TerminalResponse manageTransaction(TerminalManageBuilder builder) {
+            return null;
+        }
+        public void dispose() {
+            disposed = true;
+        }
+    }
+}
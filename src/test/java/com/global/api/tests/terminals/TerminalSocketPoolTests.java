@@ -0,0 +1,134 @@
+package com.global.api.tests.terminals;
+
+import com.global.api.entities.enums.ConnectionModes;
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.entities.enums.DeviceType;
+import com.global.api.entities.enums.PaxMsgId;
+import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.DeviceMessage;
+import com.global.api.terminals.TerminalSocketPool;
+import com.global.api.terminals.TerminalUtilities;
+import com.global.api.terminals.pax.interfaces.PaxTcpInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TerminalSocketPoolTests {
+    private ServerSocket server;
+    private AtomicInteger accepted;
+
+    @Before
+    public void setup() throws Exception {
+        server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        accepted = new AtomicInteger();
+        TerminalSocketPool.getInstance().clear();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        TerminalSocketPool.getInstance().clear();
+        server.close();
+    }
+
+    @Test
+    public void socketReusedBetweenMessages() throws Exception {
+        startDevice(false);
+        PaxTcpInterface device = new PaxTcpInterface(getConfig());
+
+        byte[] first = device.send(buildRequest());
+        byte[] second = device.send(buildRequest());
+
+        assertEquals(ControlCodes.STX.getByte(), first[0]);
+        assertEquals(ControlCodes.STX.getByte(), second[0]);
+        assertEquals(1, accepted.get());
+        assertEquals(1, TerminalSocketPool.getInstance().getIdleCount());
+    }
+
+    @Test
+    public void closedSocketReplaced() throws Exception {
+        // the device hangs up after every response
+        startDevice(true);
+        PaxTcpInterface device = new PaxTcpInterface(getConfig());
+
+        device.send(buildRequest());
+        Thread.sleep(100);
+        device.send(buildRequest());
+
+        assertEquals(2, accepted.get());
+    }
+
+    private ConnectionConfig getConfig() {
+        ConnectionConfig config = new ConnectionConfig();
+        config.setDeviceType(DeviceType.PAX_S300);
+        config.setConnectionMode(ConnectionModes.TCP_IP);
+        config.setIpAddress(server.getInetAddress().getHostAddress());
+        config.setPort(server.getLocalPort());
+        config.setTimeout(5000);
+        return config;
+    }
+
+    private DeviceMessage buildRequest() {
+        return TerminalUtilities.buildRequest(PaxMsgId.A00_INITIALIZE);
+    }
+
+    // answers every request with an ACK followed by a framed response and waits for the ACK back
+    private void startDevice(final boolean hangUp) {
+        new Thread() {
+            public void run() {
+                try {
+                    while(true) {
+                        Socket socket = server.accept();
+                        accepted.incrementAndGet();
+                        serve(socket, hangUp);
+                    }
+                }
+                catch(Exception exc) { /* server closed */ }
+            }
+        }.start();
+    }
+
+    private void serve(final Socket socket, final boolean hangUp) {
+        new Thread() {
+            public void run() {
+                try {
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    do {
+                        // request runs up to the ETX and the LRC
+                        int value;
+                        while((value = in.read()) != ControlCodes.ETX.getByte()) {
+                            if(value < 0) {
+                                return;
+                            }
+                        }
+                        in.read();
+
+                        byte[] frame = new byte[] { ControlCodes.STX.getByte(), '0', ControlCodes.FS.getByte(), 'A', '0', '1', ControlCodes.ETX.getByte(), 0 };
+                        frame[frame.length - 1] = TerminalUtilities.calculateLRC(frame);
+
+                        out.write(ControlCodes.ACK.getByte());
+                        out.flush();
+                        Thread.sleep(20);
+                        out.write(frame);
+                        out.flush();
+
+                        // the ACK for our response
+                        in.read();
+                    }
+                    while(!hangUp);
+                    socket.close();
+                }
+                catch(Exception exc) { /* client closed */ }
+            }
+        }.start();
+    }
+}
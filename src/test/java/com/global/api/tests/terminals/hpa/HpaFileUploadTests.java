@@ -0,0 +1,160 @@
+package com.global.api.tests.terminals.hpa;
+
+import com.global.api.entities.enums.ConnectionModes;
+import com.global.api.entities.enums.DeviceType;
+import com.global.api.entities.enums.SendFileType;
+import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.TerminalSocketPool;
+import com.global.api.terminals.abstractions.IDeviceResponse;
+import com.global.api.terminals.hpa.HpaController;
+import com.global.api.terminals.hpa.HpaInterface;
+import com.global.api.terminals.messaging.IUploadProgressInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HpaFileUploadTests {
+    private ServerSocket server;
+    private File directory;
+    private StringBuffer fileData;
+    private AtomicInteger dataMessages;
+
+    @Before
+    public void setup() throws Exception {
+        server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        directory = new File(System.getProperty("java.io.tmpdir"), "hpa-upload-" + System.nanoTime());
+        assertTrue(directory.mkdirs());
+        fileData = new StringBuffer();
+        dataMessages = new AtomicInteger();
+        TerminalSocketPool.getInstance().clear();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        TerminalSocketPool.getInstance().clear();
+        server.close();
+        for(File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void fileStreamedInParts() throws Exception {
+        byte[] content = new byte[101];
+        for(int i = 0; i < content.length; i++) {
+            content[i] = (byte)(i * 7);
+        }
+        File file = writeFile("IDLELOGO.JPG", content);
+        startDevice(40);
+
+        final List<Long> progress = new ArrayList<Long>();
+        HpaInterface device = (HpaInterface)new HpaController(getConfig()).configureInterface();
+        device.setOnUploadProgress(new IUploadProgressInterface() {
+            public void progressChanged(long bytesSent, long totalBytes) {
+                assertEquals(101, totalBytes);
+                progress.add(bytesSent);
+            }
+        });
+
+        IDeviceResponse response = device.sendFile(SendFileType.Logo, file.getPath());
+        assertNotNull(response);
+        assertEquals("00", response.getDeviceResponseCode());
+
+        // 8 hex characters per part, five parts per write
+        assertEquals(toHex(content), fileData.toString());
+        assertEquals(26, dataMessages.get());
+        assertEquals(6, progress.size());
+        assertEquals(Long.valueOf(101), progress.get(progress.size() - 1));
+    }
+
+    private ConnectionConfig getConfig() {
+        ConnectionConfig config = new ConnectionConfig();
+        config.setDeviceType(DeviceType.HPA_ISC250);
+        config.setConnectionMode(ConnectionModes.TCP_IP);
+        config.setIpAddress(server.getInetAddress().getHostAddress());
+        config.setPort(server.getLocalPort());
+        config.setTimeout(5000);
+        return config;
+    }
+
+    private File writeFile(String name, byte[] content) throws Exception {
+        File file = new File(directory, name);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+        return file;
+    }
+
+    private static String toHex(byte[] content) {
+        StringBuilder sb = new StringBuilder();
+        for(byte b: content) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
+    // answers the SendFile header with the given MaxDataSize and the last data part with a final response
+    private void startDevice(final int maxDataSize) {
+        new Thread() {
+            public void run() {
+                try {
+                    while(true) {
+                        final Socket socket = server.accept();
+                        new Thread() {
+                            public void run() {
+                                serve(socket, maxDataSize);
+                            }
+                        }.start();
+                    }
+                }
+                catch(Exception exc) { /* server closed */ }
+            }
+        }.start();
+    }
+
+    private void serve(Socket socket, int maxDataSize) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while(true) {
+                byte[] buffer = new byte[in.readUnsignedShort()];
+                in.readFully(buffer);
+                String message = new String(buffer);
+
+                if(message.contains("<FileName>")) {
+                    respond(out, String.format("<MaxDataSize>%s</MaxDataSize>", maxDataSize));
+                }
+                else {
+                    dataMessages.incrementAndGet();
+                    fileData.append(message.substring(message.indexOf("<FileData>") + 10, message.indexOf("</FileData>")));
+                    if(message.contains("<MultipleMessage>0</MultipleMessage>")) {
+                        respond(out, "");
+                    }
+                }
+            }
+        }
+        catch(Exception exc) { /* client closed */ }
+    }
+
+    private void respond(OutputStream out, String fields) throws Exception {
+        String response = String.format("<SIP><Version>1.0</Version><ECRId>1004</ECRId><Response>SendFile</Response><RequestId>1004</RequestId><Result>0</Result><ResultText>Success</ResultText>%s<MultipleMessage>0</MultipleMessage></SIP>", fields);
+        out.write(response.length() >>> 8);
+        out.write(response.length());
+        out.write(response.getBytes());
+        out.flush();
+    }
+}